@@ -6,6 +6,7 @@ set JAVAFX_HOME=C:\JavaFX\javafx-sdk-21.0.5
 java --module-path "%JAVAFX_HOME%\lib" ^
 --add-modules javafx.controls,javafx.fxml,javafx.graphics,javafx.base,javafx.web,javafx.swing ^
 --add-exports java.base/sun.nio.ch=ALL-UNNAMED ^
+--add-opens java.base/java.nio=ALL-UNNAMED ^
 --add-exports javafx.graphics/com.sun.javafx.tk=ALL-UNNAMED ^
 --add-exports javafx.graphics/com.sun.javafx.scene=ALL-UNNAMED ^
 --add-exports javafx.graphics/com.sun.javafx.scene.traversal=ALL-UNNAMED ^
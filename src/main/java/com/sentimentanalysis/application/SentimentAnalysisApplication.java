@@ -7,8 +7,12 @@ import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
+import com.sentimentanalysis.core.service.BackendWarmup;
+import com.sentimentanalysis.core.service.ModelRegistry;
+import com.sentimentanalysis.ui.views.BackendStatusBar;
 import com.sentimentanalysis.ui.views.RedditTabContent;
 import com.sentimentanalysis.ui.views.SentimentAnalysisTabContent;
+import com.sentimentanalysis.util.StartupMetrics;
 
 public class SentimentAnalysisApplication extends Application {
     private RedditTabContent redditTabContent;
@@ -37,13 +41,26 @@ public class SentimentAnalysisApplication extends Application {
         tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
         tabPane.setMinWidth(450);
 
+        // Load and warm up the backends in the background; the status bar tracks their readiness
+        BackendWarmup warmup = new BackendWarmup(ModelRegistry.getInstance());
+        BackendStatusBar statusBar = new BackendStatusBar(warmup.start(), ModelRegistry.getInstance().getCircuitBreakers());
+
         // Set up the layout
         mainPane.setCenter(tabPane);
+        mainPane.setBottom(statusBar.getContent());
         Scene scene = new Scene(mainPane, 1000, 700);
 
         primaryStage.setTitle("Social Media Sentiment Analysis Application");
         primaryStage.setScene(scene);
         primaryStage.show();
+        StartupMetrics.markWindowShown();
+    }
+
+    @Override
+    public void stop() {
+        // Report which backends were loaded during the session and what they cost
+        ModelRegistry.getInstance().logSummary();
+        ModelRegistry.getInstance().close();
     }
 
     public static void main(String[] args) {
@@ -2,10 +2,16 @@ package com.sentimentanalysis.config;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.sentimentanalysis.core.service.HuggingFaceClient;
+import com.sentimentanalysis.core.service.RedditApiClient;
+
 public class AppConfig {
     private static final Logger logger = LoggerFactory.getLogger(AppConfig.class);
     private static final Properties properties = new Properties();
@@ -27,23 +33,249 @@ public class AppConfig {
         }
     }
 
+    // Also read under the [RedditAPI] names the Python scripts use
     public static String getRedditClientId() {
-        return properties.getProperty("reddit.client.id");
+        return properties.getProperty("reddit.client.id", properties.getProperty("client_id"));
     }
 
     public static String getRedditClientSecret() {
-        return properties.getProperty("reddit.client.secret");
+        return properties.getProperty("reddit.client.secret", properties.getProperty("client_secret"));
     }
 
     public static String getRedditUserAgent() {
-        return properties.getProperty("reddit.user.agent");
+        return properties.getProperty("reddit.user.agent", properties.getProperty("user_agent"));
+    }
+
+    // java fetches with the built-in Reddit API client, python with the fetch worker
+    public static String getRedditFetchClient() {
+        String value = properties.getProperty("reddit_fetch_client");
+        return value == null || value.trim().isEmpty() ? "java" : value.trim();
+    }
+
+    // csv, or arrow to write raw fetch output as an Arrow IPC stream
+    public static String getFetchOutputFormat() {
+        String value = properties.getProperty("fetch_output_format");
+        return value == null || value.trim().isEmpty() ? "csv" : value.trim();
+    }
+
+    // Reddit API base URL; can be pointed at a local stub server
+    public static String getRedditApiUrl() {
+        String value = properties.getProperty("reddit_api_url");
+        return value == null || value.trim().isEmpty() ? RedditApiClient.DEFAULT_API_URL : value.trim();
+    }
+
+    public static String getRedditAuthUrl() {
+        String value = properties.getProperty("reddit_auth_url");
+        return value == null || value.trim().isEmpty() ? RedditApiClient.DEFAULT_AUTH_URL : value.trim();
+    }
+
+    // Reddit API requests allowed in flight at once, within the rate-limit quota
+    public static int getRedditMaxInFlight() {
+        return Math.max(1, getInt("reddit_max_in_flight", 8));
     }
 
     public static String getPythonScriptPath() {
         return properties.getProperty("script_path");
     }
 
+    // reddit, or fake to have the fetch worker serve generated posts without credentials
+    public static String getFetchWorkerBackend() {
+        String value = properties.getProperty("fetch_worker_backend");
+        return value == null || value.trim().isEmpty() ? "reddit" : value.trim();
+    }
+
     public static String getHuggingFaceApiKey() {
         return properties.getProperty("huggingface.api.key");
     }
+
+    // Worker threads for batch CoreNLP annotation; defaults to one per core
+    public static int getCoreNLPThreads() {
+        return getInt("corenlp_threads", Runtime.getRuntime().availableProcessors());
+    }
+
+    // Threads scoring comment batches from a fetch file; 1 scores them on the calling thread
+    public static int getAnalysisThreads() {
+        return Math.max(1, getInt("analysis_threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    // Analyze comments while the fetch script is still writing them
+    public static boolean isPipelinedFetchEnabled() {
+        String value = properties.getProperty("pipelined_fetch");
+        return value == null || value.trim().isEmpty() || Boolean.parseBoolean(value.trim());
+    }
+
+    // Fetched records parsed ahead of analysis in pipelined mode
+    public static int getPipelinedFetchQueueSize() {
+        return Math.max(1, getInt("pipelined_fetch_queue_size", 1000));
+    }
+
+    // Cached per-sentence CoreNLP results
+    public static int getCoreNLPSentenceCacheSize() {
+        return getInt("corenlp_sentence_cache_size", 100000);
+    }
+
+    // Inference endpoint; can be pointed at a local stub server
+    public static String getHuggingFaceEndpoint() {
+        String value = properties.getProperty("huggingface_endpoint");
+        return value == null || value.trim().isEmpty() ? HuggingFaceClient.DEFAULT_ENDPOINT : value.trim();
+    }
+
+    // Inputs sent per HuggingFace inference request
+    public static int getHuggingFaceBatchSize() {
+        return getInt("huggingface_batch_size", 16);
+    }
+
+    // HuggingFace requests allowed in flight at once
+    public static int getHuggingFaceMaxInFlight() {
+        return getInt("huggingface_max_in_flight", 4);
+    }
+
+    // Maximum cached sentiment results across all backends; 0 disables the cache
+    public static int getSentimentCacheSize() {
+        return getInt("sentiment_cache_size", 50000);
+    }
+
+    public static boolean isSentimentStoreEnabled() {
+        String value = properties.getProperty("sentiment_store_enabled");
+        return value == null || value.trim().isEmpty() || Boolean.parseBoolean(value.trim());
+    }
+
+    // File holding sentiment results across sessions
+    public static String getSentimentStorePath() {
+        String value = properties.getProperty("sentiment_store_path");
+        return value == null || value.trim().isEmpty() ? "data/cache/sentiment-store.bin" : value.trim();
+    }
+
+    // Also write preprocessed results as partitioned Parquet, locally and to HDFS
+    public static boolean isPreprocessedParquetEnabled() {
+        String value = properties.getProperty("preprocessed_parquet");
+        return value != null && Boolean.parseBoolean(value.trim());
+    }
+
+    // Tries per background HDFS upload, and the delay before the first retry (doubled on each further one)
+    public static int getHDFSUploadAttempts() {
+        return getInt("hdfs_upload_attempts", 3);
+    }
+
+    public static long getHDFSUploadRetryDelayMillis() {
+        return getInt("hdfs_upload_retry_delay_ms", 5000);
+    }
+
+    // How long shutdown waits for queued HDFS uploads
+    public static long getHDFSUploadShutdownWaitMillis() {
+        return getInt("hdfs_upload_shutdown_wait_ms", 30000);
+    }
+
+    // HDFS compaction only merges files older than this, leaving fetches still landing alone
+    public static int getCompactionMinAgeMinutes() {
+        return getInt("compaction_min_age_minutes", 60);
+    }
+
+    // Size at which the compaction job starts a new merged file
+    public static int getCompactionTargetMB() {
+        return getInt("compaction_target_mb", 128);
+    }
+
+    // Target partition size and output file row limit for the Spark batch scoring job
+    public static int getBatchScoringPartitionMB() {
+        return getInt("batch_scoring_partition_mb", 128);
+    }
+
+    public static int getBatchScoringMaxRecordsPerFile() {
+        return getInt("batch_scoring_max_records_per_file", 1000000);
+    }
+
+    // Partitions the CoreNLP scoring job spreads comments over; 0 means four per core
+    public static int getCoreNLPJobPartitions() {
+        return getInt("corenlp_job_partitions", 0);
+    }
+
+    public static int getCoreNLPJobBatchSize() {
+        return getInt("corenlp_job_batch_size", 64);
+    }
+
+    // Deadlines for one sentiment call, single or batch, per backend
+    public static long getHDFSModelTimeoutMillis() {
+        return getInt("hdfs_model_timeout_ms", 60000);
+    }
+
+    public static long getHuggingFaceTimeoutMillis() {
+        return getInt("huggingface_timeout_ms", 60000);
+    }
+
+    public static long getCoreNLPTimeoutMillis() {
+        return getInt("corenlp_timeout_ms", 120000);
+    }
+
+    // Percentage of failed recent calls that opens a backend's circuit
+    public static int getCircuitBreakerFailureRate() {
+        return getInt("circuit_breaker_failure_rate", 50);
+    }
+
+    // Per-comment duration above which a call counts as slow
+    public static long getCircuitBreakerSlowCallMillis() {
+        return getInt("circuit_breaker_slow_call_ms", 2000);
+    }
+
+    // Percentage of slow recent calls that opens a backend's circuit
+    public static int getCircuitBreakerSlowCallRate() {
+        return getInt("circuit_breaker_slow_call_rate", 80);
+    }
+
+    // Seconds an open circuit waits before letting a probe call through
+    public static int getCircuitBreakerOpenSeconds() {
+        return getInt("circuit_breaker_open_seconds", 30);
+    }
+
+    // Fast-model probability below which the cascade escalates a comment
+    public static double getCascadeConfidenceThreshold() {
+        return getDouble("cascade_confidence_threshold", 0.8);
+    }
+
+    // Backend for escalated comments: corenlp or huggingface
+    public static String getCascadeEscalation() {
+        String value = properties.getProperty("cascade_escalation");
+        return value == null || value.trim().isEmpty() ? "corenlp" : value.trim();
+    }
+
+    // Sentiment backends loaded and warmed up at startup: any of corenlp, hdfs_model, local_model
+    public static List<String> getWarmupBackends() {
+        String value = properties.getProperty("warmup_backends");
+        if (value == null) {
+            return Collections.singletonList("local_model");
+        }
+        List<String> backends = new ArrayList<>();
+        for (String backend : value.split(",")) {
+            if (!backend.trim().isEmpty()) {
+                backends.add(backend.trim());
+            }
+        }
+        return backends;
+    }
+
+    private static int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value for {}: {}, using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private static double getDouble(String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value for {}: {}, using {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
 }
@@ -0,0 +1,41 @@
+package com.sentimentanalysis.core.model;
+
+public class AnalyzedComment {
+    private final String comment;
+    private final String sentiment;
+    private final String postTitle;
+    private final String subreddit;
+
+    public AnalyzedComment(String comment, String sentiment) {
+        this(comment, sentiment, null, null);
+    }
+
+    // subreddit is null for comments fetched by post link
+    public AnalyzedComment(String comment, String sentiment, String postTitle, String subreddit) {
+        this.comment = comment;
+        this.sentiment = sentiment;
+        this.postTitle = postTitle;
+        this.subreddit = subreddit;
+    }
+
+    public String getComment() {
+        return comment;
+    }
+
+    public String getSentiment() {
+        return sentiment;
+    }
+
+    public String getPostTitle() {
+        return postTitle;
+    }
+
+    public String getSubreddit() {
+        return subreddit;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Comment: %s%nSentiment: %s", comment, sentiment);
+    }
+}
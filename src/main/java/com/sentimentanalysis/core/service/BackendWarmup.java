@@ -0,0 +1,125 @@
+package com.sentimentanalysis.core.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sentimentanalysis.config.AppConfig;
+
+/**
+ * Loads the configured sentiment backends and the fetch and HDFS connections concurrently
+ * in the background and runs a small built-in corpus through each backend, so class loading,
+ * JIT compilation and Spark codegen are done before the first real request. Backends that
+ * are not listed in warmup_backends are left to load on first use.
+ */
+public class BackendWarmup {
+    private static final Logger logger = LoggerFactory.getLogger(BackendWarmup.class);
+
+    private static final List<String> WARM_UP_CORPUS = Arrays.asList(
+        "This is absolutely fantastic, I love it!",
+        "Worst update ever. Nothing works anymore.",
+        "It's okay I guess, nothing special.",
+        "Check out https://example.com for details @someone #news",
+        "I don't think this is a good idea, but the team did great work on the rest."
+    );
+
+    private final ModelRegistry registry;
+    private final Map<String, Runnable> tasks = new LinkedHashMap<>();
+
+    public BackendWarmup(ModelRegistry registry) {
+        this(registry, AppConfig.getWarmupBackends());
+    }
+
+    public BackendWarmup(ModelRegistry registry, List<String> backends) {
+        this.registry = registry;
+        for (String backend : backends) {
+            switch (backend.toLowerCase(Locale.ROOT)) {
+                case "corenlp":
+                    tasks.put(ModelRegistry.STANFORD_CORENLP, () ->
+                        registry.getStanfordNLPSentimentService().analyzeSentimentBatch(WARM_UP_CORPUS));
+                    break;
+                case "hdfs_model":
+                    // Starts the SparkSession, so only when the Spark-backed model is the one in use
+                    tasks.put(ModelRegistry.HDFS_MODEL, () -> {
+                        try {
+                            registry.getSentimentAnalysisService().analyzeWithHDFSModelBatch(WARM_UP_CORPUS);
+                        } catch (Exception e) {
+                            throw new RuntimeException(e.getMessage(), e);
+                        }
+                    });
+                    break;
+                case "local_model":
+                    tasks.put(ModelRegistry.LOCAL_MODEL, () ->
+                        registry.getLocalMLlibSentimentService().analyzeSentimentBatch(WARM_UP_CORPUS));
+                    break;
+                default:
+                    logger.warn("Unknown backend in warmup_backends: {}", backend);
+            }
+        }
+        tasks.put(ModelRegistry.HDFS_CONNECTION, registry::getHDFSService);
+        if (RedditService.usesJavaFetchClient()) {
+            tasks.put(ModelRegistry.REDDIT_API_CLIENT, () -> {
+                try {
+                    registry.getRedditApiClient().authenticate();
+                } catch (IOException e) {
+                    throw new RuntimeException(e.getMessage(), e);
+                }
+            });
+        } else {
+            tasks.put(ModelRegistry.FETCH_WORKER, () -> registry.getFetchWorker().start());
+        }
+    }
+
+    public List<String> getBackendNames() {
+        return new ArrayList<>(tasks.keySet());
+    }
+
+    /**
+     * Starts loading and warming each selected backend on its own daemon thread. The returned
+     * futures, keyed by backend name, complete with the load plus warm-up time in
+     * milliseconds, or exceptionally if the backend could not be loaded.
+     */
+    public Map<String, CompletableFuture<Long>> start() {
+        if (tasks.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size(), runnable -> {
+            Thread thread = new Thread(runnable, "backend-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Map<String, CompletableFuture<Long>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, Runnable> task : tasks.entrySet()) {
+            futures.put(task.getKey(), CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                try {
+                    task.getValue().run();
+                } catch (RuntimeException e) {
+                    logger.warn("Backend {} failed to warm up: {}", task.getKey(), e.getMessage());
+                    throw e;
+                }
+                long elapsed = (System.nanoTime() - start) / 1_000_000;
+                logger.info("Backend {} ready after {} ms", task.getKey(), elapsed);
+                return elapsed;
+            }, executor));
+        }
+
+        CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+            .whenComplete((ignored, error) -> {
+                executor.shutdown();
+                registry.logSummary();
+            });
+        return futures;
+    }
+}
@@ -0,0 +1,205 @@
+package com.sentimentanalysis.core.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sentimentanalysis.core.model.SentimentResult;
+import com.sentimentanalysis.util.TextHash;
+
+/**
+ * Puts a {@link SentimentCache} and, optionally, a {@link PersistentSentimentStore} in
+ * front of another analyzer. Repeated texts, including repeats within one batch, reach
+ * the wrapped backend only once; results already on disk from an earlier session under
+ * the same model version are not recomputed.
+ *
+ * <p>Entries are keyed by the wrapped analyzer's name, and only results it produced
+ * itself are kept. Results a fallback chain answered with another backend, for example
+ * while the model is unreachable, are returned but neither cached nor stored, so they
+ * are never served later as the wrapped analyzer's own.
+ */
+public class CachingSentimentAnalyzer implements SentimentAnalyzer {
+    private static final Logger logger = LoggerFactory.getLogger(CachingSentimentAnalyzer.class);
+
+    private final SentimentAnalyzer delegate;
+    private final SentimentCache cache;
+    private final Supplier<PersistentSentimentStore> store;
+    private final long backendHash;
+    private volatile StoreHandle storeHandle;
+
+    public CachingSentimentAnalyzer(SentimentAnalyzer delegate, SentimentCache cache) {
+        this(delegate, cache, () -> null);
+    }
+
+    // The store supplier may return null when no store is available
+    public CachingSentimentAnalyzer(SentimentAnalyzer delegate, SentimentCache cache,
+                                    Supplier<PersistentSentimentStore> store) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.store = store;
+        this.backendHash = TextHash.hashNormalized(delegate.getName());
+    }
+
+    public SentimentAnalyzer getDelegate() {
+        return delegate;
+    }
+
+    private long keyFor(String text) {
+        return TextHash.combine(backendHash, TextHash.hashNormalized(text));
+    }
+
+    @Override
+    public String analyzeSentiment(String text) {
+        return analyzeSentimentBatch(Collections.singletonList(text)).get(0);
+    }
+
+    @Override
+    public List<String> analyzeSentimentBatch(List<String> texts) {
+        List<SentimentResult> scored = scoreSentimentBatch(texts);
+        List<String> results = new ArrayList<>(scored.size());
+        for (SentimentResult result : scored) {
+            results.add(result.getSentiment());
+        }
+        return results;
+    }
+
+    // Cached and stored results are the delegate's own, so they keep its name as their source
+    @Override
+    public List<SentimentResult> scoreSentimentBatch(List<String> texts) {
+        SentimentResult[] results = new SentimentResult[texts.size()];
+        long[] keys = new long[texts.size()];
+        // Distinct keys missing from memory, mapped to their position in the missing list
+        Map<Long, Integer> pending = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            String text = texts.get(i);
+            if (text == null) {
+                continue;
+            }
+            keys[i] = keyFor(text);
+            if (pending.containsKey(keys[i])) {
+                continue;
+            }
+            String cached = cache.get(keys[i]);
+            if (cached != null) {
+                results[i] = new SentimentResult(text, Double.NaN, cached, delegate.getName());
+            } else {
+                pending.put(keys[i], missing.size());
+                missing.add(text);
+            }
+        }
+
+        SentimentResult[] resolved = new SentimentResult[missing.size()];
+        if (!missing.isEmpty()) {
+            StoreHandle handle = openStore();
+            long[] missingKeys = new long[missing.size()];
+            for (Map.Entry<Long, Integer> entry : pending.entrySet()) {
+                missingKeys[entry.getValue()] = entry.getKey();
+            }
+
+            List<String> toAnalyze = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            for (int i = 0; i < resolved.length; i++) {
+                String stored = handle == null ? null : handle.store.get(handle.backendId, missingKeys[i]);
+                if (stored != null) {
+                    resolved[i] = new SentimentResult(missing.get(i), Double.NaN, stored, delegate.getName());
+                    cache.put(missingKeys[i], stored);
+                } else {
+                    toAnalyze.add(missing.get(i));
+                    positions.add(i);
+                }
+            }
+
+            if (!toAnalyze.isEmpty()) {
+                List<SentimentResult> analyzed = delegate.scoreSentimentBatch(toAnalyze);
+                int fallbacks = 0;
+                for (int i = 0; i < analyzed.size(); i++) {
+                    int position = positions.get(i);
+                    SentimentResult result = analyzed.get(i);
+                    resolved[position] = result;
+                    if (!delegate.getName().equals(result.getSource())) {
+                        fallbacks++;
+                        continue;
+                    }
+                    cache.put(missingKeys[position], result.getSentiment());
+                    if (handle != null) {
+                        handle.store.put(handle.backendId, missingKeys[position], result.getSentiment(),
+                            (float) result.getScore());
+                    }
+                }
+                if (fallbacks > 0) {
+                    logger.debug("Not caching {} results {} answered with a fallback backend", fallbacks, delegate.getName());
+                }
+            }
+        }
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            String text = texts.get(i);
+            results[i] = text == null
+                ? new SentimentResult(null, Double.NaN, delegate.analyzeSentiment(null), delegate.getName())
+                : resolved[pending.get(keys[i])];
+        }
+        return Arrays.asList(results);
+    }
+
+    // Returns the store registered under the delegate's current model version, or null if the
+    // version is unknown; registration takes the store's write lock, so it is done once per version
+    private StoreHandle openStore() {
+        PersistentSentimentStore persistent = store.get();
+        if (persistent == null) {
+            return null;
+        }
+        try {
+            String version = delegate.getModelVersion();
+            if (version == null) {
+                return null;
+            }
+            StoreHandle handle = storeHandle;
+            if (handle == null || handle.store != persistent || !handle.version.equals(version)) {
+                handle = new StoreHandle(persistent, version, persistent.registerBackend(delegate.getName(), version));
+                storeHandle = handle;
+            }
+            return handle;
+        } catch (RuntimeException e) {
+            logger.warn("Skipping sentiment store for {}: {}", delegate.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getModelVersion() {
+        return delegate.getModelVersion();
+    }
+
+    @Override
+    public boolean isDetailedSentiment() {
+        return delegate.isDetailedSentiment();
+    }
+
+    private static final class StoreHandle {
+        final PersistentSentimentStore store;
+        final String version;
+        final int backendId;
+
+        StoreHandle(PersistentSentimentStore store, String version, int backendId) {
+            this.store = store;
+            this.version = version;
+            this.backendId = backendId;
+        }
+    }
+}
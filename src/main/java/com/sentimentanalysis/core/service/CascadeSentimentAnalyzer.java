@@ -0,0 +1,165 @@
+package com.sentimentanalysis.core.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sentimentanalysis.core.model.SentimentResult;
+
+/**
+ * Scores every comment with the fast MLlib model and sends only the ones it is unsure
+ * about (predicted-label probability below the threshold) to a slower, more accurate
+ * backend. Labels are reported on the Positive / Neutral / Negative scale.
+ */
+public class CascadeSentimentAnalyzer implements SentimentAnalyzer {
+    private static final Logger logger = LoggerFactory.getLogger(CascadeSentimentAnalyzer.class);
+
+    private final LocalMLlibSentimentService fastModel;
+    private final SentimentAnalysisService sparkModel;
+    private final SentimentAnalyzer escalation;
+    private final double threshold;
+
+    // Totals since the last report
+    private final AtomicLong comments = new AtomicLong();
+    private final AtomicLong escalated = new AtomicLong();
+    private final AtomicLong fastNanos = new AtomicLong();
+    private final AtomicLong escalationNanos = new AtomicLong();
+
+    /**
+     * @param fastModel  in-JVM model used for the first pass
+     * @param sparkModel used for the first pass when the in-JVM model cannot be loaded
+     * @param escalation backend for comments scored below the threshold
+     * @param threshold  minimum predicted-label probability accepted from the fast model
+     */
+    public CascadeSentimentAnalyzer(LocalMLlibSentimentService fastModel, SentimentAnalysisService sparkModel,
+                                    SentimentAnalyzer escalation, double threshold) {
+        this.fastModel = fastModel;
+        this.sparkModel = sparkModel;
+        this.escalation = escalation;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public String analyzeSentiment(String text) {
+        return analyzeSentimentBatch(Collections.singletonList(text)).get(0);
+    }
+
+    @Override
+    public List<String> analyzeSentimentBatch(List<String> texts) {
+        List<SentimentResult> scored = scoreSentimentBatch(texts);
+        List<String> results = new ArrayList<>(scored.size());
+        for (SentimentResult result : scored) {
+            results.add(result.getSentiment());
+        }
+        return results;
+    }
+
+    // Fast and escalated results are both this analyzer's own, with the fast model's probability
+    // or the escalation backend's score; only a fallback of the escalation backend keeps its source
+    @Override
+    public List<SentimentResult> scoreSentimentBatch(List<String> texts) {
+        long start = System.nanoTime();
+        List<SentimentResult> scored = scoreFast(texts);
+        long fastDone = System.nanoTime();
+
+        List<SentimentResult> results = new ArrayList<>(texts.size());
+        List<String> uncertain = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < scored.size(); i++) {
+            SentimentResult result = scored.get(i);
+            results.add(new SentimentResult(texts.get(i), result.getScore(), result.getSentiment(), getName()));
+            if (result.getScore() < threshold) {
+                uncertain.add(texts.get(i));
+                positions.add(i);
+            }
+        }
+
+        if (!uncertain.isEmpty()) {
+            List<SentimentResult> escalatedResults = escalation.scoreSentimentBatch(uncertain);
+            for (int i = 0; i < escalatedResults.size(); i++) {
+                SentimentResult result = escalatedResults.get(i);
+                String source = escalation.getName().equals(result.getSource()) ? getName() : result.getSource();
+                results.set(positions.get(i), new SentimentResult(uncertain.get(i), result.getScore(),
+                    toThreeClass(result.getSentiment()), source));
+            }
+        }
+
+        comments.addAndGet(texts.size());
+        escalated.addAndGet(uncertain.size());
+        fastNanos.addAndGet(fastDone - start);
+        escalationNanos.addAndGet(System.nanoTime() - fastDone);
+        return results;
+    }
+
+    private List<SentimentResult> scoreFast(List<String> texts) {
+        try {
+            return fastModel.scoreBatch(texts);
+        } catch (RuntimeException e) {
+            try {
+                return sparkModel.scoreWithHDFSModelBatch(texts);
+            } catch (Exception ex) {
+                throw new RuntimeException("Fast model unavailable for cascade: " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    // The escalation backend may use the five-class CoreNLP scale
+    private static String toThreeClass(String sentiment) {
+        if (sentiment.equalsIgnoreCase("Very Positive")) {
+            return "Positive";
+        }
+        if (sentiment.equalsIgnoreCase("Very Negative")) {
+            return "Negative";
+        }
+        return sentiment;
+    }
+
+    /**
+     * Logs how many comments escalated since the previous report, and the time saved
+     * compared with sending every comment to the escalation backend, estimated from its
+     * average cost per escalated comment.
+     */
+    public void logRunStats() {
+        long total = comments.getAndSet(0);
+        long slow = escalated.getAndSet(0);
+        long fastMillis = fastNanos.getAndSet(0) / 1_000_000;
+        long escalationMillis = escalationNanos.getAndSet(0) / 1_000_000;
+        if (total == 0) {
+            return;
+        }
+        String saved = slow == 0
+            ? "unknown (nothing escalated)"
+            : "~" + Math.max(0, escalationMillis * total / slow - fastMillis - escalationMillis) + " ms";
+        logger.info("Cascade: {} of {} comments escalated to {} ({}%), fast pass {} ms, escalation {} ms, saved {}",
+            slow, total, escalation.getName(), String.format("%.1f", 100.0 * slow / total),
+            fastMillis, escalationMillis, saved);
+    }
+
+    long getCommentsSinceReport() {
+        return comments.get();
+    }
+
+    long getEscalatedSinceReport() {
+        return escalated.get();
+    }
+
+    @Override
+    public String getName() {
+        return "Cascade (MLlib + " + escalation.getName() + ")";
+    }
+
+    // Results depend on both models and on the threshold
+    @Override
+    public String getModelVersion() {
+        String fastVersion = fastModel.getModelVersion();
+        String escalationVersion = escalation.getModelVersion();
+        if (fastVersion == null || escalationVersion == null) {
+            return null;
+        }
+        return getName() + "@" + fastVersion + "/" + escalationVersion + "/" + threshold;
+    }
+}
@@ -0,0 +1,243 @@
+package com.sentimentanalysis.core.service;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the health of one backend over a sliding window of recent calls. The circuit
+ * opens when too many calls fail, time out or run slowly, so callers can skip the backend
+ * without paying for another exception or round trip. After a cool-down a single probe
+ * call is let through (half-open); its outcome closes the circuit or opens it again.
+ */
+public class CircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+    private static final int WINDOW_SIZE = 20;
+    private static final int MINIMUM_CALLS = 5;
+
+    // Calls running at once per backend; further calls queue, and their wait counts toward the deadline
+    private static final int MAX_CONCURRENT_CALLS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    // Thrown instead of calling a backend whose circuit is open
+    public static class CallNotPermittedException extends Exception {
+        CallNotPermittedException(String message) {
+            super(message);
+        }
+    }
+
+    private final String name;
+    private final long timeoutMillis;
+    private final double failureRateThreshold;
+    private final long slowCallNanosPerItem;
+    private final double slowCallRateThreshold;
+    private final long openNanos;
+    private final List<Consumer<CircuitBreaker>> listeners = new CopyOnWriteArrayList<>();
+    private final ThreadPoolExecutor executor;
+
+    // Outcomes of the most recent calls, as a ring buffer
+    private final boolean[] failedCalls = new boolean[WINDOW_SIZE];
+    private final boolean[] slowCalls = new boolean[WINDOW_SIZE];
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slow;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probeInFlight;
+    private String lastFailure;
+
+    /**
+     * @param timeoutMillis         deadline for one call, single or batch
+     * @param failureRatePercent    share of failed calls in the window that opens the circuit
+     * @param slowCallMillisPerItem per-item duration above which a call counts as slow
+     * @param slowCallRatePercent   share of slow calls in the window that opens the circuit
+     * @param openSeconds           cool-down before a half-open probe is allowed
+     */
+    public CircuitBreaker(String name, long timeoutMillis, int failureRatePercent,
+                          long slowCallMillisPerItem, int slowCallRatePercent, int openSeconds) {
+        this.name = name;
+        this.timeoutMillis = timeoutMillis;
+        this.failureRateThreshold = failureRatePercent / 100.0;
+        this.slowCallNanosPerItem = TimeUnit.MILLISECONDS.toNanos(slowCallMillisPerItem);
+        this.slowCallRateThreshold = slowCallRatePercent / 100.0;
+        this.openNanos = TimeUnit.SECONDS.toNanos(openSeconds);
+        this.executor = new ThreadPoolExecutor(MAX_CONCURRENT_CALLS, MAX_CONCURRENT_CALLS,
+            60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "backend-call-" + THREAD_COUNTER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized String getLastFailure() {
+        return lastFailure;
+    }
+
+    // Notified on every state change, on the thread that caused it, while the breaker is locked
+    public void addListener(Consumer<CircuitBreaker> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Runs the call under this breaker's deadline. A call past its deadline is cancelled
+     * and its thread interrupted.
+     *
+     * @param items number of texts in the call, used to judge whether it was slow
+     */
+    public <T> T execute(Callable<T> call, int items) throws Exception {
+        return execute(null, call, items);
+    }
+
+    /**
+     * Like {@link #execute(Callable, int)}, first running {@code load} on the calling thread
+     * without a deadline, so a backend's first model load is neither timed out nor
+     * interrupted. A failed load counts as a failed call.
+     */
+    public <T> T execute(Callable<?> load, Callable<T> call, int items) throws Exception {
+        if (!tryAcquire()) {
+            throw new CallNotPermittedException(name + " is unavailable (circuit open)");
+        }
+        if (load != null) {
+            try {
+                load.call();
+            } catch (Exception e) {
+                record(true, 0, items, e.getMessage());
+                throw e;
+            }
+        }
+        long start = System.nanoTime();
+        Future<T> future = executor.submit(call);
+        try {
+            T result = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            record(false, System.nanoTime() - start, items, null);
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            String message = name + " did not respond within " + timeoutMillis + " ms";
+            record(true, System.nanoTime() - start, items, message);
+            throw new TimeoutException(message);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            record(true, System.nanoTime() - start, items, cause.getMessage());
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw new RuntimeException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            releaseProbe();
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    private synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return false;
+                }
+                transitionTo(State.HALF_OPEN);
+                probeInFlight = true;
+                return true;
+            default:
+                if (probeInFlight) {
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    private synchronized void releaseProbe() {
+        probeInFlight = false;
+    }
+
+    private synchronized void record(boolean failed, long elapsedNanos, int items, String failure) {
+        boolean wasSlow = elapsedNanos > slowCallNanosPerItem * Math.max(1, items);
+        if (failed) {
+            lastFailure = failure;
+        }
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            resetWindow();
+            transitionTo(failed || wasSlow ? State.OPEN : State.CLOSED);
+        } else if (state == State.CLOSED) {
+            addOutcome(failed, wasSlow);
+            if (recorded >= MINIMUM_CALLS
+                    && ((double) failures / recorded >= failureRateThreshold
+                        || (double) slow / recorded >= slowCallRateThreshold)) {
+                resetWindow();
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    private void addOutcome(boolean failed, boolean wasSlow) {
+        if (recorded == WINDOW_SIZE) {
+            failures -= failedCalls[next] ? 1 : 0;
+            slow -= slowCalls[next] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        failedCalls[next] = failed;
+        slowCalls[next] = wasSlow;
+        failures += failed ? 1 : 0;
+        slow += wasSlow ? 1 : 0;
+        next = (next + 1) % WINDOW_SIZE;
+    }
+
+    private void resetWindow() {
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slow = 0;
+    }
+
+    private void transitionTo(State newState) {
+        if (newState == State.OPEN) {
+            openedAt = System.nanoTime();
+            logger.warn("Circuit for {} opened, skipping it for {} s ({})",
+                name, TimeUnit.NANOSECONDS.toSeconds(openNanos), lastFailure != null ? lastFailure : "slow calls");
+        } else if (newState == State.CLOSED) {
+            logger.info("Circuit for {} closed, backend recovered", name);
+        } else {
+            logger.info("Circuit for {} half-open, probing backend", name);
+        }
+        state = newState;
+        listeners.forEach(listener -> listener.accept(this));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + ": " + state.name().toLowerCase().replace('_', '-');
+    }
+}
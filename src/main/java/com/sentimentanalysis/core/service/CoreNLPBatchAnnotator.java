@@ -0,0 +1,88 @@
+package com.sentimentanalysis.core.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+/**
+ * Annotates many documents in parallel with one shared CoreNLP pipeline. CoreNLP
+ * annotators are thread-safe, so every worker reuses the same loaded models.
+ */
+public class CoreNLPBatchAnnotator {
+    private final Supplier<StanfordCoreNLP> pipeline;
+    private final int threads;
+    private volatile ExecutorService executor;
+
+    public CoreNLPBatchAnnotator(Supplier<StanfordCoreNLP> pipeline, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.pipeline = pipeline;
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    // Returns the annotated documents in the same order as the input texts
+    public List<Annotation> annotateAll(List<String> texts) {
+        List<Annotation> annotations = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            annotations.add(new Annotation(text));
+        }
+        annotate(pipeline.get(), annotations);
+        return annotations;
+    }
+
+    // Runs the given pipeline over prepared annotations in place on the worker pool
+    public void annotate(StanfordCoreNLP nlp, List<Annotation> annotations) {
+        if (threads == 1 || annotations.size() <= 1) {
+            for (Annotation annotation : annotations) {
+                nlp.annotate(annotation);
+            }
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<>(annotations.size());
+        for (Annotation annotation : annotations) {
+            futures.add(executor().submit(() -> nlp.annotate(annotation)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while annotating batch", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("CoreNLP annotation failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    AtomicInteger counter = new AtomicInteger();
+                    executor = Executors.newFixedThreadPool(threads, runnable -> {
+                        Thread thread = new Thread(runnable, "corenlp-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,188 @@
+package com.sentimentanalysis.core.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sentimentanalysis.util.TextHash;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.neural.rnn.RNNCoreAnnotations;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.sentiment.SentimentCoreAnnotations;
+import edu.stanford.nlp.util.CoreMap;
+
+/**
+ * Scores each sentence of a comment with CoreNLP's sentiment model, caching the
+ * predicted class per normalized sentence text. Comments are only tokenized and split
+ * up front; parse and sentiment, which dominate CoreNLP's cost, run just for sentences
+ * that have not been seen before, such as the ones not quoted from a parent comment.
+ */
+public class CoreNLPSentenceScorer {
+    private static final Logger logger = LoggerFactory.getLogger(CoreNLPSentenceScorer.class);
+
+    // Class names as set by CoreNLP's SentimentAnnotator, indexed by predicted class
+    private static final String[] CLASS_NAMES = {
+        "Very negative", "Negative", "Neutral", "Positive", "Very positive"
+    };
+
+    private final Supplier<StanfordCoreNLP> fullPipeline;
+    private final SentimentCache cache;
+    private final CoreNLPBatchAnnotator annotator;
+    private final Properties sentenceModelProps;
+    private final AtomicLong runHits = new AtomicLong();
+    private final AtomicLong runMisses = new AtomicLong();
+    private volatile StanfordCoreNLP splitter;
+    private volatile StanfordCoreNLP sentenceModel;
+
+    /**
+     * @param fullPipeline the "tokenize, ssplit, parse, sentiment" pipeline; loading it
+     *                     puts the models in CoreNLP's annotator pool, so the two partial
+     *                     pipelines built here reuse them instead of loading them again
+     */
+    public CoreNLPSentenceScorer(Supplier<StanfordCoreNLP> fullPipeline, SentimentCache cache,
+                                 CoreNLPBatchAnnotator annotator) {
+        this(fullPipeline, cache, annotator, sentimentProps());
+    }
+
+    // Runs the given annotators on uncached sentences instead of parse and sentiment
+    public CoreNLPSentenceScorer(Supplier<StanfordCoreNLP> fullPipeline, SentimentCache cache,
+                                 CoreNLPBatchAnnotator annotator, Properties sentenceModelProps) {
+        this.fullPipeline = fullPipeline;
+        this.cache = cache;
+        this.annotator = annotator;
+        this.sentenceModelProps = sentenceModelProps;
+    }
+
+    public static String className(int predictedClass) {
+        return CLASS_NAMES[predictedClass];
+    }
+
+    // Returns the predicted class (0 very negative to 4 very positive) of every sentence of every text
+    public List<int[]> scoreSentences(List<String> texts) {
+        initPipelines();
+        List<Annotation> documents = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            documents.add(new Annotation(text));
+        }
+        annotator.annotate(splitter, documents);
+
+        // Resolve distinct sentences from the cache; collect the rest across the whole batch
+        List<long[]> keys = new ArrayList<>(documents.size());
+        Map<Long, Integer> known = new HashMap<>();
+        Map<Long, Annotation> uncached = new LinkedHashMap<>();
+        long total = 0;
+        for (Annotation document : documents) {
+            List<CoreMap> sentences = document.get(CoreAnnotations.SentencesAnnotation.class);
+            total += sentences.size();
+            long[] sentenceKeys = new long[sentences.size()];
+            for (int i = 0; i < sentences.size(); i++) {
+                CoreMap sentence = sentences.get(i);
+                long key = TextHash.hashNormalized(sentence.get(CoreAnnotations.TextAnnotation.class));
+                sentenceKeys[i] = key;
+                if (known.containsKey(key) || uncached.containsKey(key)) {
+                    continue;
+                }
+                int cached = classOf(cache.get(key));
+                if (cached >= 0) {
+                    known.put(key, cached);
+                } else {
+                    uncached.put(key, sentenceDocument(sentence));
+                }
+            }
+            keys.add(sentenceKeys);
+        }
+        // Repeats within the batch count as reuse too: only distinct unseen sentences are parsed
+        runHits.addAndGet(total - uncached.size());
+        runMisses.addAndGet(uncached.size());
+
+        annotator.annotate(sentenceModel, new ArrayList<>(uncached.values()));
+        for (Map.Entry<Long, Annotation> entry : uncached.entrySet()) {
+            CoreMap sentence = entry.getValue().get(CoreAnnotations.SentencesAnnotation.class).get(0);
+            int predicted = RNNCoreAnnotations.getPredictedClass(
+                sentence.get(SentimentCoreAnnotations.SentimentAnnotatedTree.class));
+            known.put(entry.getKey(), predicted);
+            cache.put(entry.getKey(), CLASS_NAMES[predicted]);
+        }
+
+        List<int[]> results = new ArrayList<>(keys.size());
+        for (long[] sentenceKeys : keys) {
+            int[] classes = new int[sentenceKeys.length];
+            for (int i = 0; i < sentenceKeys.length; i++) {
+                classes[i] = known.get(sentenceKeys[i]);
+            }
+            results.add(classes);
+        }
+        return results;
+    }
+
+    public int[] scoreSentences(String text) {
+        return scoreSentences(Collections.singletonList(text)).get(0);
+    }
+
+    // Logs the sentence cache hit rate since the previous report
+    public void logRunStats() {
+        long hits = runHits.getAndSet(0);
+        long misses = runMisses.getAndSet(0);
+        if (hits + misses > 0) {
+            logger.info("CoreNLP sentence cache: {} of {} sentences reused ({}%), {} parsed",
+                hits, hits + misses, String.format("%.1f", 100.0 * hits / (hits + misses)), misses);
+        }
+    }
+
+    public SentimentCache getCache() {
+        return cache;
+    }
+
+    // A one-sentence document the parse and sentiment annotators can run on directly
+    private static Annotation sentenceDocument(CoreMap sentence) {
+        Annotation document = new Annotation(sentence.get(CoreAnnotations.TextAnnotation.class));
+        document.set(CoreAnnotations.TokensAnnotation.class, sentence.get(CoreAnnotations.TokensAnnotation.class));
+        document.set(CoreAnnotations.SentencesAnnotation.class, Collections.singletonList(sentence));
+        return document;
+    }
+
+    // Returns -1 for a cache miss
+    private static int classOf(String className) {
+        if (className != null) {
+            for (int i = 0; i < CLASS_NAMES.length; i++) {
+                if (CLASS_NAMES[i].equals(className)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void initPipelines() {
+        if (sentenceModel != null) {
+            return;
+        }
+        synchronized (this) {
+            if (sentenceModel != null) {
+                return;
+            }
+            fullPipeline.get();
+            Properties splitProps = new Properties();
+            splitProps.setProperty("annotators", "tokenize, ssplit");
+            splitter = new StanfordCoreNLP(splitProps);
+            sentenceModel = new StanfordCoreNLP(sentenceModelProps, false);
+        }
+    }
+
+    private static Properties sentimentProps() {
+        Properties sentimentProps = new Properties();
+        sentimentProps.setProperty("annotators", "parse, sentiment");
+        return sentimentProps;
+    }
+}
@@ -6,19 +6,19 @@ import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
 
 public class HDFSService {
     private static final Logger logger = LoggerFactory.getLogger(HDFSService.class);
-    private static final String HDFS_URI = "hdfs://localhost:9000";
-    private static final String BASE_DATA_DIR = "/sentiment-analysis/data";
+    public static final String HDFS_URI = "hdfs://localhost:9000";
+    public static final String BASE_DATA_DIR = "/sentiment-analysis/data";
     public static final String PREPROCESSED_DIR = "/sentiment-analysis/preprocessed";
+    // Partitioned Parquet dataset of preprocessed results
+    public static final String PREPROCESSED_PARQUET_DIR = "/sentiment-analysis/preprocessed-parquet";
+    // Copy buffer for uploads; Hadoop's 4 KB default means a write call per few comments
+    private static final int IO_BUFFER_BYTES = 1024 * 1024;
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
 
     private final FileSystem fileSystem;
@@ -27,6 +27,7 @@ public class HDFSService {
         try {
             Configuration conf = new Configuration();
             conf.set("fs.defaultFS", HDFS_URI);
+            conf.setInt("io.file.buffer.size", IO_BUFFER_BYTES);
             this.fileSystem = FileSystem.get(conf);
             createBaseDirectories();
         } catch (IOException e) {
@@ -35,20 +36,30 @@ public class HDFSService {
         }
     }
 
+    // Uses the given file system as it is, e.g. the local one in tests
+    HDFSService(FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+    }
+
     private void createBaseDirectories() throws IOException {
         fileSystem.mkdirs(new Path(BASE_DATA_DIR));
         fileSystem.mkdirs(new Path(PREPROCESSED_DIR));
     }
 
     public String createHDFSOutputPath(String type, String identifier) {
+        return createHDFSOutputPath(type, identifier, ".csv");
+    }
+
+    // Same layout as the local raw data, keeping the local file's extension
+    public String createHDFSOutputPath(String type, String identifier, String extension) {
         try {
             String timestamp = LocalDateTime.now().format(DATE_FORMAT);
             Path outputDir = new Path(BASE_DATA_DIR, type + "/" + timestamp);
             fileSystem.mkdirs(outputDir);
             
-            String filename = String.format("%s_%s.csv", 
+            String filename = String.format("%s_%s%s", 
                 identifier.replaceAll("[^a-zA-Z0-9-_]", "_"), 
-                timestamp);
+                timestamp, extension);
             Path outputPath = new Path(outputDir, filename);
             
             logger.info("Created HDFS output path: {}", outputPath);
@@ -59,49 +70,13 @@ public class HDFSService {
         }
     }
 
-    public void saveToHDFS(String hdfsPath, List<String> lines) throws IOException {
-        Path path = new Path(hdfsPath);
-        try (BufferedWriter writer = new BufferedWriter(
-                new OutputStreamWriter(fileSystem.create(path, true)))) {
-            for (String line : lines) {
-                writer.write(line);
-                writer.newLine();
-            }
-            logger.info("Successfully wrote data to HDFS: {}", hdfsPath);
-        } catch (IOException e) {
-            logger.error("Failed to write data to HDFS: {}", e.getMessage());
-            throw e;
-        }
-    }
-
-    public void savePreprocessedToHDFS(String originalFilePath, List<String> comments, List<String> sentiments) throws IOException {
-        logger.info("Starting to save preprocessed data to HDFS");
-        logger.info("Original file path: {}", originalFilePath);
-        logger.info("Number of comments: {}, Number of sentiments: {}", comments.size(), sentiments.size());
-        
-        String timestamp = LocalDateTime.now().format(DATE_FORMAT);
-        String originalFileName = new Path(originalFilePath).getName();
-        String outputFileName = String.format("preprocessed_%s_%s.csv", 
-            originalFileName.replaceAll("\\.csv$", ""),
-            timestamp);
-        
-        Path outputPath = new Path(PREPROCESSED_DIR, outputFileName);
-        logger.info("Generated output path: {}", outputPath);
-        
-        List<String> linesToWrite = new ArrayList<>();
-        linesToWrite.add("Preprocessed Comment,Sentiment");
-        for (int i = 0; i < comments.size(); i++) {
-            linesToWrite.add(String.format("%s,%s", 
-                comments.get(i).replace(",", "\\,").replace("\"", "\\\""),
-                sentiments.get(i)));
-        }
-        
-        logger.info("Prepared {} lines to write", linesToWrite.size());
+    // Streams a local file to HDFS without reading it into memory
+    public void copyToHDFS(java.nio.file.Path localFile, String hdfsPath) throws IOException {
         try {
-            saveToHDFS(outputPath.toString(), linesToWrite);
-            logger.info("Successfully saved preprocessed data to HDFS at: {}", outputPath);
+            fileSystem.copyFromLocalFile(false, true, new Path(localFile.toUri()), new Path(hdfsPath));
+            logger.info("Successfully copied {} to HDFS: {}", localFile, hdfsPath);
         } catch (IOException e) {
-            logger.error("Failed to save preprocessed data to HDFS: {}", e.getMessage(), e);
+            logger.error("Failed to copy {} to HDFS: {}", localFile, e.getMessage());
             throw e;
         }
     }
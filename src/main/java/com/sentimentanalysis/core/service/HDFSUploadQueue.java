@@ -0,0 +1,112 @@
+package com.sentimentanalysis.core.service;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copies finished local files to HDFS on a background thread, so fetches and analyses
+ * return as soon as their local output is written. Uploads run one at a time in the
+ * order they were queued. A failed upload is retried after a growing delay without
+ * holding up the uploads queued behind it; one that still fails stays local only.
+ */
+public class HDFSUploadQueue {
+    private static final Logger logger = LoggerFactory.getLogger(HDFSUploadQueue.class);
+
+    private final Supplier<HDFSService> hdfsService;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+    private final ScheduledThreadPoolExecutor executor;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public HDFSUploadQueue(Supplier<HDFSService> hdfsService, int maxAttempts, long retryDelayMillis) {
+        this.hdfsService = hdfsService;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryDelayMillis = Math.max(0, retryDelayMillis);
+        // The thread is only started with the first upload
+        this.executor = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "hdfs-upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues {@code localFile} for upload. The HDFS path is chosen when the upload first
+     * runs, since creating its directory already talks to HDFS. The returned future
+     * completes with that path, or exceptionally once every attempt has failed.
+     */
+    public CompletableFuture<String> submit(Path localFile, Function<HDFSService, String> hdfsPath) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        pending.incrementAndGet();
+        result.whenComplete((path, failure) -> pending.decrementAndGet());
+        try {
+            executor.execute(() -> attempt(localFile, hdfsPath, null, 1, result));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IllegalStateException("HDFS upload queue is closed", e));
+        }
+        return result;
+    }
+
+    private void attempt(Path localFile, Function<HDFSService, String> hdfsPath, String target, int attempt,
+                         CompletableFuture<String> result) {
+        long start = System.nanoTime();
+        String path = target;
+        try {
+            HDFSService service = hdfsService.get();
+            if (path == null) {
+                path = hdfsPath.apply(service);
+            }
+            service.copyToHDFS(localFile, path);
+            logger.info("Uploaded {} to HDFS in {} ms", localFile, (System.nanoTime() - start) / 1_000_000);
+            result.complete(path);
+        } catch (Exception e) {
+            if (attempt >= maxAttempts) {
+                logger.error("Giving up on HDFS upload of {} after {} attempts: {}", localFile, attempt, e.getMessage());
+                result.completeExceptionally(e);
+                return;
+            }
+            long delay = retryDelayMillis << (attempt - 1);
+            logger.warn("HDFS upload of {} failed (attempt {} of {}), retrying in {} ms: {}",
+                localFile, attempt, maxAttempts, delay, e.getMessage());
+            String retryPath = path;
+            try {
+                executor.schedule(() -> attempt(localFile, hdfsPath, retryPath, attempt + 1, result),
+                    delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException shutDown) {
+                logger.error("Giving up on HDFS upload of {} at shutdown: {}", localFile, e.getMessage());
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    // Uploads queued or waiting for a retry
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Stops taking uploads and waits up to {@code timeoutMillis} for queued ones to finish.
+     * A retry already waiting out its delay still runs, but gets no further retries.
+     */
+    public void close(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                logger.warn("Abandoning {} HDFS uploads still pending at shutdown", pending.get());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
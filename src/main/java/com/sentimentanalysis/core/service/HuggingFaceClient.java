@@ -0,0 +1,266 @@
+package com.sentimentanalysis.core.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Client for the HuggingFace inference API. One keep-alive {@link HttpClient} is shared
+ * by all requests, several inputs are sent per request using the list form of
+ * {@code inputs}, at most {@code maxInFlight} requests run concurrently, and responses
+ * are parsed with a streaming reader. The endpoint is configurable so the client can
+ * be pointed at a local stub server.
+ */
+public class HuggingFaceClient {
+    private static final Logger logger = LoggerFactory.getLogger(HuggingFaceClient.class);
+    public static final String DEFAULT_ENDPOINT =
+        "https://api-inference.huggingface.co/models/cardiffnlp/twitter-roberta-base-sentiment";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    private final HttpClient httpClient;
+    private final URI endpoint;
+    private final String apiKey;
+    private final int batchSize;
+    private final Semaphore inFlight;
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+    public HuggingFaceClient(URI endpoint, String apiKey, int batchSize, int maxInFlight) {
+        if (batchSize <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Batch size and in-flight limit must be positive");
+        }
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+        this.endpoint = endpoint;
+        this.apiKey = apiKey;
+        this.batchSize = batchSize;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    public List<String> analyze(List<String> texts) throws IOException {
+        try {
+            return analyzeAsync(texts).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for HuggingFace API", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("HuggingFace API request failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Splits the texts into requests of up to {@code batchSize} inputs and sends them
+     * asynchronously. Never blocks the caller: requests beyond the in-flight limit wait
+     * in a queue and are sent as earlier ones complete.
+     * The returned labels keep the input order.
+     */
+    public CompletableFuture<List<String>> analyzeAsync(List<String> texts) {
+        List<CompletableFuture<List<String>>> requests = new ArrayList<>();
+        for (int start = 0; start < texts.size(); start += batchSize) {
+            List<String> chunk = texts.subList(start, Math.min(start + batchSize, texts.size()));
+            requests.add(send(chunk));
+        }
+        return CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0]))
+            .thenApply(ignored -> {
+                List<String> results = new ArrayList<>(texts.size());
+                for (CompletableFuture<List<String>> request : requests) {
+                    results.addAll(request.join());
+                }
+                return results;
+            });
+    }
+
+    // Queues the chunk and sends it as soon as a request slot is free, without blocking the caller
+    private CompletableFuture<List<String>> send(List<String> chunk) {
+        CompletableFuture<List<String>> result = new CompletableFuture<>();
+        waiting.add(() -> dispatch(chunk, result));
+        drain();
+        return result;
+    }
+
+    private void drain() {
+        while (!waiting.isEmpty() && inFlight.tryAcquire()) {
+            Runnable next = waiting.poll();
+            if (next == null) {
+                // Another thread took the last waiting chunk
+                inFlight.release();
+            } else {
+                next.run();
+            }
+        }
+    }
+
+    // Runs holding a request slot, which is released however the request ends, including a synchronous throw
+    private void dispatch(List<String> chunk, CompletableFuture<List<String>> result) {
+        CompletableFuture<List<String>> response;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(requestBody(chunk), StandardCharsets.UTF_8))
+                .build();
+            response = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(httpResponse -> readLabels(httpResponse, chunk.size()));
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+
+        response.whenComplete((labels, error) -> {
+            inFlight.release();
+            if (error == null) {
+                result.complete(labels);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+                logger.warn("HuggingFace request for {} inputs failed: {}", chunk.size(), cause.getMessage());
+                result.completeExceptionally(cause);
+            }
+            drain();
+        });
+    }
+
+    private static List<String> readLabels(HttpResponse<InputStream> response, int inputs) {
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == 429) {
+                throw new IOException("HuggingFace API rate limit exceeded (HTTP 429)");
+            }
+            List<String> labels = parseResponse(body, response.statusCode());
+            if (labels.size() != inputs) {
+                throw new IOException("HuggingFace API returned " + labels.size()
+                    + " results for " + inputs + " inputs");
+            }
+            return labels;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String requestBody(List<String> texts) {
+        StringWriter body = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(body)) {
+            writer.beginObject().name("inputs").beginArray();
+            for (String text : texts) {
+                writer.value(text);
+            }
+            writer.endArray().endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return body.toString();
+    }
+
+    // Success: [[{label, score}, ...], ...] with one candidate list per input. Failure: {"error": "..."}
+    private static List<String> parseResponse(InputStream body, int statusCode) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+            throw new IOException("HuggingFace API error (HTTP " + statusCode + "): " + readError(reader));
+        }
+        if (statusCode != 200) {
+            throw new IOException("HuggingFace API returned HTTP " + statusCode);
+        }
+
+        List<String> labels = new ArrayList<>();
+        reader.beginArray();
+        if (reader.hasNext() && reader.peek() == JsonToken.BEGIN_OBJECT) {
+            // A single input may come back as a flat candidate list
+            labels.add(readBestLabel(reader));
+            reader.endArray();
+            return labels;
+        }
+        while (reader.hasNext()) {
+            reader.beginArray();
+            labels.add(readBestLabel(reader));
+            reader.endArray();
+        }
+        reader.endArray();
+        return labels;
+    }
+
+    private static String readError(JsonReader reader) throws IOException {
+        String error = "unknown error";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("error") && reader.peek() == JsonToken.STRING) {
+                error = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return error;
+    }
+
+    // Reads candidate objects up to the end of the enclosing array and returns the top label
+    private static String readBestLabel(JsonReader reader) throws IOException {
+        double maxScore = Double.NEGATIVE_INFINITY;
+        String best = "";
+        while (reader.hasNext()) {
+            String label = null;
+            double score = Double.NEGATIVE_INFINITY;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "label":
+                        label = reader.nextString();
+                        break;
+                    case "score":
+                        score = reader.nextDouble();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (label != null && score > maxScore) {
+                maxScore = score;
+                best = label;
+            }
+        }
+        return toSentiment(best);
+    }
+
+    // Convert RoBERTa model labels to human-readable format
+    private static String toSentiment(String label) {
+        switch (label) {
+            case "LABEL_0":
+                return "Negative";
+            case "LABEL_1":
+                return "Neutral";
+            case "LABEL_2":
+                return "Positive";
+            default:
+                return label;
+        }
+    }
+}
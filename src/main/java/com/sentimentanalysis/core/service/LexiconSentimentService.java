@@ -0,0 +1,264 @@
+package com.sentimentanalysis.core.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sentimentanalysis.core.model.SentimentResult;
+
+/**
+ * Rule-based sentiment from a valence lexicon, for very high comment volumes. Text is
+ * scanned once, character by character: each token is hashed as it is read and looked up
+ * in a primitive open-addressing table, so no per-token Strings are created. Negations
+ * flip nearby sentiment words, boosters scale the word that follows, and a contrast word
+ * such as "but" shifts weight to the rest of the comment. The summed valence is
+ * normalized to a compound score between -1 and 1.
+ *
+ * <p>The tables are built once and never modified, so one instance can be shared by any
+ * number of threads.
+ */
+public class LexiconSentimentService implements SentimentAnalyzer {
+    private static final String DEFAULT_LEXICON = "lexicon/sentiment-lexicon.txt";
+
+    private static final byte WORD = 1;
+    private static final byte NEGATION = 2;
+    private static final byte BOOSTER = 3;
+    private static final byte CONTRAST = 4;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final int NEGATION_SCOPE = 3;
+    private static final int BOOSTER_SCOPE = 2;
+    private static final double NEGATION_FACTOR = -0.74;
+    private static final double CONTRAST_BEFORE = 0.5;
+    private static final double CONTRAST_AFTER = 1.5;
+    private static final double EXCLAMATION_BOOST = 0.292;
+    private static final int MAX_EXCLAMATIONS = 4;
+    private static final double NORMALIZATION_ALPHA = 15.0;
+    private static final double NEUTRAL_BAND = 0.05;
+
+    private final long[] keys;
+    private final float[] values;
+    private final byte[] kinds;
+    private final int mask;
+
+    public LexiconSentimentService() {
+        try (InputStream input = getClass().getClassLoader().getResourceAsStream(DEFAULT_LEXICON)) {
+            if (input == null) {
+                throw new IOException("Lexicon resource not found: " + DEFAULT_LEXICON);
+            }
+            List<String> tokens = new ArrayList<>();
+            List<Byte> entryKinds = new ArrayList<>();
+            List<Float> entryValues = new ArrayList<>();
+            readLexicon(input, tokens, entryKinds, entryValues);
+
+            int capacity = Integer.highestOneBit(Math.max(16, tokens.size() * 4 - 1)) << 1;
+            keys = new long[capacity];
+            values = new float[capacity];
+            kinds = new byte[capacity];
+            mask = capacity - 1;
+            for (int i = 0; i < tokens.size(); i++) {
+                insert(hashToken(tokens.get(i)), entryKinds.get(i), entryValues.get(i));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load sentiment lexicon", e);
+        }
+    }
+
+    private static void readLexicon(InputStream input, List<String> tokens, List<Byte> kinds,
+                                    List<Float> values) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+");
+            if (parts.length != 3) {
+                throw new IOException("Malformed lexicon entry on line " + lineNumber + ": " + line);
+            }
+            tokens.add(parts[0]);
+            kinds.add(kindOf(parts[1], lineNumber));
+            values.add(Float.parseFloat(parts[2]));
+        }
+    }
+
+    private static byte kindOf(String type, int lineNumber) throws IOException {
+        switch (type) {
+            case "word":
+                return WORD;
+            case "negation":
+                return NEGATION;
+            case "booster":
+                return BOOSTER;
+            case "contrast":
+                return CONTRAST;
+            default:
+                throw new IOException("Unknown lexicon entry type on line " + lineNumber + ": " + type);
+        }
+    }
+
+    private void insert(long key, byte kind, float value) {
+        int index = (int) (key ^ (key >>> 32)) & mask;
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        kinds[index] = kind;
+        values[index] = value;
+    }
+
+    // Returns the table slot for the token hash, or -1 if the token is not in the lexicon
+    private int find(long key) {
+        int index = (int) (key ^ (key >>> 32)) & mask;
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static long hashToken(CharSequence token) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < token.length(); i++) {
+            hash = step(hash, lower(token.charAt(i)));
+        }
+        return finish(hash);
+    }
+
+    private static long step(long hash, char c) {
+        return (hash ^ c) * FNV_PRIME;
+    }
+
+    // Zero marks an empty slot, so it is never produced as a key
+    private static long finish(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static char lower(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c | 0x20) : c;
+        }
+        return c == '\u2019' ? '\'' : Character.toLowerCase(c);
+    }
+
+    private static boolean isTokenChar(char c) {
+        if (c < 128) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+        }
+        return Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * Returns the compound score of the text, from -1 (most negative) to 1 (most
+     * positive). Allocates nothing.
+     */
+    public double score(CharSequence text) {
+        if (text == null) {
+            return 0.0;
+        }
+        double sum = 0.0;
+        double weight = 1.0;
+        double boost = 1.0;
+        int tokenIndex = 0;
+        int negatedThrough = -1;
+        int boostedThrough = -1;
+        int exclamations = 0;
+
+        long hash = FNV_OFFSET;
+        int tokenLength = 0;
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (isTokenChar(c)) {
+                hash = step(hash, lower(c));
+                tokenLength++;
+                continue;
+            }
+            // An apostrophe between letters stays inside the token, as in "don't"
+            if ((c == '\'' || c == '\u2019') && tokenLength > 0 && i + 1 < length && isTokenChar(text.charAt(i + 1))) {
+                hash = step(hash, '\'');
+                tokenLength++;
+                continue;
+            }
+            if (c == '!' && exclamations < MAX_EXCLAMATIONS) {
+                exclamations++;
+            }
+            if (tokenLength == 0) {
+                continue;
+            }
+
+            int slot = find(finish(hash));
+            if (slot >= 0) {
+                switch (kinds[slot]) {
+                    case NEGATION:
+                        negatedThrough = tokenIndex + NEGATION_SCOPE;
+                        break;
+                    case BOOSTER:
+                        boost = tokenIndex <= boostedThrough ? boost * values[slot] : values[slot];
+                        boostedThrough = tokenIndex + BOOSTER_SCOPE;
+                        break;
+                    case CONTRAST:
+                        sum *= CONTRAST_BEFORE;
+                        weight = CONTRAST_AFTER;
+                        break;
+                    default:
+                        double valence = values[slot];
+                        if (tokenIndex <= boostedThrough) {
+                            valence *= boost;
+                            boostedThrough = -1;
+                        }
+                        if (tokenIndex <= negatedThrough) {
+                            valence *= NEGATION_FACTOR;
+                        }
+                        sum += valence * weight;
+                }
+            }
+            tokenIndex++;
+            hash = FNV_OFFSET;
+            tokenLength = 0;
+        }
+
+        if (sum > 0) {
+            sum += exclamations * EXCLAMATION_BOOST;
+        } else if (sum < 0) {
+            sum -= exclamations * EXCLAMATION_BOOST;
+        }
+        return sum / Math.sqrt(sum * sum + NORMALIZATION_ALPHA);
+    }
+
+    public static String labelFor(double score) {
+        if (score >= NEUTRAL_BAND) {
+            return "Positive";
+        }
+        if (score <= -NEUTRAL_BAND) {
+            return "Negative";
+        }
+        return "Neutral";
+    }
+
+    public SentimentResult analyze(String text) {
+        double score = score(text);
+        return new SentimentResult(text, score, labelFor(score), getName());
+    }
+
+    @Override
+    public String analyzeSentiment(String text) {
+        return labelFor(score(text));
+    }
+
+    @Override
+    public String getName() {
+        return "Lexicon (Rule-Based)";
+    }
+}
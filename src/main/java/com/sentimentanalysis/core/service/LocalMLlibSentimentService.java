@@ -0,0 +1,57 @@
+package com.sentimentanalysis.core.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sentimentanalysis.core.model.SentimentResult;
+import com.sentimentanalysis.util.TextNormalizer;
+
+/**
+ * Scores comments with the saved MLlib pipeline entirely inside the JVM, without
+ * starting a SparkSession. Produces the same labels as
+ * {@link SentimentAnalysisService#analyzeWithHDFSModel(String)}.
+ */
+public class LocalMLlibSentimentService implements SentimentAnalyzer {
+    private final LocalPipelineModel model;
+
+    // Uses the shared model from ModelRegistry, loaded on first analysis
+    public LocalMLlibSentimentService() {
+        this(null);
+    }
+
+    public LocalMLlibSentimentService(LocalPipelineModel model) {
+        this.model = model;
+    }
+
+    public LocalPipelineModel getModel() {
+        return model != null ? model : ModelRegistry.getInstance().getLocalModel();
+    }
+
+    @Override
+    public String analyzeSentiment(String text) {
+        double prediction = getModel().predict(TextNormalizer.normalize(text));
+        return prediction == 1.0 ? "Positive" : "Negative";
+    }
+
+    // Scores with the predicted label's probability, e.g. for confidence-gated escalation
+    public List<SentimentResult> scoreBatch(List<String> texts) {
+        LocalPipelineModel localModel = getModel();
+        List<SentimentResult> results = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            double[] prediction = localModel.predictWithConfidence(TextNormalizer.normalize(text));
+            results.add(new SentimentResult(text, prediction[1],
+                prediction[0] == 1.0 ? "Positive" : "Negative", getName()));
+        }
+        return results;
+    }
+
+    @Override
+    public String getModelVersion() {
+        return getName() + "@" + getModel().getVersion();
+    }
+
+    @Override
+    public String getName() {
+        return "MLlib Model (In-JVM)";
+    }
+}
@@ -0,0 +1,600 @@
+package com.sentimentanalysis.core.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.spark.unsafe.Platform;
+import org.apache.spark.unsafe.hash.Murmur3_x86_32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Pure-Java copy of a saved Spark ML {@code PipelineModel}. The stage metadata and
+ * parquet data written by {@code PipelineModel.save} are read directly through the
+ * Hadoop FileSystem, so scoring needs no SparkSession.
+ *
+ * Supported stages: Tokenizer, RegexTokenizer, StopWordsRemover, HashingTF,
+ * CountVectorizerModel, IDFModel and LogisticRegressionModel, chained linearly.
+ */
+public class LocalPipelineModel {
+    private static final Logger logger = LoggerFactory.getLogger(LocalPipelineModel.class);
+    private static final int HASHING_SEED = 42;
+
+    private final Tokenizer tokenizer;
+    private final List<TokenFilter> tokenFilters;
+    private final Vectorizer vectorizer;
+    private final double[] idf;
+    private final LogisticRegression classifier;
+    private final String version;
+
+    private LocalPipelineModel(Tokenizer tokenizer, List<TokenFilter> tokenFilters, Vectorizer vectorizer,
+                               double[] idf, LogisticRegression classifier, String version) {
+        this.tokenizer = tokenizer;
+        this.tokenFilters = tokenFilters;
+        this.vectorizer = vectorizer;
+        this.idf = idf;
+        this.classifier = classifier;
+        this.version = version;
+    }
+
+    public static LocalPipelineModel load(String modelPath) throws IOException {
+        Configuration conf = new Configuration();
+        FileSystem fs = FileSystem.get(URI.create(modelPath), conf);
+        Path root = new Path(modelPath);
+
+        JsonObject pipelineMetadata = readMetadata(fs, root);
+        String pipelineClass = pipelineMetadata.get("class").getAsString();
+        if (!pipelineClass.equals("org.apache.spark.ml.PipelineModel")) {
+            throw new IOException("Not a PipelineModel: " + pipelineClass);
+        }
+        JsonArray stageUids = pipelineMetadata.getAsJsonObject("paramMap").getAsJsonArray("stageUids");
+
+        Tokenizer tokenizer = null;
+        List<TokenFilter> tokenFilters = new ArrayList<>();
+        Vectorizer vectorizer = null;
+        double[] idf = null;
+        LogisticRegression classifier = null;
+
+        for (int i = 0; i < stageUids.size(); i++) {
+            Path stageDir = new Path(root, "stages/" + i + "_" + stageUids.get(i).getAsString());
+            JsonObject metadata = readMetadata(fs, stageDir);
+            String stageClass = metadata.get("class").getAsString();
+            switch (stageClass) {
+                case "org.apache.spark.ml.feature.Tokenizer":
+                    tokenizer = new WhitespaceTokenizer();
+                    break;
+                case "org.apache.spark.ml.feature.RegexTokenizer":
+                    tokenizer = new RegexTokenizer(
+                        getParam(metadata, "pattern").getAsString(),
+                        getParam(metadata, "gaps").getAsBoolean(),
+                        getParam(metadata, "minTokenLength").getAsInt(),
+                        getParam(metadata, "toLowercase").getAsBoolean());
+                    break;
+                case "org.apache.spark.ml.feature.StopWordsRemover":
+                    tokenFilters.add(new StopWordsRemover(
+                        getParam(metadata, "stopWords").getAsJsonArray(),
+                        getParam(metadata, "caseSensitive").getAsBoolean(),
+                        findParam(metadata, "locale")));
+                    break;
+                case "org.apache.spark.ml.feature.HashingTF":
+                    vectorizer = new HashingVectorizer(
+                        getParam(metadata, "numFeatures").getAsInt(),
+                        getParam(metadata, "binary").getAsBoolean(),
+                        majorVersion(metadata) >= 3);
+                    break;
+                case "org.apache.spark.ml.feature.CountVectorizerModel": {
+                    Group data = readData(fs, stageDir, conf);
+                    vectorizer = new VocabularyVectorizer(
+                        readStringList(data, "vocabulary"),
+                        getParam(metadata, "minTF").getAsDouble(),
+                        getParam(metadata, "binary").getAsBoolean());
+                    break;
+                }
+                case "org.apache.spark.ml.feature.IDFModel":
+                    idf = readVector(readData(fs, stageDir, conf).getGroup("idf", 0));
+                    break;
+                case "org.apache.spark.ml.classification.LogisticRegressionModel":
+                    classifier = LogisticRegression.fromData(readData(fs, stageDir, conf),
+                        getParam(metadata, "threshold").getAsDouble());
+                    break;
+                default:
+                    throw new IOException("Unsupported pipeline stage for local scoring: " + stageClass);
+            }
+        }
+
+        if (tokenizer == null || vectorizer == null || classifier == null) {
+            throw new IOException("Pipeline at " + modelPath + " is missing a tokenizer, vectorizer or classifier");
+        }
+        if (classifier.numFeatures != vectorizer.size()) {
+            throw new IOException("Feature size mismatch: vectorizer produces " + vectorizer.size()
+                + " features but the classifier expects " + classifier.numFeatures);
+        }
+
+        String version = versionOf(pipelineMetadata);
+        logger.info("Loaded local pipeline model {} with {} stages", version, stageUids.size());
+        return new LocalPipelineModel(tokenizer, tokenFilters, vectorizer, idf, classifier, version);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    // The version load() would report, read from the pipeline's metadata without loading any stage
+    public static String readVersion(String modelPath) throws IOException {
+        FileSystem fs = FileSystem.get(URI.create(modelPath), new Configuration());
+        return versionOf(readMetadata(fs, new Path(modelPath)));
+    }
+
+    private static String versionOf(JsonObject pipelineMetadata) {
+        return pipelineMetadata.get("uid").getAsString() + "@" + pipelineMetadata.get("timestamp").getAsLong();
+    }
+
+    // Returns the predicted label index (0 or 1 for binary models) for already normalized text
+    public double predict(String normalizedText) {
+        return classifier.predict(features(normalizedText));
+    }
+
+    // Returns the class probabilities for already normalized text
+    public double[] predictProbability(String normalizedText) {
+        return classifier.probability(features(normalizedText));
+    }
+
+    // Returns {label index, probability of that label}, extracting features only once
+    public double[] predictWithConfidence(String normalizedText) {
+        SparseFeatures features = features(normalizedText);
+        double label = classifier.predict(features);
+        return new double[]{label, classifier.probability(features)[(int) label]};
+    }
+
+    private SparseFeatures features(String normalizedText) {
+        String[] tokens = tokenizer.tokenize(normalizedText);
+        for (TokenFilter filter : tokenFilters) {
+            tokens = filter.apply(tokens);
+        }
+        SparseFeatures features = vectorizer.vectorize(tokens);
+        if (idf != null) {
+            for (int i = 0; i < features.count; i++) {
+                features.values[i] *= idf[features.indices[i]];
+            }
+        }
+        return features;
+    }
+
+    private static JsonObject readMetadata(FileSystem fs, Path dir) throws IOException {
+        Path metadataPath = new Path(dir, "metadata/part-00000");
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(fs.open(metadataPath), StandardCharsets.UTF_8))) {
+            return JsonParser.parseString(reader.readLine()).getAsJsonObject();
+        }
+    }
+
+    private static JsonElement getParam(JsonObject metadata, String name) throws IOException {
+        JsonElement value = findParam(metadata, name);
+        if (value == null) {
+            throw new IOException("Parameter " + name + " not found in metadata of " + metadata.get("class"));
+        }
+        return value;
+    }
+
+    private static JsonElement findParam(JsonObject metadata, String name) {
+        JsonObject paramMap = metadata.getAsJsonObject("paramMap");
+        if (paramMap != null && paramMap.has(name)) {
+            return paramMap.get(name);
+        }
+        JsonObject defaults = metadata.getAsJsonObject("defaultParamMap");
+        if (defaults != null && defaults.has(name)) {
+            return defaults.get(name);
+        }
+        return null;
+    }
+
+    private static int majorVersion(JsonObject metadata) {
+        String sparkVersion = metadata.get("sparkVersion").getAsString();
+        return Integer.parseInt(sparkVersion.substring(0, sparkVersion.indexOf('.')));
+    }
+
+    private static Group readData(FileSystem fs, Path stageDir, Configuration conf) throws IOException {
+        for (FileStatus status : fs.listStatus(new Path(stageDir, "data"))) {
+            if (!status.getPath().getName().endsWith(".parquet")) {
+                continue;
+            }
+            try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), status.getPath())
+                    .withConf(conf).build()) {
+                Group row = reader.read();
+                if (row != null) {
+                    return row;
+                }
+            }
+        }
+        throw new IOException("No model data found under " + stageDir);
+    }
+
+    // Spark writes arrays as a LIST group with a single repeated child; legacy files repeat the element directly
+    private static Group listElements(Group parent, String field) {
+        return parent.getFieldRepetitionCount(field) == 0 ? null : parent.getGroup(field, 0);
+    }
+
+    private static int listSize(Group list) {
+        return list == null ? 0 : list.getFieldRepetitionCount(0);
+    }
+
+    private static boolean isLegacyList(Group list) {
+        return list.getType().getType(0).isPrimitive();
+    }
+
+    private static int[] readIntList(Group parent, String field) {
+        Group list = listElements(parent, field);
+        int[] values = new int[listSize(list)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = isLegacyList(list) ? list.getInteger(0, i) : list.getGroup(0, i).getInteger(0, 0);
+        }
+        return values;
+    }
+
+    private static double[] readDoubleList(Group parent, String field) {
+        Group list = listElements(parent, field);
+        double[] values = new double[listSize(list)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = isLegacyList(list) ? list.getDouble(0, i) : list.getGroup(0, i).getDouble(0, 0);
+        }
+        return values;
+    }
+
+    private static String[] readStringList(Group parent, String field) {
+        Group list = listElements(parent, field);
+        String[] values = new String[listSize(list)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = isLegacyList(list) ? list.getString(0, i) : list.getGroup(0, i).getString(0, 0);
+        }
+        return values;
+    }
+
+    // VectorUDT layout: type (0 = sparse, 1 = dense), size, indices, values
+    private static double[] readVector(Group vector) {
+        double[] values = readDoubleList(vector, "values");
+        if (vector.getInteger("type", 0) == 1) {
+            return values;
+        }
+        double[] dense = new double[vector.getInteger("size", 0)];
+        int[] indices = readIntList(vector, "indices");
+        for (int i = 0; i < indices.length; i++) {
+            dense[indices[i]] = values[i];
+        }
+        return dense;
+    }
+
+    // MatrixUDT layout: type (0 = sparse, 1 = dense), numRows, numCols, colPtrs, rowIndices, values, isTransposed.
+    // Returned row-major.
+    private static double[] readMatrix(Group matrix, int numRows, int numCols) {
+        double[] values = readDoubleList(matrix, "values");
+        boolean transposed = matrix.getBoolean("isTransposed", 0);
+        double[] dense = new double[numRows * numCols];
+        if (matrix.getInteger("type", 0) == 1) {
+            for (int r = 0; r < numRows; r++) {
+                for (int c = 0; c < numCols; c++) {
+                    dense[r * numCols + c] = transposed ? values[r * numCols + c] : values[c * numRows + r];
+                }
+            }
+            return dense;
+        }
+        // Compressed sparse column storage, or compressed sparse row when transposed
+        int[] pointers = readIntList(matrix, "colPtrs");
+        int[] inner = readIntList(matrix, "rowIndices");
+        for (int outer = 0; outer < pointers.length - 1; outer++) {
+            for (int k = pointers[outer]; k < pointers[outer + 1]; k++) {
+                int r = transposed ? outer : inner[k];
+                int c = transposed ? inner[k] : outer;
+                dense[r * numCols + c] = values[k];
+            }
+        }
+        return dense;
+    }
+
+    // Sparse feature vector backed by primitive arrays, indices sorted ascending
+    private static final class SparseFeatures {
+        final int[] indices;
+        final double[] values;
+        final int count;
+
+        SparseFeatures(int[] indices, double[] values, int count) {
+            this.indices = indices;
+            this.values = values;
+            this.count = count;
+        }
+
+        // Collapses unsorted, possibly repeated term indices into sorted (index, count) pairs
+        static SparseFeatures fromTermIndices(int[] termIndices, int length, boolean binary) {
+            Arrays.sort(termIndices, 0, length);
+            int[] indices = new int[length];
+            double[] values = new double[length];
+            int count = 0;
+            for (int i = 0; i < length; i++) {
+                if (count > 0 && indices[count - 1] == termIndices[i]) {
+                    if (!binary) {
+                        values[count - 1] += 1.0;
+                    }
+                } else {
+                    indices[count] = termIndices[i];
+                    values[count] = 1.0;
+                    count++;
+                }
+            }
+            return new SparseFeatures(indices, values, count);
+        }
+    }
+
+    private interface Tokenizer {
+        String[] tokenize(String text);
+    }
+
+    private interface TokenFilter {
+        String[] apply(String[] tokens);
+    }
+
+    private interface Vectorizer {
+        SparseFeatures vectorize(String[] tokens);
+        int size();
+    }
+
+    // org.apache.spark.ml.feature.Tokenizer: lowercase, then split on single whitespace characters
+    private static final class WhitespaceTokenizer implements Tokenizer {
+        private static final Pattern WHITESPACE = Pattern.compile("\\s");
+
+        @Override
+        public String[] tokenize(String text) {
+            return WHITESPACE.split(text.toLowerCase());
+        }
+    }
+
+    private static final class RegexTokenizer implements Tokenizer {
+        private final Pattern pattern;
+        private final boolean gaps;
+        private final int minTokenLength;
+        private final boolean toLowercase;
+
+        RegexTokenizer(String pattern, boolean gaps, int minTokenLength, boolean toLowercase) {
+            this.pattern = Pattern.compile(pattern);
+            this.gaps = gaps;
+            this.minTokenLength = minTokenLength;
+            this.toLowercase = toLowercase;
+        }
+
+        @Override
+        public String[] tokenize(String input) {
+            String text = toLowercase ? input.toLowerCase() : input;
+            List<String> tokens = new ArrayList<>();
+            if (gaps) {
+                for (String token : pattern.split(text)) {
+                    if (token.length() >= minTokenLength) {
+                        tokens.add(token);
+                    }
+                }
+            } else {
+                Matcher matcher = pattern.matcher(text);
+                while (matcher.find()) {
+                    if (matcher.end() - matcher.start() >= minTokenLength) {
+                        tokens.add(matcher.group());
+                    }
+                }
+            }
+            return tokens.toArray(new String[0]);
+        }
+    }
+
+    private static final class StopWordsRemover implements TokenFilter {
+        private final Set<String> stopWords = new HashSet<>();
+        private final boolean caseSensitive;
+        private final Locale locale;
+
+        StopWordsRemover(JsonArray words, boolean caseSensitive, JsonElement locale) {
+            this.caseSensitive = caseSensitive;
+            this.locale = parseLocale(locale == null ? "en_US" : locale.getAsString());
+            for (JsonElement word : words) {
+                stopWords.add(caseSensitive ? word.getAsString() : word.getAsString().toLowerCase(this.locale));
+            }
+        }
+
+        private static Locale parseLocale(String value) {
+            String[] parts = value.split("_");
+            return parts.length > 1 ? new Locale(parts[0], parts[1]) : new Locale(parts[0]);
+        }
+
+        @Override
+        public String[] apply(String[] tokens) {
+            int kept = 0;
+            String[] output = new String[tokens.length];
+            for (String token : tokens) {
+                String key = caseSensitive || token == null ? token : token.toLowerCase(locale);
+                if (!stopWords.contains(key)) {
+                    output[kept++] = token;
+                }
+            }
+            return kept == output.length ? output : Arrays.copyOf(output, kept);
+        }
+    }
+
+    // org.apache.spark.ml.feature.HashingTF: murmur3 of the UTF-8 bytes, seed 42, non-negative modulo numFeatures
+    private static final class HashingVectorizer implements Vectorizer {
+        private final int numFeatures;
+        private final boolean binary;
+        // Models saved by Spark 3+ use the corrected murmur3 tail handling
+        private final boolean fixedHash;
+
+        HashingVectorizer(int numFeatures, boolean binary, boolean fixedHash) {
+            this.numFeatures = numFeatures;
+            this.binary = binary;
+            this.fixedHash = fixedHash;
+        }
+
+        @Override
+        public SparseFeatures vectorize(String[] tokens) {
+            int[] termIndices = new int[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+                byte[] bytes = tokens[i].getBytes(StandardCharsets.UTF_8);
+                int hash = fixedHash
+                    ? Murmur3_x86_32.hashUnsafeBytes2(bytes, Platform.BYTE_ARRAY_OFFSET, bytes.length, HASHING_SEED)
+                    : Murmur3_x86_32.hashUnsafeBytes(bytes, Platform.BYTE_ARRAY_OFFSET, bytes.length, HASHING_SEED);
+                int mod = hash % numFeatures;
+                termIndices[i] = mod < 0 ? mod + numFeatures : mod;
+            }
+            return SparseFeatures.fromTermIndices(termIndices, termIndices.length, binary);
+        }
+
+        @Override
+        public int size() {
+            return numFeatures;
+        }
+    }
+
+    private static final class VocabularyVectorizer implements Vectorizer {
+        private final Map<String, Integer> vocabulary;
+        private final double minTF;
+        private final boolean binary;
+
+        VocabularyVectorizer(String[] vocabulary, double minTF, boolean binary) {
+            this.vocabulary = new HashMap<>(vocabulary.length * 2);
+            for (int i = 0; i < vocabulary.length; i++) {
+                this.vocabulary.put(vocabulary[i], i);
+            }
+            this.minTF = minTF;
+            this.binary = binary;
+        }
+
+        @Override
+        public SparseFeatures vectorize(String[] tokens) {
+            int[] termIndices = new int[tokens.length];
+            int length = 0;
+            for (String token : tokens) {
+                Integer index = vocabulary.get(token);
+                if (index != null) {
+                    termIndices[length++] = index;
+                }
+            }
+            SparseFeatures counts = SparseFeatures.fromTermIndices(termIndices, length, false);
+            double effectiveMinTF = minTF >= 1.0 ? minTF : tokens.length * minTF;
+            int kept = 0;
+            for (int i = 0; i < counts.count; i++) {
+                if (counts.values[i] >= effectiveMinTF) {
+                    counts.indices[kept] = counts.indices[i];
+                    counts.values[kept] = binary ? 1.0 : counts.values[i];
+                    kept++;
+                }
+            }
+            return new SparseFeatures(counts.indices, counts.values, kept);
+        }
+
+        @Override
+        public int size() {
+            return vocabulary.size();
+        }
+    }
+
+    private static final class LogisticRegression {
+        private final int numClasses;
+        private final int numFeatures;
+        private final double[] coefficients; // row-major, one row per class (a single row for binomial models)
+        private final double[] intercepts;
+        private final boolean multinomial;
+        private final double threshold;
+
+        private LogisticRegression(int numClasses, int numFeatures, double[] coefficients, double[] intercepts,
+                                   boolean multinomial, double threshold) {
+            this.numClasses = numClasses;
+            this.numFeatures = numFeatures;
+            this.coefficients = coefficients;
+            this.intercepts = intercepts;
+            this.multinomial = multinomial;
+            this.threshold = threshold;
+        }
+
+        static LogisticRegression fromData(Group data, double threshold) throws IOException {
+            if (data.getType().containsField("coefficients")) {
+                throw new IOException("LogisticRegressionModel saved before Spark 2.1 is not supported");
+            }
+            int numClasses = data.getInteger("numClasses", 0);
+            int numFeatures = data.getInteger("numFeatures", 0);
+            boolean multinomial = data.getBoolean("isMultinomial", 0);
+            int rows = multinomial ? numClasses : 1;
+            double[] coefficients = readMatrix(data.getGroup("coefficientMatrix", 0), rows, numFeatures);
+            double[] intercepts = readVector(data.getGroup("interceptVector", 0));
+            return new LogisticRegression(numClasses, numFeatures, coefficients, intercepts, multinomial, threshold);
+        }
+
+        private double[] margins(SparseFeatures features) {
+            int rows = intercepts.length;
+            double[] margins = new double[rows];
+            for (int r = 0; r < rows; r++) {
+                double margin = intercepts[r];
+                int offset = r * numFeatures;
+                for (int i = 0; i < features.count; i++) {
+                    margin += coefficients[offset + features.indices[i]] * features.values[i];
+                }
+                margins[r] = margin;
+            }
+            return margins;
+        }
+
+        double predict(SparseFeatures features) {
+            double[] margins = margins(features);
+            if (!multinomial) {
+                if (threshold == 0.0) return 1.0;
+                if (threshold == 1.0) return 0.0;
+                return margins[0] > Math.log(threshold / (1.0 - threshold)) ? 1.0 : 0.0;
+            }
+            int best = 0;
+            for (int k = 1; k < margins.length; k++) {
+                if (margins[k] > margins[best]) {
+                    best = k;
+                }
+            }
+            return best;
+        }
+
+        double[] probability(SparseFeatures features) {
+            double[] margins = margins(features);
+            if (!multinomial) {
+                double positive = 1.0 / (1.0 + Math.exp(-margins[0]));
+                return new double[]{1.0 - positive, positive};
+            }
+            double max = Double.NEGATIVE_INFINITY;
+            for (double margin : margins) {
+                max = Math.max(max, margin);
+            }
+            double sum = 0.0;
+            double[] probabilities = new double[numClasses];
+            for (int k = 0; k < numClasses; k++) {
+                probabilities[k] = Math.exp(margins[k] - max);
+                sum += probabilities[k];
+            }
+            for (int k = 0; k < numClasses; k++) {
+                probabilities[k] /= sum;
+            }
+            return probabilities;
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package com.sentimentanalysis.core.service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.spark.ml.PipelineModel;
+import org.apache.spark.sql.SparkSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sentimentanalysis.config.AppConfig;
+import com.sentimentanalysis.util.PythonFetchWorker;
+
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+/**
+ * Process-wide holder for the heavyweight sentiment backends. Every view and service
+ * gets CoreNLP, Spark, the MLlib models and the HDFS connection from here, so each one
+ * is loaded at most once and only when first needed.
+ */
+public final class ModelRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(ModelRegistry.class);
+    private static final ModelRegistry INSTANCE = new ModelRegistry();
+
+    public static final String STANFORD_CORENLP = "Stanford CoreNLP";
+    public static final String SPARK_SESSION = "Spark Session";
+    public static final String HDFS_MODEL = "HDFS Pipeline Model";
+    public static final String LOCAL_MODEL = "In-JVM Pipeline Model";
+    public static final String MODEL_VERSION = "Pipeline Model Version";
+    public static final String HDFS_CONNECTION = "HDFS Connection";
+    public static final String SENTIMENT_STORE = "Sentiment Result Store";
+    public static final String FETCH_WORKER = "Python Fetch Worker";
+    public static final String REDDIT_API_CLIENT = "Reddit API Client";
+
+    private final Map<String, LazyBackend<?>> backends = new LinkedHashMap<>();
+
+    private final LazyBackend<StanfordCoreNLP> stanfordCoreNLP = register(STANFORD_CORENLP, () -> {
+        Properties props = new Properties();
+        props.setProperty("annotators", "tokenize, ssplit, parse, sentiment");
+        return new StanfordCoreNLP(props);
+    });
+
+    private final LazyBackend<SparkSession> sparkSession = register(SPARK_SESSION, () -> {
+        SparkSession spark = SparkSession.builder()
+            .appName("SentimentAnalysis")
+            .master("local[*]")
+            .config("spark.driver.memory", "2g")
+            .config("spark.executor.memory", "2g")
+            .getOrCreate();
+        SentimentAnalysisService.registerUdfs(spark);
+        return spark;
+    });
+
+    private final LazyBackend<PipelineModel> hdfsModel = register(HDFS_MODEL, () -> {
+        getSparkSession();
+        return PipelineModel.load(SentimentAnalysisService.MODEL_PATH);
+    });
+
+    private final LazyBackend<LocalPipelineModel> localModel = register(LOCAL_MODEL, () -> {
+        try {
+            return LocalPipelineModel.load(SentimentAnalysisService.MODEL_PATH);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load pipeline model from " + SentimentAnalysisService.MODEL_PATH, e);
+        }
+    });
+
+    // Only the metadata is read, unless the in-JVM model is already loaded
+    private final LazyBackend<String> modelVersion = register(MODEL_VERSION, () -> {
+        LocalPipelineModel loaded = localModel.getIfLoaded();
+        if (loaded != null) {
+            return loaded.getVersion();
+        }
+        try {
+            return LocalPipelineModel.readVersion(SentimentAnalysisService.MODEL_PATH);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read pipeline model version from " + SentimentAnalysisService.MODEL_PATH, e);
+        }
+    });
+
+    private final LazyBackend<HDFSService> hdfsService = register(HDFS_CONNECTION, HDFSService::new);
+
+    private final LazyBackend<PersistentSentimentStore> sentimentStore = register(SENTIMENT_STORE, () -> {
+        String path = AppConfig.getSentimentStorePath();
+        try {
+            return PersistentSentimentStore.open(Paths.get(path));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open sentiment store " + path, e);
+        }
+    });
+
+    // The process itself starts on first fetch or warm-up, and again after a crash
+    private final LazyBackend<PythonFetchWorker> fetchWorker = register(FETCH_WORKER, () ->
+        new PythonFetchWorker(RedditService.PYTHON_SCRIPTS_PATH + "/fetch_worker.py",
+            Arrays.asList("--backend", AppConfig.getFetchWorkerBackend())));
+
+    private final LazyBackend<RedditApiClient> redditApiClient = register(REDDIT_API_CLIENT, () ->
+        new RedditApiClient(AppConfig.getRedditApiUrl(), AppConfig.getRedditAuthUrl(), AppConfig.getRedditClientId(),
+            AppConfig.getRedditClientSecret(), AppConfig.getRedditUserAgent(), AppConfig.getRedditMaxInFlight()));
+
+    // Uploads run on their own thread, and open the HDFS connection on the first one
+    private final HDFSUploadQueue hdfsUploadQueue = new HDFSUploadQueue(this::getHDFSService,
+        AppConfig.getHDFSUploadAttempts(), AppConfig.getHDFSUploadRetryDelayMillis());
+
+    private final CoreNLPBatchAnnotator coreNLPAnnotator =
+        new CoreNLPBatchAnnotator(this::getStanfordCoreNLP, AppConfig.getCoreNLPThreads());
+    private final CoreNLPSentenceScorer coreNLPSentenceScorer = new CoreNLPSentenceScorer(
+        this::getStanfordCoreNLP, new SentimentCache(AppConfig.getCoreNLPSentenceCacheSize()), coreNLPAnnotator);
+
+    // Analyzer facades are cheap; the models behind them are pulled from this registry on first use
+    private final SentimentAnalysisService sentimentAnalysisService = new SentimentAnalysisService();
+    private final StanfordNLPSentimentService stanfordNLPSentimentService = new StanfordNLPSentimentService();
+    private final LocalMLlibSentimentService localMLlibSentimentService = new LocalMLlibSentimentService();
+    private final LexiconSentimentService lexiconSentimentService = new LexiconSentimentService();
+    private final CascadeSentimentAnalyzer cascadeSentimentAnalyzer = new CascadeSentimentAnalyzer(
+        localMLlibSentimentService, sentimentAnalysisService, escalationAnalyzer(), AppConfig.getCascadeConfidenceThreshold());
+
+    // One result cache and one on-disk store shared by all backends; entries are keyed by backend and text
+    private final SentimentCache sentimentCache = new SentimentCache(AppConfig.getSentimentCacheSize());
+    private final SentimentAnalyzer cachedSentimentAnalysisService =
+        new CachingSentimentAnalyzer(sentimentAnalysisService, sentimentCache, this::getSentimentStore);
+    private final SentimentAnalyzer cachedStanfordNLPSentimentService =
+        new CachingSentimentAnalyzer(stanfordNLPSentimentService, sentimentCache, this::getSentimentStore);
+    private final SentimentAnalyzer cachedLocalMLlibSentimentService =
+        new CachingSentimentAnalyzer(localMLlibSentimentService, sentimentCache, this::getSentimentStore);
+    private final SentimentAnalyzer cachedCascadeSentimentAnalyzer =
+        new CachingSentimentAnalyzer(cascadeSentimentAnalyzer, sentimentCache, this::getSentimentStore);
+
+    private ModelRegistry() {
+    }
+
+    public static ModelRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    private <T> LazyBackend<T> register(String name, Supplier<T> loader) {
+        LazyBackend<T> backend = new LazyBackend<>(name, loader);
+        backends.put(name, backend);
+        return backend;
+    }
+
+    public StanfordCoreNLP getStanfordCoreNLP() {
+        return stanfordCoreNLP.get();
+    }
+
+    public SparkSession getSparkSession() {
+        return sparkSession.get();
+    }
+
+    public PipelineModel getHDFSModel() {
+        return hdfsModel.get();
+    }
+
+    public LocalPipelineModel getLocalModel() {
+        return localModel.get();
+    }
+
+    // Version of the saved pipeline model, as reported by LocalPipelineModel
+    public String getModelVersion() {
+        return modelVersion.get();
+    }
+
+    // Parallel annotator over the shared CoreNLP pipeline
+    public CoreNLPBatchAnnotator getCoreNLPAnnotator() {
+        return coreNLPAnnotator;
+    }
+
+    // Sentence-level CoreNLP scoring with cached parse and sentiment results
+    public CoreNLPSentenceScorer getCoreNLPSentenceScorer() {
+        return coreNLPSentenceScorer;
+    }
+
+    public HDFSService getHDFSService() {
+        return hdfsService.get();
+    }
+
+    public HDFSUploadQueue getHDFSUploadQueue() {
+        return hdfsUploadQueue;
+    }
+
+    public PythonFetchWorker getFetchWorker() {
+        return fetchWorker.get();
+    }
+
+    public RedditApiClient getRedditApiClient() {
+        return redditApiClient.get();
+    }
+
+    public SentimentAnalysisService getSentimentAnalysisService() {
+        return sentimentAnalysisService;
+    }
+
+    public StanfordNLPSentimentService getStanfordNLPSentimentService() {
+        return stanfordNLPSentimentService;
+    }
+
+    public LocalMLlibSentimentService getLocalMLlibSentimentService() {
+        return localMLlibSentimentService;
+    }
+
+    // Null when the store is disabled or could not be opened; analysis then runs without it
+    public PersistentSentimentStore getSentimentStore() {
+        if (!AppConfig.isSentimentStoreEnabled()) {
+            return null;
+        }
+        try {
+            return sentimentStore.get();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Health of each backend in the default analyzer's fallback chain
+    public List<CircuitBreaker> getCircuitBreakers() {
+        return sentimentAnalysisService.getCircuitBreakers();
+    }
+
+    public SentimentCache getSentimentCache() {
+        return sentimentCache;
+    }
+
+    // Cached analyzer used when no model has been selected
+    public SentimentAnalyzer getDefaultAnalyzer() {
+        return cachedSentimentAnalysisService;
+    }
+
+    public LexiconSentimentService getLexiconSentimentService() {
+        return lexiconSentimentService;
+    }
+
+    // The analyzers offered in the model selectors, in display order
+    public List<SentimentAnalyzer> getSelectableAnalyzers() {
+        return Collections.unmodifiableList(Arrays.asList(
+            cachedSentimentAnalysisService,
+            cachedStanfordNLPSentimentService,
+            cachedLocalMLlibSentimentService,
+            cachedCascadeSentimentAnalyzer,
+            // Scoring is cheaper than a cache lookup, so the lexicon backend is offered uncached
+            lexiconSentimentService
+        ));
+    }
+
+    // The accurate backend the cascade sends low-confidence comments to, chosen by cascade_escalation
+    private SentimentAnalyzer escalationAnalyzer() {
+        if ("huggingface".equalsIgnoreCase(AppConfig.getCascadeEscalation())) {
+            return new SentimentAnalyzer() {
+                @Override
+                public String analyzeSentiment(String text) {
+                    return analyzeSentimentBatch(Collections.singletonList(text)).get(0);
+                }
+
+                @Override
+                public List<String> analyzeSentimentBatch(List<String> texts) {
+                    try {
+                        return sentimentAnalysisService.analyzeWithHuggingFaceAPIBatch(texts);
+                    } catch (IOException e) {
+                        throw new RuntimeException("HuggingFace API failed: " + e.getMessage(), e);
+                    }
+                }
+
+                @Override
+                public String getName() {
+                    return "HuggingFace API";
+                }
+            };
+        }
+        return new SentimentAnalyzer() {
+            @Override
+            public String analyzeSentiment(String text) {
+                return sentimentAnalysisService.analyzeWithStanfordNLP(text);
+            }
+
+            @Override
+            public List<String> analyzeSentimentBatch(List<String> texts) {
+                return sentimentAnalysisService.analyzeWithStanfordNLPBatch(texts);
+            }
+
+            @Override
+            public String getName() {
+                return "Stanford CoreNLP";
+            }
+        };
+    }
+
+    public List<BackendInfo> getBackendInfo() {
+        List<BackendInfo> info = new ArrayList<>();
+        for (LazyBackend<?> backend : backends.values()) {
+            info.add(backend.info());
+        }
+        return info;
+    }
+
+    // Null for a name that is not one of the registry's backends
+    public BackendInfo getBackendInfo(String name) {
+        LazyBackend<?> backend = backends.get(name);
+        return backend == null ? null : backend.info();
+    }
+
+    public void logSummary() {
+        for (BackendInfo info : getBackendInfo()) {
+            logger.info("Backend {}", info);
+        }
+        sentimentCache.logStats();
+        for (CircuitBreaker breaker : getCircuitBreakers()) {
+            logger.info("Circuit {}", breaker);
+        }
+    }
+
+    // Reports cache effectiveness for the analysis run that just finished
+    public void logRunStats() {
+        sentimentCache.logStats();
+        coreNLPSentenceScorer.logRunStats();
+        cascadeSentimentAnalyzer.logRunStats();
+    }
+
+    // Flushes and releases resources that outlive a single analysis
+    public void close() {
+        hdfsUploadQueue.close(AppConfig.getHDFSUploadShutdownWaitMillis());
+        PersistentSentimentStore store = sentimentStore.getIfLoaded();
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close sentiment store: {}", e.getMessage());
+            }
+        }
+        PythonFetchWorker worker = fetchWorker.getIfLoaded();
+        if (worker != null) {
+            worker.close();
+        }
+    }
+
+    public enum BackendState {
+        NOT_LOADED, LOADING, LOADED, FAILED
+    }
+
+    public static final class BackendInfo {
+        private final String name;
+        private final BackendState state;
+        private final long loadMillis;
+        private final long heapBytes;
+        private final boolean heapShared;
+        private final String failure;
+
+        BackendInfo(String name, BackendState state, long loadMillis, long heapBytes, boolean heapShared, String failure) {
+            this.name = name;
+            this.state = state;
+            this.loadMillis = loadMillis;
+            this.heapBytes = heapBytes;
+            this.heapShared = heapShared;
+            this.failure = failure;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public BackendState getState() {
+            return state;
+        }
+
+        public long getLoadMillis() {
+            return loadMillis;
+        }
+
+        // Retained heap growth across the load, measured after a full GC on either side
+        public long getHeapBytes() {
+            return heapBytes;
+        }
+
+        // True when other loads ran at the same time, so getHeapBytes() includes some of theirs
+        public boolean isHeapShared() {
+            return heapShared;
+        }
+
+        public String getFailure() {
+            return failure;
+        }
+
+        // "~120 MB heap", marked as shared when loads overlapped
+        public String describeHeap() {
+            return String.format("~%d MB heap%s", heapBytes / (1024 * 1024), heapShared ? " (shared with overlapping loads)" : "");
+        }
+
+        @Override
+        public String toString() {
+            switch (state) {
+                case LOADED:
+                    return String.format("%s: loaded in %d ms, %s", name, loadMillis, describeHeap());
+                case FAILED:
+                    return String.format("%s: failed after %d ms (%s)", name, loadMillis, failure);
+                default:
+                    return String.format("%s: %s", name, state.name().toLowerCase().replace('_', ' '));
+            }
+        }
+    }
+
+    // Loads its value once on first access. A failed load is rethrown until a backoff passes,
+    // doubling with each failure in a row, and then retried, so an outage does not last until restart.
+    // Each load records the heap it retained; loads that overlap are flagged, as their growth cannot be told apart.
+    private static final class LazyBackend<T> {
+        private static final long MIN_RETRY_MILLIS = 1_000;
+        private static final long MAX_RETRY_MILLIS = 30_000;
+        private static final AtomicInteger LOADS_RUNNING = new AtomicInteger();
+        private static final AtomicLong LOADS_STARTED = new AtomicLong();
+
+        private final String name;
+        private final Supplier<T> loader;
+        private volatile T value;
+        private volatile BackendState state = BackendState.NOT_LOADED;
+        private volatile RuntimeException failure;
+        private volatile long loadMillis;
+        private volatile long heapBytes;
+        private volatile boolean heapShared;
+        private long retryDelayMillis = MIN_RETRY_MILLIS;
+        private long retryAt;
+
+        LazyBackend(String name, Supplier<T> loader) {
+            this.name = name;
+            this.loader = loader;
+        }
+
+        T get() {
+            T current = value;
+            if (current != null) {
+                return current;
+            }
+            synchronized (this) {
+                if (value != null) {
+                    return value;
+                }
+                if (failure != null && System.nanoTime() - retryAt < 0) {
+                    throw failure;
+                }
+                state = BackendState.LOADING;
+                logger.info("Loading backend: {}", name);
+                // A nested load, such as the Spark session under the HDFS model, also counts as overlapping
+                boolean overlapped = LOADS_RUNNING.getAndIncrement() > 0;
+                long started = LOADS_STARTED.incrementAndGet();
+                long heapBefore = usedHeap();
+                long start = System.nanoTime();
+                try {
+                    value = loader.get();
+                    loadMillis = (System.nanoTime() - start) / 1_000_000;
+                    failure = null;
+                    retryDelayMillis = MIN_RETRY_MILLIS;
+                    LOADS_RUNNING.decrementAndGet();
+                    heapBytes = Math.max(0, usedHeap() - heapBefore);
+                    heapShared = overlapped || LOADS_STARTED.get() != started;
+                    state = BackendState.LOADED;
+                    logger.info("Loaded backend {} in {} ms, {}", name, loadMillis, info().describeHeap());
+                    return value;
+                } catch (RuntimeException e) {
+                    LOADS_RUNNING.decrementAndGet();
+                    loadMillis = (System.nanoTime() - start) / 1_000_000;
+                    failure = e;
+                    retryAt = System.nanoTime() + retryDelayMillis * 1_000_000;
+                    state = BackendState.FAILED;
+                    logger.error("Failed to load backend {}, retrying after {} ms: {}", name, retryDelayMillis, e.getMessage());
+                    retryDelayMillis = Math.min(retryDelayMillis * 2, MAX_RETRY_MILLIS);
+                    throw e;
+                }
+            }
+        }
+
+        T getIfLoaded() {
+            return value;
+        }
+
+        BackendInfo info() {
+            RuntimeException lastFailure = failure;
+            return new BackendInfo(name, state, loadMillis, heapBytes, heapShared,
+                lastFailure == null ? null : lastFailure.getMessage());
+        }
+
+        private static long usedHeap() {
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+}
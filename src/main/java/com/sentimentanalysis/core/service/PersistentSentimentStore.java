@@ -0,0 +1,368 @@
+package com.sentimentanalysis.core.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sentimentanalysis.util.TextHash;
+
+/**
+ * On-disk sentiment results shared by all backends, kept in a memory-mapped
+ * open-addressing hash table so results survive restarts. Opening only maps the file and
+ * checks its header; nothing is read until it is looked up.
+ *
+ * <p>Each slot holds the content key (backend plus normalized text hash), the model
+ * version that produced the result, the label and an optional score. The header records
+ * the current model version of every backend. A lookup made under another version
+ * misses, and the stale slots are dropped on the next compaction. Lookups run
+ * concurrently under a read lock; writes, growth and compaction take the write lock.
+ */
+public class PersistentSentimentStore implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(PersistentSentimentStore.class);
+
+    private static final int MAGIC = 0x534e5453; // "SNTS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4096;
+    private static final int SLOT_BYTES = 24;
+    private static final int MIN_CAPACITY = 1 << 14;
+    private static final double MAX_LOAD = 0.7;
+    private static final int MAX_BACKENDS = 64;
+
+    // Header layout
+    private static final int MAGIC_OFFSET = 0;
+    private static final int FORMAT_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SIZE_OFFSET = 12;
+    private static final int BACKEND_COUNT_OFFSET = 16;
+    private static final int FLAGS_OFFSET = 20;
+    private static final int BACKENDS_OFFSET = 64;
+    private static final int BACKEND_ENTRY_BYTES = 16;
+
+    private static final int FLAG_REBUILDING = 1;
+    private static final int FLAG_STALE = 2;
+
+    // Slot layout: key (8), version (8), score (4), label (1), backend (1), state (1), padding (1)
+    private static final int KEY_OFFSET = 0;
+    private static final int VERSION_OFFSET = 8;
+    private static final int SCORE_OFFSET = 16;
+    private static final int LABEL_OFFSET = 20;
+    private static final int BACKEND_OFFSET = 21;
+    private static final int STATE_OFFSET = 22;
+    private static final byte OCCUPIED = 1;
+
+    // Labels are stored as codes: the five classes, then CoreNLP's spellings of the extremes so
+    // its results come back exactly as produced. Other spellings of the classes are matched
+    // ignoring case; results with any other label are not persisted.
+    private static final String[] LABELS = {
+        "Very Negative", "Negative", "Neutral", "Positive", "Very Positive",
+        CoreNLPSentenceScorer.className(0), CoreNLPSentenceScorer.className(4)
+    };
+
+    private final Path path;
+    private final FileChannel channel;
+    private final FileLock fileLock;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int size;
+    private boolean closed;
+
+    private PersistentSentimentStore(Path path, FileChannel channel, FileLock fileLock) {
+        this.path = path;
+        this.channel = channel;
+        this.fileLock = fileLock;
+    }
+
+    /**
+     * Opens the store at the given path, creating it if needed. A file with an unknown
+     * format, or one left half rebuilt by a crash, is reset; it only holds cached results.
+     */
+    public static PersistentSentimentStore open(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock fileLock = channel.tryLock();
+        if (fileLock == null) {
+            channel.close();
+            throw new IOException("Sentiment store is in use by another process: " + path);
+        }
+        PersistentSentimentStore store = new PersistentSentimentStore(path, channel, fileLock);
+        try {
+            store.load();
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private void load() throws IOException {
+        long fileSize = channel.size();
+        if (fileSize >= HEADER_BYTES) {
+            MappedByteBuffer existing = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            int storedCapacity = existing.getInt(CAPACITY_OFFSET);
+            boolean valid = existing.getInt(MAGIC_OFFSET) == MAGIC
+                && existing.getInt(FORMAT_OFFSET) == FORMAT_VERSION
+                && Integer.bitCount(storedCapacity) == 1
+                && fileSize >= HEADER_BYTES + (long) storedCapacity * SLOT_BYTES
+                && (existing.getInt(FLAGS_OFFSET) & FLAG_REBUILDING) == 0;
+            if (valid) {
+                buffer = existing;
+                capacity = storedCapacity;
+                size = existing.getInt(SIZE_OFFSET);
+                logger.info("Opened sentiment store {} with {} results", path, size);
+                if ((buffer.getInt(FLAGS_OFFSET) & FLAG_STALE) != 0) {
+                    compact();
+                }
+                return;
+            }
+            logger.warn("Sentiment store {} is invalid or incomplete, starting empty", path);
+        }
+        buffer = map(MIN_CAPACITY);
+        capacity = MIN_CAPACITY;
+        size = 0;
+        clear(buffer, capacity, true);
+    }
+
+    private MappedByteBuffer map(int slots) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) slots * SLOT_BYTES);
+    }
+
+    /**
+     * Records the current model version of a backend and returns the backend's id for
+     * lookups. Results stored under an earlier version stop matching immediately.
+     */
+    public int registerBackend(String backend, String modelVersion) {
+        long backendHash = TextHash.hashNormalized(backend);
+        long versionHash = TextHash.hashNormalized(modelVersion);
+        lock.writeLock().lock();
+        try {
+            int count = buffer.getInt(BACKEND_COUNT_OFFSET);
+            for (int i = 0; i < count; i++) {
+                int offset = BACKENDS_OFFSET + i * BACKEND_ENTRY_BYTES;
+                if (buffer.getLong(offset) == backendHash) {
+                    if (buffer.getLong(offset + 8) != versionHash) {
+                        logger.info("Model version of {} changed to {}, invalidating stored results", backend, modelVersion);
+                        buffer.putLong(offset + 8, versionHash);
+                        buffer.putInt(FLAGS_OFFSET, buffer.getInt(FLAGS_OFFSET) | FLAG_STALE);
+                    }
+                    return i;
+                }
+            }
+            if (count == MAX_BACKENDS) {
+                throw new IllegalStateException("Sentiment store supports at most " + MAX_BACKENDS + " backends");
+            }
+            int offset = BACKENDS_OFFSET + count * BACKEND_ENTRY_BYTES;
+            buffer.putLong(offset, backendHash);
+            buffer.putLong(offset + 8, versionHash);
+            buffer.putInt(BACKEND_COUNT_OFFSET, count + 1);
+            return count;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns the stored label, or null if absent or produced by an older model version
+    public String get(int backendId, long key) {
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return null;
+            }
+            long version = currentVersion(backendId);
+            int mask = capacity - 1;
+            for (int index = slotIndex(key, mask); ; index = (index + 1) & mask) {
+                int offset = HEADER_BYTES + index * SLOT_BYTES;
+                if (buffer.get(offset + STATE_OFFSET) != OCCUPIED) {
+                    return null;
+                }
+                if (buffer.getLong(offset + KEY_OFFSET) == key) {
+                    if (buffer.get(offset + BACKEND_OFFSET) != backendId
+                            || buffer.getLong(offset + VERSION_OFFSET) != version) {
+                        return null;
+                    }
+                    return LABELS[buffer.get(offset + LABEL_OFFSET)];
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Stores a result; score may be NaN when the backend does not produce one
+    public void put(int backendId, long key, String label, float score) {
+        byte labelCode = labelCode(label);
+        if (labelCode < 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (size + 1 > capacity * MAX_LOAD) {
+                rebuild(capacity * 2);
+            }
+            if (insert(buffer, capacity, key, currentVersion(backendId), score, labelCode, (byte) backendId)) {
+                size++;
+                buffer.putInt(SIZE_OFFSET, size);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to grow sentiment store {}: {}", path, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops results produced by outdated model versions. Called automatically when the
+     * store is opened after a version change, and whenever the table grows.
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            rebuild(capacity);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Rehashes live, current-version slots into a table of the given capacity, in place
+    private void rebuild(int newCapacity) throws IOException {
+        int count = 0;
+        long[] keys = new long[size];
+        long[] versions = new long[size];
+        float[] scores = new float[size];
+        byte[] labels = new byte[size];
+        byte[] backendIds = new byte[size];
+        for (int index = 0; index < capacity; index++) {
+            int offset = HEADER_BYTES + index * SLOT_BYTES;
+            if (buffer.get(offset + STATE_OFFSET) != OCCUPIED) {
+                continue;
+            }
+            byte backendId = buffer.get(offset + BACKEND_OFFSET);
+            long version = buffer.getLong(offset + VERSION_OFFSET);
+            if (version != currentVersion(backendId) || count == keys.length) {
+                continue;
+            }
+            keys[count] = buffer.getLong(offset + KEY_OFFSET);
+            versions[count] = version;
+            scores[count] = buffer.getFloat(offset + SCORE_OFFSET);
+            labels[count] = buffer.get(offset + LABEL_OFFSET);
+            backendIds[count] = backendId;
+            count++;
+        }
+
+        while (count + 1 > newCapacity * MAX_LOAD) {
+            newCapacity *= 2;
+        }
+        // A crash before the flag is cleared leaves a store that is reset on the next open
+        buffer.putInt(FLAGS_OFFSET, buffer.getInt(FLAGS_OFFSET) | FLAG_REBUILDING);
+        buffer.force();
+        if (newCapacity != capacity) {
+            buffer = map(newCapacity);
+        }
+        clear(buffer, newCapacity, false);
+        for (int i = 0; i < count; i++) {
+            insert(buffer, newCapacity, keys[i], versions[i], scores[i], labels[i], backendIds[i]);
+        }
+        logger.info("Rebuilt sentiment store {}: {} of {} results kept, capacity {}", path, count, size, newCapacity);
+        capacity = newCapacity;
+        size = count;
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putInt(SIZE_OFFSET, size);
+        buffer.putInt(FLAGS_OFFSET, 0);
+        buffer.force();
+    }
+
+    // Returns true if a new slot was used, false if an existing key was overwritten
+    private static boolean insert(MappedByteBuffer target, int slots, long key, long version,
+                                  float score, byte label, byte backendId) {
+        int mask = slots - 1;
+        for (int index = slotIndex(key, mask); ; index = (index + 1) & mask) {
+            int offset = HEADER_BYTES + index * SLOT_BYTES;
+            boolean empty = target.get(offset + STATE_OFFSET) != OCCUPIED;
+            if (empty || target.getLong(offset + KEY_OFFSET) == key) {
+                target.putLong(offset + KEY_OFFSET, key);
+                target.putLong(offset + VERSION_OFFSET, version);
+                target.putFloat(offset + SCORE_OFFSET, score);
+                target.put(offset + LABEL_OFFSET, label);
+                target.put(offset + BACKEND_OFFSET, backendId);
+                target.put(offset + STATE_OFFSET, OCCUPIED);
+                return empty;
+            }
+        }
+    }
+
+    private static void clear(MappedByteBuffer target, int slots, boolean resetHeader) {
+        if (resetHeader) {
+            for (int offset = 0; offset < HEADER_BYTES; offset += 8) {
+                target.putLong(offset, 0L);
+            }
+            target.putInt(MAGIC_OFFSET, MAGIC);
+            target.putInt(FORMAT_OFFSET, FORMAT_VERSION);
+            target.putInt(CAPACITY_OFFSET, slots);
+        }
+        for (int index = 0; index < slots; index++) {
+            target.put(HEADER_BYTES + index * SLOT_BYTES + STATE_OFFSET, (byte) 0);
+        }
+    }
+
+    private long currentVersion(int backendId) {
+        return buffer.getLong(BACKENDS_OFFSET + backendId * BACKEND_ENTRY_BYTES + 8);
+    }
+
+    private static int slotIndex(long key, int mask) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private static byte labelCode(String label) {
+        for (byte i = 0; i < LABELS.length; i++) {
+            if (LABELS[i].equals(label)) {
+                return i;
+            }
+        }
+        return (byte) SentimentLabels.classIndex(label);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (buffer != null) {
+                buffer.force();
+            }
+            if (fileLock.isValid()) {
+                fileLock.release();
+            }
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
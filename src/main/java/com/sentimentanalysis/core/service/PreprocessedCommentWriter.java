@@ -0,0 +1,57 @@
+package com.sentimentanalysis.core.service;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Appends preprocessed comments and their sentiments to a CSV file as they are analyzed
+class PreprocessedCommentWriter implements Closeable {
+    private static final String HEADER = "Preprocessed_Comment,Sentiment";
+
+    private final Path path;
+    private final BufferedWriter writer;
+    private long rows;
+
+    PreprocessedCommentWriter(Path path) throws IOException {
+        this.path = path;
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        writer.write(HEADER);
+        writer.newLine();
+    }
+
+    void write(String comment, String sentiment) throws IOException {
+        writer.write(quote(comment));
+        writer.write(',');
+        writer.write(quote(sentiment));
+        writer.newLine();
+        rows++;
+    }
+
+    // Makes everything written so far readable, e.g. after each analyzed batch
+    void flush() throws IOException {
+        writer.flush();
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    // RFC 4180: the field is quoted and quotes inside it are doubled
+    private static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,132 @@
+package com.sentimentanalysis.core.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+
+/**
+ * Writes preprocessed comments as typed Parquet columns under a Hive-style partition
+ * layout, {@code fetch_type=.../date=.../subreddit=.../part-<name>.parquet}, so Spark
+ * can prune both columns and partitions. One file is opened per subreddit seen in the
+ * run. Comments without a subreddit, such as those from a single post, go to Spark's
+ * default partition.
+ */
+class PreprocessedParquetWriter implements Closeable {
+    static final String DEFAULT_PARTITION = "__HIVE_DEFAULT_PARTITION__";
+
+    private static final MessageType SCHEMA = Types.buildMessage()
+        .required(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("comment")
+        .required(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("sentiment")
+        .optional(PrimitiveTypeName.DOUBLE).named("score")
+        .required(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("backend")
+        .required(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("source_file")
+        .named("preprocessed_comment");
+
+    private final Path root;
+    private final Path partitionDir;
+    private final String fileName;
+    private final String sourceFile;
+    private final Configuration conf = new Configuration();
+    private final SimpleGroupFactory groups = new SimpleGroupFactory(SCHEMA);
+    private final Map<String, ParquetWriter<Group>> writers = new LinkedHashMap<>();
+    private final List<Path> files = new ArrayList<>();
+    private long rows;
+
+    /**
+     * @param root       dataset directory holding the {@code fetch_type=} partitions
+     * @param name       distinguishes this run's files from others in the same partitions
+     * @param sourceFile raw fetch file the comments were read from
+     */
+    PreprocessedParquetWriter(Path root, String fetchType, String date, String name, String sourceFile) {
+        this.root = root;
+        this.partitionDir = root.resolve("fetch_type=" + partitionValue(fetchType)).resolve("date=" + partitionValue(date));
+        this.fileName = "part-" + name + ".parquet";
+        this.sourceFile = sourceFile;
+    }
+
+    // The score is the backend's probability for the label, or NaN if it gives none
+    void write(String comment, String sentiment, double score, String backend, String subreddit) throws IOException {
+        Group row = groups.newGroup()
+            .append("comment", comment)
+            .append("sentiment", sentiment)
+            .append("backend", backend)
+            .append("source_file", sourceFile);
+        if (!Double.isNaN(score)) {
+            row.add("score", score);
+        }
+        writerFor(subreddit).write(row);
+        rows++;
+    }
+
+    private ParquetWriter<Group> writerFor(String subreddit) throws IOException {
+        String partition = "subreddit=" + partitionValue(subreddit);
+        ParquetWriter<Group> writer = writers.get(partition);
+        if (writer == null) {
+            Path dir = partitionDir.resolve(partition);
+            Files.createDirectories(dir);
+            Path file = dir.resolve(fileName);
+            writer = ExampleParquetWriter.builder(new org.apache.hadoop.fs.Path(file.toUri()))
+                .withConf(conf)
+                .withType(SCHEMA)
+                .withCompressionCodec(CompressionCodecName.SNAPPY)
+                .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                .build();
+            writers.put(partition, writer);
+            files.add(file);
+        }
+        return writer;
+    }
+
+    // Characters Spark escapes in partition directory names are replaced instead
+    private static String partitionValue(String value) {
+        if (value == null || value.isBlank()) {
+            return DEFAULT_PARTITION;
+        }
+        return value.trim().replaceAll("[\\\\/:*?\"<>|=%#{}\\[\\]^\\s]", "_");
+    }
+
+    Path getRoot() {
+        return root;
+    }
+
+    // Files written so far; each is complete only after close
+    List<Path> getFiles() {
+        return files;
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (ParquetWriter<Group> writer : writers.values()) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,564 @@
+package com.sentimentanalysis.core.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.sentimentanalysis.util.FetchRecordWriter;
+
+/**
+ * Java client for the Reddit API, covering the three fetch modes of the fetch_by_*.py
+ * scripts and writing the same columns, as CSV or Arrow depending on the output file's
+ * extension. Post listings are read first, then the comments of all posts are requested
+ * concurrently; rows are still written in post order, one post at a time, so the file
+ * can be followed while it grows.
+ *
+ * <p>Requests go through a scheduler that keeps at most {@code maxInFlight} of them
+ * running and stays inside the quota reported by Reddit's X-Ratelimit-* headers,
+ * holding requests back until the window resets once it is used up. The API and token
+ * URLs are configurable so the client can be pointed at a local stub server.
+ */
+public class RedditApiClient {
+    private static final Logger logger = LoggerFactory.getLogger(RedditApiClient.class);
+    public static final String DEFAULT_API_URL = "https://oauth.reddit.com";
+    public static final String DEFAULT_AUTH_URL = "https://www.reddit.com/api/v1/access_token";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int MAX_ATTEMPTS = 4;
+    private static final int MAX_LISTING_PAGE = 100;
+    private static final Pattern POST_ID = Pattern.compile("(?:/comments/|redd\\.it/)([A-Za-z0-9]+)");
+
+    private static final List<String> KEYWORD_HEADER = List.of("Subreddit", "Post Title", "Comment");
+    private static final List<String> SUBREDDIT_HEADER = List.of("Subreddit", "Post Title", "Comment");
+    private static final List<String> POST_HEADER = List.of("Post Title", "Comment");
+
+    private final HttpClient httpClient;
+    private final String apiUrl;
+    private final URI authUrl;
+    private final String clientId;
+    private final String clientSecret;
+    private final String userAgent;
+    private final RateLimitScheduler scheduler;
+    private CompletableFuture<String> token;
+    private volatile long tokenExpiresAt;
+
+    public RedditApiClient(String apiUrl, String authUrl, String clientId, String clientSecret, String userAgent,
+                           int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("In-flight limit must be positive");
+        }
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+        this.apiUrl = apiUrl.endsWith("/") ? apiUrl.substring(0, apiUrl.length() - 1) : apiUrl;
+        this.authUrl = URI.create(authUrl);
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.userAgent = userAgent;
+        this.scheduler = new RateLimitScheduler(maxInFlight);
+    }
+
+    // Fetches an access token ahead of the first request
+    public void authenticate() throws IOException {
+        await(token());
+    }
+
+    // Searches all of Reddit; rows are Subreddit, Post Title, Comment
+    public int fetchByKeyword(String keyword, int numPosts, int commentsPerPost, String sortBy, Path outputFile)
+            throws IOException {
+        List<Post> posts = await(listing("/r/all/search", "q=" + encode(keyword) + "&sort=" + encode(sortBy), numPosts));
+        return writeComments(posts, commentsPerPost, outputFile, KEYWORD_HEADER,
+            (post, comment) -> List.of(post.subreddit, post.title, comment));
+    }
+
+    // Rows are Subreddit (as given), Post Title, Comment
+    public int fetchBySubreddit(String subreddit, int numPosts, int commentsPerPost, String sortBy, Path outputFile)
+            throws IOException {
+        String name = subreddit.trim();
+        List<Post> posts = await(listing("/r/" + encode(name) + "/" + encode(sortBy.trim()), "", numPosts));
+        return writeComments(posts, commentsPerPost, outputFile, SUBREDDIT_HEADER,
+            (post, comment) -> List.of(name, post.title, comment));
+    }
+
+    // Rows are Post Title, Comment
+    public int fetchByPostLink(String postLink, int commentsPerPost, Path outputFile) throws IOException {
+        Matcher matcher = POST_ID.matcher(postLink);
+        if (!matcher.find()) {
+            throw new IOException("Not a Reddit post link: " + postLink);
+        }
+        Post post = new Post(matcher.group(1), null, null);
+        return writeComments(Collections.singletonList(post), commentsPerPost, outputFile, POST_HEADER,
+            (p, comment) -> List.of(p.title, comment));
+    }
+
+    private interface RowMapper {
+        List<String> row(Post post, String comment);
+    }
+
+    private int writeComments(List<Post> posts, int commentsPerPost, Path outputFile, List<String> header,
+                              RowMapper mapper) throws IOException {
+        long start = System.nanoTime();
+        // All comment requests are queued at once; the scheduler decides how many run
+        List<CompletableFuture<PostComments>> comments = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            comments.add(comments(post.id, commentsPerPost));
+        }
+
+        int rows = 0;
+        try (FetchRecordWriter writer = FetchRecordWriter.open(outputFile, header)) {
+            for (int i = 0; i < posts.size(); i++) {
+                PostComments result;
+                try {
+                    result = await(comments.get(i));
+                } catch (IOException e) {
+                    // As in the Python scripts, a post that cannot be read is skipped
+                    logger.warn("Error processing submission {}: {}", posts.get(i).id, e.getMessage());
+                    continue;
+                }
+                Post post = posts.get(i).title != null ? posts.get(i) : result.post;
+                for (String comment : result.comments) {
+                    writer.write(mapper.row(post, comment));
+                    rows++;
+                }
+                writer.flush();
+            }
+        }
+        logger.info("Fetched {} comments from {} posts in {} ms", rows, posts.size(),
+            (System.nanoTime() - start) / 1_000_000);
+        return rows;
+    }
+
+    // Reads up to limit posts, following "after" across pages of at most 100
+    private CompletableFuture<List<Post>> listing(String path, String query, int limit) {
+        return listingPage(path, query, limit, null, new ArrayList<>());
+    }
+
+    private CompletableFuture<List<Post>> listingPage(String path, String query, int limit, String after, List<Post> posts) {
+        int pageSize = Math.min(MAX_LISTING_PAGE, limit - posts.size());
+        String pageQuery = (query.isEmpty() ? "" : query + "&") + "limit=" + pageSize
+            + (after == null ? "" : "&after=" + encode(after));
+        return get(path, pageQuery, reader -> readListing(reader, "t3")).thenCompose(page -> {
+            for (Map<String, String> data : page.children) {
+                if (posts.size() < limit) {
+                    posts.add(new Post(data.get("id"), data.get("title"), data.get("subreddit")));
+                }
+            }
+            if (posts.size() >= limit || page.after == null || page.children.isEmpty()) {
+                return CompletableFuture.completedFuture(posts);
+            }
+            return listingPage(path, query, limit, page.after, posts);
+        });
+    }
+
+    // Top-level comments of a post, as the scripts read them after replace_more(limit=0)
+    private CompletableFuture<PostComments> comments(String postId, int commentsPerPost) {
+        return get("/comments/" + encode(postId), "limit=" + commentsPerPost + "&depth=1", reader -> {
+            reader.beginArray();
+            Listing postListing = readListing(reader, "t3");
+            Listing commentListing = readListing(reader, "t1");
+            while (reader.hasNext()) {
+                reader.skipValue();
+            }
+            reader.endArray();
+            if (postListing.children.isEmpty()) {
+                throw new IOException("Post " + postId + " not found");
+            }
+            Map<String, String> data = postListing.children.get(0);
+            List<String> bodies = new ArrayList<>();
+            for (Map<String, String> comment : commentListing.children) {
+                if (bodies.size() < commentsPerPost && comment.get("body") != null) {
+                    bodies.add(comment.get("body"));
+                }
+            }
+            return new PostComments(new Post(postId, data.get("title"), data.get("subreddit")), bodies);
+        });
+    }
+
+    private interface ResponseParser<T> {
+        T parse(JsonReader reader) throws IOException;
+    }
+
+    private <T> CompletableFuture<T> get(String path, String query, ResponseParser<T> parser) {
+        return get(path, query, parser, 1);
+    }
+
+    // Transport failures (connection reset, timeout) are retried with the same backoff as 5xx
+    // answers; failures of the retries themselves are left to those attempts
+    private <T> CompletableFuture<T> get(String path, String query, ResponseParser<T> parser, int attempt) {
+        URI uri = URI.create(apiUrl + path + "?" + (query.isEmpty() ? "" : query + "&") + "raw_json=1");
+        return token().thenCompose(accessToken -> scheduler.acquire()
+                .thenCompose(ignored -> httpClient.sendAsync(HttpRequest.newBuilder(uri)
+                        .timeout(REQUEST_TIMEOUT)
+                        .header("Authorization", "Bearer " + accessToken)
+                        .header("User-Agent", userAgent)
+                        .GET()
+                        .build(), HttpResponse.BodyHandlers.ofInputStream())
+                    .whenComplete((response, error) -> scheduler.release(response == null ? null : response.headers())))
+                .thenApply(response -> handleResponse(path, query, parser, attempt, accessToken, response)))
+            .handle((result, error) -> {
+                if (error == null) {
+                    return result;
+                }
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (!(cause instanceof IOException) || attempt >= MAX_ATTEMPTS) {
+                    return CompletableFuture.<T>failedFuture(error);
+                }
+                logger.warn("Request for {} failed ({}), retrying (attempt {})", path, cause.toString(), attempt + 1);
+                return retryAfterDelay(path, query, parser, attempt);
+            })
+            .thenCompose(Function.identity());
+    }
+
+    private <T> CompletableFuture<T> handleResponse(String path, String query, ResponseParser<T> parser, int attempt,
+            String accessToken, HttpResponse<InputStream> response) {
+        try (InputStream body = response.body()) {
+            int status = response.statusCode();
+            if (status == 200) {
+                return CompletableFuture.completedFuture(
+                    parser.parse(new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8))));
+            }
+            boolean retryable = status == 401 || status == 429 || status >= 500;
+            if (!retryable || attempt >= MAX_ATTEMPTS) {
+                throw new IOException("Reddit API returned HTTP " + status + " for " + path);
+            }
+            logger.warn("Reddit API returned HTTP {} for {}, retrying (attempt {})", status, path, attempt + 1);
+            if (status == 401) {
+                invalidateToken(accessToken);
+                return get(path, query, parser, attempt + 1);
+            }
+            if (status == 429) {
+                // The scheduler holds the retry back until the quota window resets
+                scheduler.exhausted(retryAfterSeconds(response.headers()));
+                return get(path, query, parser, attempt + 1);
+            }
+            return retryAfterDelay(path, query, parser, attempt);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Waits one second more for each attempt already made
+    private <T> CompletableFuture<T> retryAfterDelay(String path, String query, ResponseParser<T> parser, int attempt) {
+        return CompletableFuture.supplyAsync(() -> null, CompletableFuture.delayedExecutor(attempt, TimeUnit.SECONDS))
+            .thenCompose(ignored -> get(path, query, parser, attempt + 1));
+    }
+
+    private static long retryAfterSeconds(HttpHeaders headers) {
+        String value = headers.firstValue("Retry-After").orElse(headers.firstValue("X-Ratelimit-Reset").orElse("1"));
+        try {
+            return Math.max(1, (long) Math.ceil(Double.parseDouble(value.trim())));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    // Application-only OAuth token, shared by concurrent requests and renewed shortly before it expires
+    private synchronized CompletableFuture<String> token() {
+        if (token == null || token.isCompletedExceptionally()
+                || (token.isDone() && System.nanoTime() >= tokenExpiresAt)) {
+            token = requestToken();
+        }
+        return token;
+    }
+
+    private synchronized void invalidateToken(String rejected) {
+        if (token != null && token.isDone() && !token.isCompletedExceptionally() && rejected.equals(token.join())) {
+            token = null;
+        }
+    }
+
+    private CompletableFuture<String> requestToken() {
+        if (clientId == null || clientSecret == null) {
+            return CompletableFuture.failedFuture(new IOException("Reddit client_id and client_secret are not configured"));
+        }
+        String credentials = Base64.getEncoder()
+            .encodeToString((clientId + ":" + clientSecret).getBytes(StandardCharsets.UTF_8));
+        HttpRequest request = HttpRequest.newBuilder(authUrl)
+            .timeout(REQUEST_TIMEOUT)
+            .header("Authorization", "Basic " + credentials)
+            .header("User-Agent", userAgent)
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString("grant_type=client_credentials"))
+            .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+            .thenApply(response -> {
+                try (InputStream body = response.body()) {
+                    if (response.statusCode() != 200) {
+                        throw new IOException("Reddit authentication returned HTTP " + response.statusCode());
+                    }
+                    String accessToken = null;
+                    long expiresIn = 3600;
+                    JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String name = reader.nextName();
+                        if (name.equals("access_token")) {
+                            accessToken = reader.nextString();
+                        } else if (name.equals("expires_in")) {
+                            expiresIn = reader.nextLong();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    if (accessToken == null) {
+                        throw new IOException("Reddit authentication returned no access token");
+                    }
+                    tokenExpiresAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(0, expiresIn - 60));
+                    logger.info("Authenticated with the Reddit API");
+                    return accessToken;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the Reddit API", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Reddit API request failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a Listing ({"kind": "Listing", "data": {"children": [{"kind", "data"}, ...],
+     * "after"}}), keeping the string fields of children of the given kind. Nested values
+     * such as comment replies are skipped without being built.
+     */
+    private static Listing readListing(JsonReader reader, String kind) throws IOException {
+        Listing listing = new Listing();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("data")) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("children")) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readChild(reader, kind, listing.children);
+                    }
+                    reader.endArray();
+                } else if (name.equals("after") && reader.peek() == JsonToken.STRING) {
+                    listing.after = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        return listing;
+    }
+
+    private static void readChild(JsonReader reader, String kind, List<Map<String, String>> children) throws IOException {
+        String childKind = null;
+        Map<String, String> data = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("kind")) {
+                childKind = reader.nextString();
+            } else if (name.equals("data") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String field = reader.nextName();
+                    if (reader.peek() == JsonToken.STRING) {
+                        data.put(field, reader.nextString());
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (kind.equals(childKind)) {
+            children.add(data);
+        }
+    }
+
+    private static final class Listing {
+        private final List<Map<String, String>> children = new ArrayList<>();
+        private String after;
+    }
+
+    private static final class Post {
+        private final String id;
+        private final String title;
+        private final String subreddit;
+
+        Post(String id, String title, String subreddit) {
+            this.id = id;
+            this.title = title;
+            this.subreddit = subreddit;
+        }
+    }
+
+    private static final class PostComments {
+        private final Post post;
+        private final List<String> comments;
+
+        PostComments(Post post, List<String> comments) {
+            this.post = post;
+            this.comments = comments;
+        }
+    }
+
+    /**
+     * Starts queued requests while fewer than {@code maxInFlight} are running and the
+     * quota allows it. The quota is what the last response reported as remaining, less
+     * the requests started since; once it is used up, requests wait for the reset time
+     * the same response gave.
+     */
+    static final class RateLimitScheduler {
+        private final int maxInFlight;
+        private final Deque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+        private int inFlight;
+        // Unknown until the first response arrives
+        private double remaining = Double.POSITIVE_INFINITY;
+        private long resetAt;
+        private boolean wakeUpScheduled;
+
+        RateLimitScheduler(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        CompletableFuture<Void> acquire() {
+            CompletableFuture<Void> slot = new CompletableFuture<>();
+            synchronized (this) {
+                waiting.addLast(slot);
+            }
+            dispatch();
+            return slot;
+        }
+
+        // Called when a request finishes, with its response headers when there was a response
+        void release(HttpHeaders headers) {
+            synchronized (this) {
+                inFlight--;
+                if (headers != null) {
+                    double reportedRemaining = header(headers, "X-Ratelimit-Remaining");
+                    double reset = header(headers, "X-Ratelimit-Reset");
+                    if (!Double.isNaN(reportedRemaining) && !Double.isNaN(reset)) {
+                        // Requests still running may not have been counted by the server yet
+                        double estimate = reportedRemaining - inFlight;
+                        long now = System.nanoTime();
+                        if (now < resetAt && !Double.isInfinite(remaining)) {
+                            // Same window: responses arrive out of order, so only ever lower the estimate
+                            remaining = Math.min(remaining, estimate);
+                        } else {
+                            remaining = estimate;
+                            resetAt = now + (long) (reset * 1_000_000_000L);
+                        }
+                    }
+                }
+            }
+            dispatch();
+        }
+
+        // Holds all requests back for the given time, e.g. after HTTP 429
+        synchronized void exhausted(long seconds) {
+            remaining = 0;
+            resetAt = Math.max(resetAt, System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds));
+        }
+
+        private void dispatch() {
+            List<CompletableFuture<Void>> started = new ArrayList<>();
+            synchronized (this) {
+                while (!waiting.isEmpty() && inFlight < maxInFlight) {
+                    if (remaining < 1) {
+                        long wait = resetAt - System.nanoTime();
+                        if (wait > 0) {
+                            scheduleWakeUp(wait);
+                            break;
+                        }
+                        // A new window has started; the next response reports its real quota
+                        remaining = Double.POSITIVE_INFINITY;
+                    }
+                    remaining--;
+                    inFlight++;
+                    started.add(waiting.pollFirst());
+                }
+            }
+            // Completed outside the lock, since completion runs the request's next stages
+            for (CompletableFuture<Void> slot : started) {
+                slot.complete(null);
+            }
+        }
+
+        private void scheduleWakeUp(long nanos) {
+            if (wakeUpScheduled) {
+                return;
+            }
+            wakeUpScheduled = true;
+            logger.info("Reddit API quota used up, waiting {} ms for the window to reset", nanos / 1_000_000);
+            CompletableFuture.runAsync(() -> {
+                synchronized (this) {
+                    wakeUpScheduled = false;
+                }
+                dispatch();
+            }, CompletableFuture.delayedExecutor(nanos, TimeUnit.NANOSECONDS));
+        }
+
+        private static double header(HttpHeaders headers, String name) {
+            try {
+                return headers.firstValue(name).map(value -> Double.parseDouble(value.trim())).orElse(Double.NaN);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+    }
+}
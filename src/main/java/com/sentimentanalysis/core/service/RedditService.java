@@ -1,41 +1,82 @@
 package com.sentimentanalysis.core.service;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.sentimentanalysis.util.PythonScriptRunner;
-import com.sentimentanalysis.core.service.SentimentAnalysisService;
-import com.sentimentanalysis.core.service.HDFSService;
+import com.sentimentanalysis.config.AppConfig;
+import com.sentimentanalysis.core.model.AnalyzedComment;
+import com.sentimentanalysis.core.model.SentimentResult;
+import com.sentimentanalysis.util.FetchFileFollower;
+import com.sentimentanalysis.util.FetchRecordReader;
+import com.sentimentanalysis.util.PythonFetchWorker;
 
 public class RedditService {
     private static final Logger logger = LoggerFactory.getLogger(RedditService.class);
-    private static final String PYTHON_SCRIPTS_PATH = "C:/Projects/GUI-Practice/src_new/main/python";
+    static final String PYTHON_SCRIPTS_PATH = "C:/Projects/GUI-Practice/src_new/main/python";
     private static final String BASE_DATA_DIR = "C:/Projects/GUI-Practice/data";
-    private static final String RAW_DATA_DIR = BASE_DATA_DIR + "/raw";
-    private static final String PREPROCESSED_DATA_DIR = BASE_DATA_DIR + "/preprocessed";
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
-    private SentimentAnalysisService sentimentAnalysisService = new SentimentAnalysisService();
-    private HDFSService hdfsService = new HDFSService();
+    private static final AtomicInteger STREAM_COUNTER = new AtomicInteger();
+    // How long a failed stream waits for the subscriber to take already published results
+    private static final long DELIVERY_TIMEOUT_MILLIS = 30000;
+    private final ThreadLocal<SentimentAnalyzer> workerAnalyzer;
+    private final int analysisThreads;
+    private final Path rawDataDir;
+    private final Path preprocessedDataDir;
+    private final Path preprocessedParquetDir;
+    private final HDFSUploadQueue uploadQueue;
 
     public RedditService() {
+        this(() -> ModelRegistry.getInstance().getDefaultAnalyzer());
+    }
+
+    /**
+     * @param analyzerFactory called once per analysis thread; a backend that is not
+     *                        thread-safe should return a new instance on every call
+     */
+    public RedditService(Supplier<SentimentAnalyzer> analyzerFactory) {
+        this(analyzerFactory, Paths.get(BASE_DATA_DIR), AppConfig.getAnalysisThreads(),
+            ModelRegistry.getInstance().getHDFSUploadQueue());
+    }
+
+    // For tests: data under baseDataDir, and a fixed number of analysis threads
+    RedditService(Supplier<SentimentAnalyzer> analyzerFactory, Path baseDataDir, int analysisThreads,
+                  HDFSUploadQueue uploadQueue) {
+        this.workerAnalyzer = ThreadLocal.withInitial(analyzerFactory);
+        this.analysisThreads = Math.max(1, analysisThreads);
+        this.rawDataDir = baseDataDir.resolve("raw");
+        this.preprocessedDataDir = baseDataDir.resolve("preprocessed");
+        this.preprocessedParquetDir = baseDataDir.resolve("preprocessed-parquet");
+        this.uploadQueue = uploadQueue;
         try {
             // Create base directories if they don't exist
-            Files.createDirectories(Paths.get(BASE_DATA_DIR));
-            Files.createDirectories(Paths.get(RAW_DATA_DIR));
-            Files.createDirectories(Paths.get(PREPROCESSED_DATA_DIR));
+            Files.createDirectories(baseDataDir);
+            Files.createDirectories(rawDataDir);
+            Files.createDirectories(preprocessedDataDir);
             logger.info("Initialized base data directories");
         } catch (IOException e) {
             logger.error("Failed to create base directories: {}", e.getMessage());
@@ -43,20 +84,25 @@ public class RedditService {
         }
     }
 
+    // Uploads go through the shared background queue, which opens the HDFS connection on first use
+    private HDFSUploadQueue uploadQueue() {
+        return uploadQueue;
+    }
+
     private String createOutputPath(String type, String identifier) {
         try {
             // Create base directory structure: data/raw/[type]/[date]/[identifier]
             String timestamp = LocalDateTime.now().format(DATE_FORMAT);
             
             // Create the directory structure
-            Path typeDir = Paths.get(RAW_DATA_DIR, type);
+            Path typeDir = rawDataDir.resolve(type);
             Path dateDir = typeDir.resolve(timestamp);
             Files.createDirectories(dateDir);
             
             // Create filename with timestamp and identifier
-            String filename = String.format("%s_%s.csv", 
+            String filename = String.format("%s_%s%s", 
                 identifier.replaceAll("[^a-zA-Z0-9-_]", "_"), 
-                timestamp);
+                timestamp, outputExtension());
             Path outputPath = dateDir.resolve(filename);
             
             logger.info("Created local output path for raw data: {}", outputPath);
@@ -67,9 +113,8 @@ public class RedditService {
         }
     }
 
-    public void savePreprocessedCommentsNIO(String originalFilePath, List<String> comments, List<String> sentiments) throws IOException {
-        logger.info("Saving preprocessed data for file: {}", originalFilePath);
-        
+    // Local path for the preprocessed output of a raw file: data/preprocessed/[type]/[date]/preprocessed_[identifier]_[date].csv
+    private Path createPreprocessedPath(String originalFilePath) throws IOException {
         // Parse the original file path to get type and identifier
         Path originalPath = Paths.get(originalFilePath);
         String filename = originalPath.getFileName().toString();
@@ -85,8 +130,7 @@ public class RedditService {
         
         // Create preprocessed directory structure
         String timestamp = LocalDateTime.now().format(DATE_FORMAT);
-        Path preprocessedTypeDir = Paths.get(PREPROCESSED_DATA_DIR, type);
-        Path preprocessedDateDir = preprocessedTypeDir.resolve(timestamp);
+        Path preprocessedDateDir = preprocessedDataDir.resolve(type).resolve(timestamp);
         
         try {
             Files.createDirectories(preprocessedDateDir);
@@ -96,125 +140,506 @@ public class RedditService {
             throw e;
         }
 
-        // Create output filename and path
         String outputFileName = String.format("preprocessed_%s_%s.csv", identifier, timestamp);
-        Path outputFilePath = preprocessedDateDir.resolve(outputFileName);
-        logger.info("Writing preprocessed data to: {}", outputFilePath);
+        return preprocessedDateDir.resolve(outputFileName);
+    }
+
+    // HDFS mirrors the local [type]/[date]/[file] layout under the preprocessed directory
+    private static String hdfsPreprocessedPath(Path localPath) {
+        Path dateDir = localPath.getParent();
+        return HDFSService.PREPROCESSED_DIR + "/" + dateDir.getParent().getFileName()
+            + "/" + dateDir.getFileName() + "/" + localPath.getFileName();
+    }
+
+    private void uploadPreprocessed(Path localPath) {
+        String hdfsOutputPath = hdfsPreprocessedPath(localPath);
+        uploadQueue().submit(localPath, hdfs -> hdfsOutputPath);
+        logger.info("Queued preprocessed data for HDFS: {}", hdfsOutputPath);
+    }
+
+    // Parquet files keep their partition directories under the HDFS dataset root
+    private void uploadParquet(PreprocessedParquetWriter parquet) {
+        for (Path file : parquet.getFiles()) {
+            String hdfsOutputPath = HDFSService.PREPROCESSED_PARQUET_DIR + "/"
+                + parquet.getRoot().relativize(file).toString().replace('\\', '/');
+            uploadQueue().submit(file, hdfs -> hdfsOutputPath);
+        }
+        logger.info("Queued {} Parquet files for HDFS", parquet.getFiles().size());
+    }
+
+    /**
+     * Parquet copy of a run's preprocessed output, partitioned by fetch type, the date of
+     * the fetch and subreddit, or null when preprocessed_parquet is off.
+     */
+    private PreprocessedParquetWriter createParquetWriter(String filePath, String fetchType, Path outputFilePath) {
+        if (!AppConfig.isPreprocessedParquetEnabled()) {
+            return null;
+        }
+        // Raw files sit in a [date]_[time] directory; anything else is dated today
+        Path dateDir = Paths.get(filePath).toAbsolutePath().getParent();
+        String dirName = dateDir == null ? "" : dateDir.getFileName().toString();
+        String date = dirName.matches("\\d{4}-\\d{2}-\\d{2}.*")
+            ? dirName.substring(0, 10) : LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE);
+        String name = outputFilePath.getFileName().toString().replaceAll("\\.csv$", "");
+        return new PreprocessedParquetWriter(preprocessedParquetDir, fetchType.toLowerCase(), date, name, filePath);
+    }
+
+    // Raw output is uploaded in the background; the fetch returns once the local file is complete
+    private void uploadRaw(String type, String identifier, String localOutputFile) {
+        Path localPath = Paths.get(localOutputFile);
+        if (Files.exists(localPath)) {
+            String extension = outputExtension();
+            uploadQueue().submit(localPath, hdfs -> hdfs.createHDFSOutputPath(type, identifier, extension));
+            logger.info("Queued raw data for HDFS: {}", localPath);
+        }
+    }
+
+    public void savePreprocessedCommentsNIO(String originalFilePath, List<String> comments, List<String> sentiments) throws IOException {
+        logger.info("Saving preprocessed data for file: {}", originalFilePath);
 
-        // Prepare the CSV content with proper escaping
-        List<String> linesToWrite = new ArrayList<>();
-        linesToWrite.add("Preprocessed_Comment,Sentiment");
-        
         // Ensure we have matching numbers of comments and sentiments
         if (comments.size() != sentiments.size()) {
             throw new IOException("Mismatch between comments and sentiments count");
         }
-        
-        // Write the data with proper CSV escaping
-        for (int i = 0; i < comments.size(); i++) {
-            String escapedComment = comments.get(i)
-                .replace("\"", "\"\"")
-                .replace(",", "\",\"");
-            String line = String.format("\"%s\",\"%s\"", escapedComment, sentiments.get(i));
-            linesToWrite.add(line);
-        }
 
+        Path outputFilePath = createPreprocessedPath(originalFilePath);
+        logger.info("Writing preprocessed data to: {}", outputFilePath);
         try {
             // Save locally
-            Files.write(outputFilePath, linesToWrite, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            try (PreprocessedCommentWriter writer = new PreprocessedCommentWriter(outputFilePath)) {
+                for (int i = 0; i < comments.size(); i++) {
+                    writer.write(comments.get(i), sentiments.get(i));
+                }
+            }
             logger.info("Successfully wrote {} preprocessed comments to local file: {}", comments.size(), outputFilePath);
 
-            // Save to HDFS with the same structure
-            String hdfsOutputFileName = String.format("preprocessed_%s_%s.csv", identifier, timestamp);
-            String hdfsTypeDir = hdfsService.PREPROCESSED_DIR + "/" + type;
-            String hdfsDateDir = hdfsTypeDir + "/" + timestamp;
-            String hdfsOutputPath = hdfsDateDir + "/" + hdfsOutputFileName;
-            
-            hdfsService.saveToHDFS(hdfsOutputPath, linesToWrite);
-            logger.info("Successfully wrote preprocessed data to HDFS: {}", hdfsOutputPath);
+            // Queue the HDFS copy with the same structure
+            uploadPreprocessed(outputFilePath);
         } catch (IOException e) {
             logger.error("Failed to write preprocessed data: {}", e.getMessage());
             throw e;
         }
     }
 
+    /**
+     * Analyzes the comments of a fetch file as a stream: each comment is published as
+     * soon as its batch is scored, and the preprocessed file is written as the run goes.
+     * Nothing starts until a subscriber arrives. The file is read only as fast as the
+     * subscriber requests results: once its buffer is full, reading and scoring wait.
+     * Cancelling the subscription stops the run after the current batch, and the partial
+     * preprocessed file is then kept locally but not uploaded. If the run fails, results
+     * already published are delivered before onError. Supports a single subscriber.
+     */
+    public Flow.Publisher<AnalyzedComment> streamCommentsFromFile(String filePath, int batchSize, String fetchType) {
+        return new CommentStream(filePath, () -> FetchRecordReader.open(Paths.get(filePath)), batchSize, fetchType);
+    }
+
+    /**
+     * Streams like {@link #streamCommentsFromFile}, but from a fetch output file that is
+     * still being written, so comments are analyzed while the fetch runs.
+     *
+     * @param fetchFinished returns true once nothing more will be written to outputFile
+     * @param queueCapacity records read ahead of the analysis
+     */
+    public Flow.Publisher<AnalyzedComment> streamCommentsFromFetch(Path outputFile, BooleanSupplier fetchFinished,
+                                                                   int queueCapacity, int batchSize, String fetchType) {
+        return new CommentStream(outputFile.toString(),
+            () -> new FollowedFetchReader(new FetchFileFollower(outputFile, fetchFinished, queueCapacity)),
+            batchSize, fetchType);
+    }
+
+    /**
+     * Analyzes every comment of a fetch file and returns the sentiments in file order,
+     * writing the preprocessed output as {@link #streamCommentsFromFile} does.
+     */
     public List<String> analyzeCommentsFromFile(String filePath, int batchSize, String fetchType) throws Exception {
+        List<String> allResults = new ArrayList<>();
+        analyzeFile(filePath, () -> FetchRecordReader.open(Paths.get(filePath)), batchSize, fetchType, batch -> {
+            for (AnalyzedComment result : batch) {
+                allResults.add(result.getSentiment());
+            }
+            return true;
+        });
+        return allResults;
+    }
+
+    private interface RecordSource {
+        FetchRecordReader open() throws IOException;
+    }
+
+    private class CommentStream implements Flow.Publisher<AnalyzedComment> {
+        private final String filePath;
+        private final RecordSource source;
+        private final int batchSize;
+        private final String fetchType;
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+
+        CommentStream(String filePath, RecordSource source, int batchSize, String fetchType) {
+            this.filePath = filePath;
+            this.source = source;
+            this.batchSize = batchSize;
+            this.fetchType = fetchType;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super AnalyzedComment> subscriber) {
+            if (subscribed.getAndSet(true)) {
+                // Refused the way SubmissionPublisher refuses a duplicate subscriber
+                SubmissionPublisher<AnalyzedComment> refused = new SubmissionPublisher<>();
+                refused.closeExceptionally(new IllegalStateException("Comment stream already has a subscriber"));
+                refused.subscribe(subscriber);
+                return;
+            }
+            SubmissionPublisher<AnalyzedComment> publisher =
+                new SubmissionPublisher<>(ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+            publisher.subscribe(subscriber);
+            Thread producer = new Thread(() -> {
+                try {
+                    analyzeFile(filePath, source, batchSize, fetchType, batch -> {
+                        for (AnalyzedComment result : batch) {
+                            // Blocks while the subscriber's buffer is full
+                            publisher.submit(result);
+                        }
+                        return publisher.hasSubscribers();
+                    });
+                    publisher.close();
+                } catch (Exception e) {
+                    logger.error("Comment stream for {} failed: {}", filePath, e.getMessage());
+                    awaitDelivery(publisher);
+                    publisher.closeExceptionally(e);
+                }
+            }, "comment-stream-" + STREAM_COUNTER.incrementAndGet());
+            producer.setDaemon(true);
+            producer.start();
+        }
+    }
+
+    // closeExceptionally drops buffered items, so results published before a failure are delivered first,
+    // unless the subscriber stops taking them for DELIVERY_TIMEOUT_MILLIS
+    private static void awaitDelivery(SubmissionPublisher<?> publisher) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DELIVERY_TIMEOUT_MILLIS);
+        try {
+            while (publisher.hasSubscribers() && publisher.estimateMaximumLag() > 0) {
+                if (System.nanoTime() - deadline > 0) {
+                    logger.warn("Subscriber did not take {} published results within {} ms, dropping them",
+                        publisher.estimateMaximumLag(), DELIVERY_TIMEOUT_MILLIS);
+                    return;
+                }
+                Thread.sleep(10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads the file record by record, scores comments a batch at a time, appends each
+     * scored batch to the preprocessed file and hands it to the consumer. The consumer
+     * returns false to stop the run early.
+     */
+    private void analyzeFile(String filePath, RecordSource source, int batchSize, String fetchType,
+                             BatchConsumer consumer) throws Exception {
         // Log the input parameters
         logger.info("Analyzing comments from file: {} with batch size: {} and fetch type: {}", filePath, batchSize, fetchType);
 
-        // Read all lines from the CSV file
-        List<String> lines = Files.readAllLines(Paths.get(filePath));
-        logger.info("Read {} lines from file", lines.size());
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
 
-        // Determine the comment column index based on fetch type
+        // Determine the comment, post title and subreddit column indexes based on fetch type
         int commentColumnIndex;
+        int titleColumnIndex;
+        int subredditColumnIndex;
         switch (fetchType.toLowerCase()) {
             case "keyword":
             case "subreddit":
                 commentColumnIndex = 2; // Comment is in the third column
+                titleColumnIndex = 1;
+                subredditColumnIndex = 0;
                 break;
             case "post":
                 commentColumnIndex = 1; // Comment is in the second column
+                titleColumnIndex = 0;
+                subredditColumnIndex = -1; // Post files have no subreddit column
                 break;
             default:
                 throw new IllegalArgumentException("Invalid fetch type: " + fetchType);
         }
         logger.info("Using comment column index: {}", commentColumnIndex);
 
-        // Skip the header row and extract comments
-        List<String> comments = lines.stream().skip(1)
-            .map(line -> {
-                String[] columns = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)");
-                if (columns.length <= commentColumnIndex) {
-                    logger.warn("Line has fewer columns than expected. Line: {}", line);
-                    return "";
+        Path outputFilePath = createPreprocessedPath(filePath);
+        logger.info("Writing preprocessed data to: {}", outputFilePath);
+
+        // Stream records from the mapped CSV or Arrow file; quoted CSV comments may span several lines
+        int records = 0;
+        boolean completed = true;
+        long start = System.nanoTime();
+        List<String> batch = new ArrayList<>(batchSize);
+        List<String> titles = new ArrayList<>(batchSize);
+        List<String> subreddits = new ArrayList<>(batchSize);
+        // Batches being scored, oldest first; results are written and published in this order
+        Deque<PendingBatch> pending = new ArrayDeque<>();
+        int maxInFlight = analysisThreads > 1 ? analysisThreads * 2 : 0;
+        PreprocessedParquetWriter parquet = createParquetWriter(filePath, fetchType, outputFilePath);
+        try (FetchRecordReader reader = source.open();
+             PreprocessedCommentWriter writer = new PreprocessedCommentWriter(outputFilePath);
+             PreprocessedParquetWriter parquetWriter = parquet) {
+            reader.next(); // Skip the header row
+            while (completed && reader.next()) {
+                records++;
+                if (reader.fieldCount() <= commentColumnIndex) {
+                    logger.warn("Record {} has {} columns, expected at least {}",
+                        records, reader.fieldCount(), commentColumnIndex + 1);
+                    continue;
+                }
+                if (!reader.isBlank(commentColumnIndex)) {
+                    batch.add(reader.getString(commentColumnIndex).trim());
+                    titles.add(reader.getString(titleColumnIndex));
+                    subreddits.add(subredditColumnIndex < 0 ? null : reader.getString(subredditColumnIndex));
                 }
-                return columns[commentColumnIndex].trim();
-            })
-            .filter(comment -> !comment.isEmpty())
-            .collect(Collectors.toList());
-        logger.info("Extracted {} comments for analysis", comments.size());
+                if (batch.size() == batchSize) {
+                    pending.add(submitBatch(batch, titles, subreddits));
+                    batch = new ArrayList<>(batchSize);
+                    titles = new ArrayList<>(batchSize);
+                    subreddits = new ArrayList<>(batchSize);
+                    completed = emitCompleted(pending, maxInFlight, writer, parquetWriter, consumer);
+                }
+            }
+            if (completed && !batch.isEmpty()) {
+                pending.add(submitBatch(batch, titles, subreddits));
+            }
+            if (completed) {
+                completed = emitCompleted(pending, 0, writer, parquetWriter, consumer);
+            }
+            long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            logger.info("Read {} records, analyzed {} comments in {} ms with {} threads ({} comments/s)",
+                records, writer.getRows(), millis, analysisThreads, writer.getRows() * 1000 / millis);
+        } finally {
+            for (PendingBatch abandoned : pending) {
+                abandoned.sentiments.cancel(false);
+            }
+        }
+        ModelRegistry.getInstance().logRunStats();
 
-        // Process comments in batches
-        List<String> allResults = new ArrayList<>();
-        for (int i = 0; i < comments.size(); i += batchSize) {
-            int batchEnd = Math.min(i + batchSize, comments.size());
-            List<String> batch = comments.subList(i, batchEnd);
-            logger.info("Processing batch {}-{} of {}", i, batchEnd, comments.size());
-            
-            List<String> batchResults = new ArrayList<>();
-            for (String comment : batch) {
-                String sentiment = sentimentAnalysisService.analyzeSentiment(comment);
-                batchResults.add(sentiment);
+        if (!completed) {
+            logger.info("Analysis of {} stopped early, partial preprocessed data kept at {}", filePath, outputFilePath);
+            return;
+        }
+        // Queue the HDFS copy with the same structure; the analysis does not wait for it
+        uploadPreprocessed(outputFilePath);
+        if (parquet != null) {
+            logger.info("Wrote {} comments as Parquet under {}", parquet.getRows(), preprocessedParquetDir);
+            uploadParquet(parquet);
+        }
+        logger.info("Successfully saved preprocessed comments and sentiments");
+    }
+
+    // Scores the batch on the analysis pool, or on this thread when running single-threaded
+    private PendingBatch submitBatch(List<String> batch, List<String> titles, List<String> subreddits) {
+        PendingBatch pending = new PendingBatch(batch, titles, subreddits);
+        pending.sentiments = analysisThreads <= 1
+            ? CompletableFuture.completedFuture(pending.score())
+            : AnalysisPool.forThreads(analysisThreads).submit(pending::score);
+        return pending;
+    }
+
+    /**
+     * Writes and publishes the oldest batches, waiting for each in turn, until at most
+     * {@code keep} are left in flight. Returns false if the consumer asked to stop.
+     */
+    private boolean emitCompleted(Deque<PendingBatch> pending, int keep, PreprocessedCommentWriter writer,
+                                  PreprocessedParquetWriter parquet, BatchConsumer consumer) throws Exception {
+        while (pending.size() > keep) {
+            PendingBatch next = pending.poll();
+            List<String> sentiments;
+            try {
+                sentiments = next.sentiments.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : new RuntimeException(cause.getMessage(), cause);
+            }
+            logger.info("Completed batch of {} comments after {} analyzed", next.comments.size(), writer.getRows());
+            List<AnalyzedComment> results = new ArrayList<>(next.comments.size());
+            for (int i = 0; i < next.comments.size(); i++) {
+                writer.write(next.comments.get(i), sentiments.get(i));
+                if (parquet != null) {
+                    parquet.write(next.comments.get(i), sentiments.get(i), next.scores.get(i), next.backends.get(i),
+                        next.subreddits.get(i));
+                }
+                results.add(new AnalyzedComment(next.comments.get(i), sentiments.get(i),
+                    next.titles.get(i), next.subreddits.get(i)));
+            }
+            writer.flush();
+            if (!consumer.accept(results)) {
+                return false;
             }
-            allResults.addAll(batchResults);
-            logger.info("Completed batch with {} results", batchResults.size());
         }
-        logger.info("Completed sentiment analysis for all comments. Total results: {}", allResults.size());
+        return true;
+    }
 
-        try {
-            // Save preprocessed comments and sentiments
-            savePreprocessedCommentsNIO(filePath, comments, allResults);
-            logger.info("Successfully saved preprocessed comments and sentiments");
-        } catch (IOException e) {
-            logger.error("Failed to save preprocessed data: {}", e.getMessage(), e);
-            throw e;
+    // Work-stealing, so a worker that finishes a cheap batch takes the next one straight away.
+    // One per thread count, shared by every RedditService using it and created on first use;
+    // its daemon threads exit when idle.
+    private static final class AnalysisPool {
+        private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+        static ForkJoinPool forThreads(int threads) {
+            return POOLS.computeIfAbsent(threads, ForkJoinPool::new);
         }
+    }
 
-        return allResults;
+    private final class PendingBatch {
+        private final List<String> comments;
+        // One per comment; subreddits are null for post fetches
+        private final List<String> titles;
+        private final List<String> subreddits;
+        private Future<List<String>> sentiments;
+        // Backend that produced each sentiment, which may be a fallback, and its score; read once sentiments is done
+        private List<String> backends;
+        private List<Double> scores;
+
+        PendingBatch(List<String> comments, List<String> titles, List<String> subreddits) {
+            this.comments = comments;
+            this.titles = titles;
+            this.subreddits = subreddits;
+        }
+
+        List<String> score() {
+            List<SentimentResult> scored = workerAnalyzer.get().scoreSentimentBatch(comments);
+            List<String> labels = new ArrayList<>(scored.size());
+            backends = new ArrayList<>(scored.size());
+            scores = new ArrayList<>(scored.size());
+            for (SentimentResult result : scored) {
+                labels.add(result.getSentiment());
+                backends.add(result.getSource());
+                scores.add(result.getScore());
+            }
+            return labels;
+        }
+    }
+
+    // Hands the records of a followed file to analyzeFile, which reads them like a finished file
+    private static final class FollowedFetchReader implements FetchRecordReader {
+        private final FetchFileFollower follower;
+        private String[] record;
+
+        FollowedFetchReader(FetchFileFollower follower) {
+            this.follower = follower;
+            follower.start();
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            try {
+                record = follower.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while following the fetch output");
+            }
+            return record != null;
+        }
+
+        // The follower only hands out records the writer has finished
+        @Override
+        public boolean nextComplete() throws IOException {
+            return next();
+        }
+
+        @Override
+        public int fieldCount() {
+            return record.length;
+        }
+
+        @Override
+        public boolean isBlank(int index) {
+            return record[index].trim().isEmpty();
+        }
+
+        @Override
+        public String getString(int index) {
+            return record[index];
+        }
+
+        @Override
+        public String[] toArray() {
+            return record.clone();
+        }
+
+        @Override
+        public void close() {
+            follower.close();
+        }
+    }
+
+    private interface BatchConsumer {
+        // Returns false to stop reading further comments
+        boolean accept(List<AnalyzedComment> batch) throws IOException;
+    }
+
+    /**
+     * Told when the fetch is about to write the output file, so comments can be analyzed
+     * while the fetch is still running.
+     */
+    public interface FetchListener {
+        // finished turns true once nothing more will be written to outputFile
+        void fetchStarted(Path outputFile, BooleanSupplier finished);
+    }
+
+    private interface ApiFetch {
+        int run(RedditApiClient client, Path outputFile) throws IOException;
+    }
+
+    // Raw fetch output is written as CSV, or as an Arrow IPC stream when fetch_output_format=arrow
+    private static String outputExtension() {
+        return "arrow".equalsIgnoreCase(AppConfig.getFetchOutputFormat())
+            ? FetchRecordReader.ARROW_EXTENSION : FetchRecordReader.CSV_EXTENSION;
+    }
+
+    // True when fetches use the built-in Reddit API client rather than the Python fetch worker
+    static boolean usesJavaFetchClient() {
+        return !"python".equalsIgnoreCase(AppConfig.getRedditFetchClient());
+    }
+
+    private void runFetch(String localOutputFile, FetchListener listener, ApiFetch apiFetch,
+                          PythonFetchWorker.FetchRequest workerRequest) throws IOException {
+        Path outputPath = Paths.get(localOutputFile);
+        if (outputPath.getParent() != null) {
+            Files.createDirectories(outputPath.getParent());
+        }
+        AtomicBoolean finished = new AtomicBoolean();
+        if (listener != null) {
+            listener.fetchStarted(outputPath, finished::get);
+        }
+        try {
+            int rows;
+            if (usesJavaFetchClient()) {
+                rows = apiFetch.run(ModelRegistry.getInstance().getRedditApiClient(), outputPath);
+            } else {
+                logger.info("Sending fetch request: {}", workerRequest);
+                rows = ModelRegistry.getInstance().getFetchWorker().fetch(workerRequest, row -> { });
+            }
+            logger.info("Fetched {} rows into {}", rows, localOutputFile);
+        } finally {
+            finished.set(true);
+        }
     }
 
     public String fetchByKeyword(String keyword, int numPosts, int commentsPerPost, String sortBy, String outputFile) {
+        return fetchByKeyword(keyword, numPosts, commentsPerPost, sortBy, outputFile, null);
+    }
+
+    public String fetchByKeyword(String keyword, int numPosts, int commentsPerPost, String sortBy, String outputFile,
+                                 FetchListener listener) {
         try {
             String localOutputFile;
             if (outputFile != null) {
                 // If output file is provided, ensure it's in the correct directory structure
                 String timestamp = LocalDateTime.now().format(DATE_FORMAT);
-                Path outputDir = Paths.get(RAW_DATA_DIR, "keyword", timestamp);
+                Path outputDir = rawDataDir.resolve("keyword").resolve(timestamp);
                 Files.createDirectories(outputDir);
-                // Ensure output file has .csv extension
-                if (!outputFile.toLowerCase().endsWith(".csv")) {
-                    outputFile = outputFile + ".csv";
+                // Ensure output file has the extension of the configured format
+                if (!outputFile.toLowerCase().endsWith(outputExtension())) {
+                    outputFile = outputFile + outputExtension();
                 }
                 localOutputFile = outputDir.resolve(outputFile).toString();
             } else {
@@ -223,21 +648,12 @@ public class RedditService {
             
             logger.info("Using output file path: {}", localOutputFile);
             
-            // Run Python script to fetch data
-            List<String> args = new ArrayList<>();
-            args.add(keyword);
-            args.add(String.valueOf(numPosts));
-            args.add(String.valueOf(commentsPerPost));
-            args.add(sortBy);
-            args.add(localOutputFile);
+            runFetch(localOutputFile, listener,
+                (client, path) -> client.fetchByKeyword(keyword, numPosts, commentsPerPost, sortBy, path),
+                PythonFetchWorker.FetchRequest.keyword(keyword, numPosts, commentsPerPost, sortBy, localOutputFile));
             
-            PythonScriptRunner.runScript(PYTHON_SCRIPTS_PATH + "/fetch_by_keyword.py", args);
-            
-            // Save the same data to HDFS
-            if (Files.exists(Paths.get(localOutputFile))) {
-                String hdfsPath = hdfsService.createHDFSOutputPath("keyword", keyword);
-                hdfsService.saveToHDFS(hdfsPath, Files.readAllLines(Paths.get(localOutputFile)));
-            }
+            // Save the same data to HDFS in the background
+            uploadRaw("keyword", keyword, localOutputFile);
             
             return localOutputFile;
         } catch (Exception e) {
@@ -247,16 +663,21 @@ public class RedditService {
     }
 
     public String fetchBySubreddit(String subreddit, int numPosts, int commentsPerPost, String sortBy, String outputFile) {
+        return fetchBySubreddit(subreddit, numPosts, commentsPerPost, sortBy, outputFile, null);
+    }
+
+    public String fetchBySubreddit(String subreddit, int numPosts, int commentsPerPost, String sortBy, String outputFile,
+                                   FetchListener listener) {
         try {
             String localOutputFile;
             if (outputFile != null) {
                 // If output file is provided, ensure it's in the correct directory structure
                 String timestamp = LocalDateTime.now().format(DATE_FORMAT);
-                Path outputDir = Paths.get(RAW_DATA_DIR, "subreddit", timestamp);
+                Path outputDir = rawDataDir.resolve("subreddit").resolve(timestamp);
                 Files.createDirectories(outputDir);
-                // Ensure output file has .csv extension
-                if (!outputFile.toLowerCase().endsWith(".csv")) {
-                    outputFile = outputFile + ".csv";
+                // Ensure output file has the extension of the configured format
+                if (!outputFile.toLowerCase().endsWith(outputExtension())) {
+                    outputFile = outputFile + outputExtension();
                 }
                 localOutputFile = outputDir.resolve(outputFile).toString();
             } else {
@@ -265,23 +686,15 @@ public class RedditService {
             
             logger.info("Using output file path: {}", localOutputFile);
             
-            List<String> args = new ArrayList<>();
-            args.add(subreddit.trim());
-            args.add(Integer.toString(numPosts));
-            args.add(Integer.toString(commentsPerPost));
-            args.add(sortBy.trim());
-            args.add(localOutputFile);
-            
-            logger.info("Running script with args: subreddit={}, numPosts={}, commentsPerPost={}, sortBy={}", 
+            logger.info("Fetching with args: subreddit={}, numPosts={}, commentsPerPost={}, sortBy={}", 
                 subreddit, numPosts, commentsPerPost, sortBy);
             
-            PythonScriptRunner.runScript(PYTHON_SCRIPTS_PATH + "/fetch_by_subreddit.py", args);
+            runFetch(localOutputFile, listener,
+                (client, path) -> client.fetchBySubreddit(subreddit, numPosts, commentsPerPost, sortBy, path),
+                PythonFetchWorker.FetchRequest.subreddit(subreddit, numPosts, commentsPerPost, sortBy, localOutputFile));
             
-            // Save to HDFS
-            if (Files.exists(Paths.get(localOutputFile))) {
-                String hdfsPath = hdfsService.createHDFSOutputPath("subreddit", subreddit);
-                hdfsService.saveToHDFS(hdfsPath, Files.readAllLines(Paths.get(localOutputFile)));
-            }
+            // Save the same data to HDFS in the background
+            uploadRaw("subreddit", subreddit, localOutputFile);
             
             return localOutputFile;
         } catch (Exception e) {
@@ -291,16 +704,20 @@ public class RedditService {
     }
 
     public String fetchByPostLink(String postLink, int commentsPerPost, String outputFile) {
+        return fetchByPostLink(postLink, commentsPerPost, outputFile, null);
+    }
+
+    public String fetchByPostLink(String postLink, int commentsPerPost, String outputFile, FetchListener listener) {
         try {
             String localOutputFile;
             if (outputFile != null) {
                 // If output file is provided, ensure it's in the correct directory structure
                 String timestamp = LocalDateTime.now().format(DATE_FORMAT);
-                Path outputDir = Paths.get(RAW_DATA_DIR, "post", timestamp);
+                Path outputDir = rawDataDir.resolve("post").resolve(timestamp);
                 Files.createDirectories(outputDir);
-                // Ensure output file has .csv extension
-                if (!outputFile.toLowerCase().endsWith(".csv")) {
-                    outputFile = outputFile + ".csv";
+                // Ensure output file has the extension of the configured format
+                if (!outputFile.toLowerCase().endsWith(outputExtension())) {
+                    outputFile = outputFile + outputExtension();
                 }
                 localOutputFile = outputDir.resolve(outputFile).toString();
             } else {
@@ -309,18 +726,12 @@ public class RedditService {
             
             logger.info("Using output file path: {}", localOutputFile);
             
-            List<String> args = new ArrayList<>();
-            args.add(postLink);
-            args.add(String.valueOf(commentsPerPost));
-            args.add(localOutputFile);
+            runFetch(localOutputFile, listener,
+                (client, path) -> client.fetchByPostLink(postLink, commentsPerPost, path),
+                PythonFetchWorker.FetchRequest.post(postLink, commentsPerPost, localOutputFile));
             
-            PythonScriptRunner.runScript(PYTHON_SCRIPTS_PATH + "/fetch_by_post.py", args);
-            
-            // Save to HDFS
-            if (Files.exists(Paths.get(localOutputFile))) {
-                String hdfsPath = hdfsService.createHDFSOutputPath("post", postLink);
-                hdfsService.saveToHDFS(hdfsPath, Files.readAllLines(Paths.get(localOutputFile)));
-            }
+            // Save the same data to HDFS in the background
+            uploadRaw("post", postLink, localOutputFile);
             
             return localOutputFile;
         } catch (Exception e) {
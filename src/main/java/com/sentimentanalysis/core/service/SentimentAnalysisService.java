@@ -1,47 +1,40 @@
 package com.sentimentanalysis.core.service;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import org.apache.spark.ml.PipelineModel;
+import org.apache.spark.ml.linalg.Vector;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SparkSession;
-import org.apache.spark.sql.expressions.UserDefinedFunction;
+import org.apache.spark.sql.api.java.UDF1;
 import org.apache.spark.sql.functions;
-import static org.apache.spark.sql.functions.udf;
 import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.StructType;
 import org.apache.spark.sql.types.StructField;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-
-import edu.stanford.nlp.ling.CoreAnnotations;
-import edu.stanford.nlp.neural.rnn.RNNCoreAnnotations;
-import edu.stanford.nlp.pipeline.Annotation;
-import edu.stanford.nlp.pipeline.StanfordCoreNLP;
-import edu.stanford.nlp.sentiment.SentimentCoreAnnotations;
-import edu.stanford.nlp.trees.Tree;
-import edu.stanford.nlp.util.CoreMap;
+import com.sentimentanalysis.config.AppConfig;
+import com.sentimentanalysis.core.model.SentimentResult;
+import com.sentimentanalysis.util.TextNormalizer;
 
 public class SentimentAnalysisService implements SentimentAnalyzer {
-    private static SparkSession spark;
+    public static final String MODEL_PATH = "hdfs://localhost:9000/models/sentiment_analysis_model";
+    public static final String NORMALIZE_UDF = "normalizeText";
+    // Sources of results answered by the fallbacks instead of the model
+    static final String HUGGINGFACE_SOURCE = "HuggingFace API";
+    static final String CORENLP_SOURCE = "Stanford CoreNLP (sentence average)";
     private final Properties config;
-    private PipelineModel model;
-    private StanfordCoreNLP pipeline;
+    private final HuggingFaceClient huggingFaceClient;
+    private final CircuitBreaker hdfsBreaker;
+    private final CircuitBreaker huggingFaceBreaker;
+    private final CircuitBreaker coreNLPBreaker;
 
     public SentimentAnalysisService() {
         config = new Properties();
@@ -50,30 +43,29 @@ public class SentimentAnalysisService implements SentimentAnalyzer {
         } catch (IOException e) {
             throw new RuntimeException("Failed to load configuration", e);
         }
+        huggingFaceClient = new HuggingFaceClient(
+            URI.create(AppConfig.getHuggingFaceEndpoint()),
+            config.getProperty("api_key"),
+            AppConfig.getHuggingFaceBatchSize(),
+            AppConfig.getHuggingFaceMaxInFlight());
+        hdfsBreaker = newBreaker("HDFS Model", AppConfig.getHDFSModelTimeoutMillis());
+        huggingFaceBreaker = newBreaker("HuggingFace API", AppConfig.getHuggingFaceTimeoutMillis());
+        coreNLPBreaker = newBreaker("Stanford CoreNLP", AppConfig.getCoreNLPTimeoutMillis());
+        // Spark, the HDFS model and CoreNLP are shared through ModelRegistry and loaded on first use
+    }
 
-        // Initialize Stanford NLP pipeline
-        Properties stanfordProps = new Properties();
-        stanfordProps.setProperty("annotators", "tokenize, ssplit, parse, sentiment");
-        pipeline = new StanfordCoreNLP(stanfordProps);
-
-        // Initialize Spark session
-        if (spark == null) {
-            spark = SparkSession.builder()
-                .appName("SentimentAnalysis")
-                .master("local[*]")
-                .config("spark.driver.memory", "2g")
-                .config("spark.executor.memory", "2g")
-                .getOrCreate();
-        }
+    private static CircuitBreaker newBreaker(String name, long timeoutMillis) {
+        return new CircuitBreaker(name, timeoutMillis,
+            AppConfig.getCircuitBreakerFailureRate(),
+            AppConfig.getCircuitBreakerSlowCallMillis(),
+            AppConfig.getCircuitBreakerSlowCallRate(),
+            AppConfig.getCircuitBreakerOpenSeconds());
+    }
 
-        // Load and use the HDFS model
-        try {
-            String modelPath = "hdfs://localhost:9000/models/sentiment_analysis_model";
-            model = PipelineModel.load(modelPath);
-        } catch (Exception e) {
-            System.err.println("Failed to load HDFS model: " + e.getMessage());
-            // Will fallback to HuggingFace API
-        }
+    // Registers the normalization UDF once per session instead of once per comment
+    public static void registerUdfs(SparkSession spark) {
+        spark.udf().register(NORMALIZE_UDF,
+            (UDF1<String, String>) SentimentAnalysisService::normalizeText, DataTypes.StringType);
     }
 
     public static class TextRow {
@@ -94,65 +86,76 @@ public class SentimentAnalysisService implements SentimentAnalyzer {
         }
     }
 
+    public static String normalizeText(String inputText) {
+        return TextNormalizer.normalize(inputText);
+    }
+
     public String analyzeWithHDFSModel(String text) throws Exception {
-        // Create schema for DataFrame
+        return analyzeWithHDFSModelBatch(Collections.singletonList(text)).get(0);
+    }
+
+    /**
+     * Scores a whole batch with a single DataFrame and a single model transform.
+     * Predictions are returned in the same order as the input texts.
+     */
+    public List<String> analyzeWithHDFSModelBatch(List<String> texts) throws Exception {
+        List<SentimentResult> scored = scoreWithHDFSModelBatch(texts);
+        List<String> results = new ArrayList<>(scored.size());
+        for (SentimentResult result : scored) {
+            results.add(result.getSentiment());
+        }
+        return results;
+    }
+
+    // Like analyzeWithHDFSModelBatch, keeping the predicted label's probability as the score
+    public List<SentimentResult> scoreWithHDFSModelBatch(List<String> texts) throws Exception {
+        PipelineModel model;
+        try {
+            model = ModelRegistry.getInstance().getHDFSModel();
+        } catch (RuntimeException e) {
+            throw new Exception("HDFS model not available. Falling back to HuggingFace API.", e);
+        }
+        if (texts.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Create schema for DataFrame; the id column lets us restore input order after the transform
         StructType schema = new StructType(new StructField[]{
+            new StructField("id", DataTypes.IntegerType, false, org.apache.spark.sql.types.Metadata.empty()),
             new StructField("text", DataTypes.StringType, false, org.apache.spark.sql.types.Metadata.empty())
         });
 
-        // Create UDF for text normalization
-        UserDefinedFunction normalizeText = udf((String inputText) -> {
-            if (inputText == null) return "";
-            inputText = inputText.replaceAll("http[s]?://\\S+", "");
-            inputText = inputText.replaceAll("@\\w+", "");
-            inputText = inputText.replaceAll("#\\w+", "");
-            inputText = inputText.toLowerCase();
-            inputText = inputText.replaceAll("[^a-zA-Z0-9\\s]", "");
-            inputText = Pattern.compile("(.)\\1{2,}").matcher(inputText).replaceAll("$1$1");
-            return inputText;
-        }, DataTypes.StringType);
-
-        // Create DataFrame with input text
-        List<Row> data = new ArrayList<>();
-        data.add(org.apache.spark.sql.RowFactory.create(text));
+        // Create DataFrame with all input texts
+        List<Row> data = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            data.add(org.apache.spark.sql.RowFactory.create(i, texts.get(i)));
+        }
+        SparkSession spark = ModelRegistry.getInstance().getSparkSession();
         Dataset<Row> inputData = spark.createDataFrame(data, schema)
-            .withColumn("SentimentText", normalizeText.apply(functions.col("text")));
+            .withColumn("SentimentText", functions.callUDF(NORMALIZE_UDF, functions.col("text")));
 
         // Use the model
-        if (model == null) {
-            throw new Exception("HDFS model not available. Falling back to HuggingFace API.");
-        }
         Dataset<Row> predictions = model.transform(inputData);
-        Row prediction = predictions.select("prediction").first();
-        double predictionValue = prediction.getDouble(0);
-        return predictionValue == 1.0 ? "Positive" : "Negative";
+        List<Row> rows = predictions.select("id", "prediction", "probability").collectAsList();
+
+        SentimentResult[] results = new SentimentResult[texts.size()];
+        for (Row row : rows) {
+            int id = row.getInt(0);
+            double prediction = row.getDouble(1);
+            Vector probability = row.getAs(2);
+            results[id] = new SentimentResult(texts.get(id), probability.apply((int) prediction),
+                prediction == 1.0 ? "Positive" : "Negative", getName());
+        }
+        return Arrays.asList(results);
     }
 
     public String analyzeWithHuggingFaceAPI(String text) throws IOException {
-        String apiKey = config.getProperty("api_key");
-        String urlString = "https://api-inference.huggingface.co/models/cardiffnlp/twitter-roberta-base-sentiment";
-        URL url = new URL(urlString);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestProperty("Authorization", "Bearer " + apiKey);
-        conn.setRequestMethod("POST");
-        conn.setDoOutput(true);
-
-        // Convert the single text input into JSON format for the request body
-        String jsonInputString = "{\"inputs\": \"" + text.replace("\"", "\\\"") + "\"}";
-
-        try (OutputStream os = conn.getOutputStream()) {
-            byte[] input = jsonInputString.getBytes("utf-8");
-            os.write(input, 0, input.length);
-        }
-
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()))) {
-            String inputLine;
-            StringBuilder content = new StringBuilder();
-            while ((inputLine = in.readLine()) != null) {
-                content.append(inputLine);
-            }
-            return parseSentimentResult(content.toString());
-        }
+        return huggingFaceClient.analyze(Collections.singletonList(text)).get(0);
+    }
+
+    // Sends the batch as list-form requests over the shared keep-alive client
+    public List<String> analyzeWithHuggingFaceAPIBatch(List<String> texts) throws IOException {
+        return huggingFaceClient.analyze(texts);
     }
 
     public String analyzeWithStanfordNLP(String text) {
@@ -160,23 +163,37 @@ public class SentimentAnalysisService implements SentimentAnalyzer {
             throw new IllegalArgumentException("Text cannot be empty");
         }
 
-        Annotation annotation = new Annotation(text);
-        pipeline.annotate(annotation);
+        return averageSentenceSentiment(ModelRegistry.getInstance().getCoreNLPSentenceScorer().scoreSentences(text));
+    }
+
+    // Annotates the batch on the shared CoreNLP worker pool; results keep the input order
+    public List<String> analyzeWithStanfordNLPBatch(List<String> texts) {
+        for (String text : texts) {
+            if (text == null || text.trim().isEmpty()) {
+                throw new IllegalArgumentException("Text cannot be empty");
+            }
+        }
+
+        List<int[]> sentenceClasses = ModelRegistry.getInstance().getCoreNLPSentenceScorer().scoreSentences(texts);
+        List<String> results = new ArrayList<>(sentenceClasses.size());
+        for (int[] classes : sentenceClasses) {
+            results.add(averageSentenceSentiment(classes));
+        }
+        return results;
+    }
 
-        // Get the sentiment scores for each sentence
-        List<CoreMap> sentences = annotation.get(CoreAnnotations.SentencesAnnotation.class);
-        if (sentences == null || sentences.isEmpty()) {
-            throw new IllegalStateException("No sentences found in the text");
+    private static String averageSentenceSentiment(int[] sentenceClasses) {
+        // Emoji- or punctuation-only text has no sentences; it is neutral rather than failing its whole batch
+        if (sentenceClasses.length == 0) {
+            return "Neutral";
         }
 
-        // Calculate average sentiment
+        // Calculate average sentiment over the predicted class of each sentence
         double totalSentiment = 0;
-        for (CoreMap sentence : sentences) {
-            Tree tree = sentence.get(SentimentCoreAnnotations.SentimentAnnotatedTree.class);
-            int sentiment = RNNCoreAnnotations.getPredictedClass(tree);
+        for (int sentiment : sentenceClasses) {
             totalSentiment += sentiment;
         }
-        double averageSentiment = totalSentiment / sentences.size();
+        double averageSentiment = totalSentiment / sentenceClasses.length;
 
         // Convert numeric sentiment to text
         // Stanford NLP uses a 5-point scale: 0 (very negative) to 4 (very positive)
@@ -193,51 +210,73 @@ public class SentimentAnalysisService implements SentimentAnalyzer {
         }
     }
 
-    private String parseSentimentResult(String result) {
-        JsonArray jsonArray = JsonParser.parseString(result).getAsJsonArray();
-        JsonArray scores = jsonArray.get(0).getAsJsonArray();
-        
-        double maxScore = Double.NEGATIVE_INFINITY;
-        String sentiment = "";
-        
-        for (JsonElement element : scores) {
-            JsonObject score = element.getAsJsonObject();
-            double currentScore = score.get("score").getAsDouble();
-            if (currentScore > maxScore) {
-                maxScore = currentScore;
-                String label = score.get("label").getAsString();
-                // Convert RoBERTa model labels to human-readable format
-                switch (label) {
-                    case "LABEL_0":
-                        sentiment = "Negative";
-                        break;
-                    case "LABEL_1":
-                        sentiment = "Neutral";
-                        break;
-                    case "LABEL_2":
-                        sentiment = "Positive";
-                        break;
-                    default:
-                        sentiment = label;
-                }
-            }
+    // Every call goes through the batch chain so both share the circuit breakers
+    @Override
+    public String analyzeSentiment(String text) {
+        return analyzeSentimentBatch(Collections.singletonList(text)).get(0);
+    }
+
+    @Override
+    public List<String> analyzeSentimentBatch(List<String> texts) {
+        List<SentimentResult> scored = scoreSentimentBatch(texts);
+        List<String> results = new ArrayList<>(scored.size());
+        for (SentimentResult result : scored) {
+            results.add(result.getSentiment());
         }
-        
-        return sentiment;
+        return results;
     }
 
+    // Tries HDFS, HuggingFace and CoreNLP in turn; backends with an open circuit are skipped without a call.
+    // Only results from the HDFS model have this analyzer's name as their source.
     @Override
-    public String analyzeSentiment(String text) {
+    public List<SentimentResult> scoreSentimentBatch(List<String> texts) {
         try {
-            return analyzeWithHDFSModel(text);
+            // The first call loads Spark and the model outside the deadline
+            return hdfsBreaker.execute(ModelRegistry.getInstance()::getHDFSModel,
+                () -> scoreWithHDFSModelBatch(texts), texts.size());
+        } catch (CircuitBreaker.CallNotPermittedException e) {
+            // Known to be down; go straight to the next backend
         } catch (Exception e) {
-            System.err.println("HDFS model failed, falling back to HuggingFace API: " + e.getMessage());
-            try {
-                return analyzeWithHuggingFaceAPI(text);
-            } catch (IOException ex) {
-                System.err.println("HuggingFace API failed, falling back to Stanford NLP: " + ex.getMessage());
-                return analyzeWithStanfordNLP(text);
-            }
+            System.err.println("HDFS model failed for batch, falling back to HuggingFace API: " + e.getMessage());
+        }
+        try {
+            return attribute(texts, huggingFaceBreaker.execute(() -> analyzeWithHuggingFaceAPIBatch(texts), texts.size()),
+                HUGGINGFACE_SOURCE);
+        } catch (CircuitBreaker.CallNotPermittedException e) {
+            // Known to be down; go straight to the next backend
+        } catch (Exception e) {
+            System.err.println("HuggingFace API failed for batch, falling back to Stanford NLP: " + e.getMessage());
+        }
+        try {
+            return attribute(texts, coreNLPBreaker.execute(ModelRegistry.getInstance()::getStanfordCoreNLP,
+                () -> analyzeWithStanfordNLPBatch(texts), texts.size()), CORENLP_SOURCE);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("All sentiment backends failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static List<SentimentResult> attribute(List<String> texts, List<String> labels, String source) {
+        List<SentimentResult> results = new ArrayList<>(labels.size());
+        for (int i = 0; i < labels.size(); i++) {
+            results.add(new SentimentResult(texts.get(i), Double.NaN, labels.get(i), source));
+        }
+        return results;
+    }
+
+    public List<CircuitBreaker> getCircuitBreakers() {
+        return Arrays.asList(hdfsBreaker, huggingFaceBreaker, coreNLPBreaker);
+    }
+
+    // Read from the saved pipeline's metadata only, so checking it neither starts Spark nor loads the model.
+    // Null while the metadata cannot be read, so nothing is stored under a made-up version.
+    @Override
+    public String getModelVersion() {
+        try {
+            return getName() + "@" + ModelRegistry.getInstance().getModelVersion();
+        } catch (RuntimeException e) {
+            return null;
         }
     }
 
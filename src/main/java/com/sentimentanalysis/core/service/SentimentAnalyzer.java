@@ -1,9 +1,41 @@
 package com.sentimentanalysis.core.service;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sentimentanalysis.core.model.SentimentResult;
+
 public interface SentimentAnalyzer {
     String analyzeSentiment(String text);
     String getName();
     default boolean isDetailedSentiment() {
         return false;
     }
+
+    // Identifies the model behind the results; stored results from another version are discarded.
+    // Null while the version cannot be determined, in which case results are not stored.
+    default String getModelVersion() {
+        return getName();
+    }
+
+    // Scores a batch of texts, returning one sentiment per text in input order.
+    // Backends that can amortize per-call overhead should override this.
+    default List<String> analyzeSentimentBatch(List<String> texts) {
+        List<String> results = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            results.add(analyzeSentiment(text));
+        }
+        return results;
+    }
+
+    // Like analyzeSentimentBatch, with each result's source naming the backend that produced it.
+    // Analyzers that fall back to other backends override this so fallback results can be told apart.
+    default List<SentimentResult> scoreSentimentBatch(List<String> texts) {
+        List<String> labels = analyzeSentimentBatch(texts);
+        List<SentimentResult> results = new ArrayList<>(labels.size());
+        for (int i = 0; i < labels.size(); i++) {
+            results.add(new SentimentResult(texts.get(i), Double.NaN, labels.get(i), getName()));
+        }
+        return results;
+    }
 }
@@ -0,0 +1,134 @@
+package com.sentimentanalysis.core.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded map from a 64-bit key (backend plus normalized text hash) to a sentiment label.
+ * Eviction is frequency-aware: the least recently used entries are sampled and the one
+ * with the lowest hit count is dropped, so frequent texts such as "[deleted]" survive a
+ * long scan of one-off comments. Hit counts are halved periodically so old favourites
+ * eventually age out.
+ */
+public class SentimentCache {
+    private static final Logger logger = LoggerFactory.getLogger(SentimentCache.class);
+    private static final int EVICTION_SAMPLE = 8;
+    private static final int MAX_FREQUENCY = 15;
+
+    private final int maxEntries;
+    private final long agingInterval;
+    private final LinkedHashMap<Long, Entry> entries;
+    private long operationsSinceAging;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public SentimentCache(int maxEntries) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.agingInterval = Math.max(1000L, 10L * this.maxEntries);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    // Returns the cached label, or null on a miss
+    public synchronized String get(long key) {
+        Entry entry = entries.get(key);
+        age();
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        if (entry.frequency < MAX_FREQUENCY) {
+            entry.frequency++;
+        }
+        return entry.sentiment;
+    }
+
+    public synchronized void put(long key, String sentiment) {
+        if (maxEntries == 0 || sentiment == null) {
+            return;
+        }
+        Entry existing = entries.get(key);
+        if (existing != null) {
+            existing.sentiment = sentiment;
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+        entries.put(key, new Entry(sentiment));
+        age();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public void logStats() {
+        logger.info("Sentiment cache: {}", this);
+    }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = hits + misses;
+        return String.format("%d/%d entries, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+            entries.size(), maxEntries, hits, misses, lookups == 0 ? 0.0 : 100.0 * hits / lookups, evictions);
+    }
+
+    // Drops the least frequently used of the oldest few entries; ties go to the oldest
+    private void evict() {
+        Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+        Long victim = null;
+        int lowest = Integer.MAX_VALUE;
+        for (int i = 0; i < EVICTION_SAMPLE && iterator.hasNext(); i++) {
+            Map.Entry<Long, Entry> candidate = iterator.next();
+            if (candidate.getValue().frequency < lowest) {
+                lowest = candidate.getValue().frequency;
+                victim = candidate.getKey();
+            }
+        }
+        if (victim != null) {
+            entries.remove(victim);
+            evictions++;
+        }
+    }
+
+    private void age() {
+        if (++operationsSinceAging < agingInterval) {
+            return;
+        }
+        operationsSinceAging = 0;
+        for (Entry entry : entries.values()) {
+            entry.frequency >>= 1;
+        }
+    }
+
+    private static final class Entry {
+        String sentiment;
+        int frequency;
+
+        Entry(String sentiment) {
+            this.sentiment = sentiment;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.sentimentanalysis.core.service;
+
+/**
+ * The five-class sentiment scale. Backends spell its ends differently, CoreNLP as
+ * "Very negative" and the others as "Very Negative", so labels are matched ignoring case.
+ */
+final class SentimentLabels {
+    static final String[] CLASSES = {
+        "Very Negative", "Negative", "Neutral", "Positive", "Very Positive"
+    };
+
+    private SentimentLabels() {
+    }
+
+    // Position on the scale, 0 very negative to 4 very positive, or -1 for other labels
+    static int classIndex(String label) {
+        if (label == null) {
+            return -1;
+        }
+        for (int i = 0; i < CLASSES.length; i++) {
+            if (CLASSES[i].equalsIgnoreCase(label)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
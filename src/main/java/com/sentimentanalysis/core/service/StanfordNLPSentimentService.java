@@ -1,23 +1,56 @@
 package com.sentimentanalysis.core.service;
 
-import edu.stanford.nlp.pipeline.CoreDocument;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sentimentanalysis.config.AppConfig;
+
 import edu.stanford.nlp.pipeline.StanfordCoreNLP;
-import java.util.Properties;
 
 public class StanfordNLPSentimentService implements SentimentAnalyzer {
-    private final StanfordCoreNLP pipeline;
+    private final CoreNLPSentenceScorer scorer;
 
+    // Uses the shared pipeline and sentence cache from ModelRegistry, loaded on first analysis
     public StanfordNLPSentimentService() {
-        Properties props = new Properties();
-        props.setProperty("annotators", "tokenize, ssplit, parse, sentiment");
-        this.pipeline = new StanfordCoreNLP(props);
+        this((CoreNLPSentenceScorer) null);
+    }
+
+    public StanfordNLPSentimentService(StanfordCoreNLP pipeline) {
+        this.scorer = pipeline == null ? null : new CoreNLPSentenceScorer(() -> pipeline,
+            new SentimentCache(AppConfig.getCoreNLPSentenceCacheSize()),
+            new CoreNLPBatchAnnotator(() -> pipeline, AppConfig.getCoreNLPThreads()));
+    }
+
+    // Scores through the given scorer, e.g. one whose annotator runs on the calling thread
+    public StanfordNLPSentimentService(CoreNLPSentenceScorer scorer) {
+        this.scorer = scorer;
+    }
+
+    private CoreNLPSentenceScorer scorer() {
+        return scorer != null ? scorer : ModelRegistry.getInstance().getCoreNLPSentenceScorer();
     }
 
     @Override
     public String analyzeSentiment(String text) {
-        CoreDocument doc = new CoreDocument(text);
-        pipeline.annotate(doc);
-        return doc.sentences().get(0).sentiment();
+        return firstSentenceSentiment(scorer().scoreSentences(text));
+    }
+
+    // Scores the batch on a pool of CoreNLP workers, keeping input order
+    @Override
+    public List<String> analyzeSentimentBatch(List<String> texts) {
+        List<String> results = new ArrayList<>(texts.size());
+        for (int[] classes : scorer().scoreSentences(texts)) {
+            results.add(firstSentenceSentiment(classes));
+        }
+        return results;
+    }
+
+    private static String firstSentenceSentiment(int[] sentenceClasses) {
+        // Emoji- or punctuation-only text has no sentences; it is neutral rather than failing its whole batch
+        if (sentenceClasses.length == 0) {
+            return "Neutral";
+        }
+        return CoreNLPSentenceScorer.className(sentenceClasses[0]);
     }
 
     @Override
@@ -0,0 +1,462 @@
+package com.sentimentanalysis.jobs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sentimentanalysis.config.AppConfig;
+import com.sentimentanalysis.core.service.HDFSService;
+import com.sentimentanalysis.util.FetchRecordReader;
+import com.sentimentanalysis.util.FetchRecordWriter;
+
+/**
+ * Merges the small CSV files that every fetch and analysis leaves on HDFS, one per
+ * {@code <type>/<yyyy-MM-dd_HH-mm-ss>} directory under the raw and preprocessed roots, into
+ * large {@code <type>/<yyyy-MM-dd>/part-NNNNN.csv} files with a single header. Each part has
+ * a {@code _manifest-part-NNNNN.csv} next to it recording where every original file's rows
+ * lie in the part; the leading underscore keeps Spark from reading it as data.
+ *
+ * <p>Only files older than the minimum age are merged, so fetches landing while the job
+ * runs are left for the next run. A part becomes visible only after its manifest, and
+ * originals are deleted only after both, so a run that dies part way is completed by the
+ * next one without merging anything twice. Arrow fetch output cannot be concatenated,
+ * so its rows are converted to CSV as they are merged, and its manifest range holds the
+ * converted rows.
+ *
+ * <p>Run with {@code java com.sentimentanalysis.jobs.HDFSCompactionJob [filesystem-uri]}.
+ */
+public class HDFSCompactionJob {
+    private static final Logger logger = LoggerFactory.getLogger(HDFSCompactionJob.class);
+    private static final Pattern FETCH_DIR = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})_\\d{2}-\\d{2}-\\d{2}");
+    private static final Pattern PART_NUMBER = Pattern.compile("(?:_tmp-|_manifest-)?part-(\\d+)\\.csv");
+    private static final DateTimeFormatter FETCH_DIR_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+    private static final String CSV_EXTENSION = ".csv";
+    private static final String MANIFEST_PREFIX = "_manifest-";
+    private static final String TMP_PREFIX = "_tmp-";
+    private static final String MANIFEST_HEADER = "original_path,merged_file,data_offset,data_length,modification_time";
+    private static final String LOCK_FILE = "/sentiment-analysis/_compaction.lock";
+    private static final int BUFFER_BYTES = 1024 * 1024;
+
+    private final FileSystem fileSystem;
+    private final Path lockFile;
+    private final long minAgeMillis;
+    private final long targetBytes;
+    private long cutoff;
+    private CompactionStats stats;
+
+    /**
+     * @param minAgeMillis files modified more recently than this are not touched
+     * @param targetBytes  a part is closed once it grows past this size
+     */
+    public HDFSCompactionJob(FileSystem fileSystem, long minAgeMillis, long targetBytes) {
+        this(fileSystem, minAgeMillis, targetBytes, new Path(LOCK_FILE));
+    }
+
+    // Locks with the given file instead, e.g. when compacting roots outside the default layout
+    public HDFSCompactionJob(FileSystem fileSystem, long minAgeMillis, long targetBytes, Path lockFile) {
+        this.fileSystem = fileSystem;
+        this.lockFile = lockFile;
+        this.minAgeMillis = minAgeMillis;
+        this.targetBytes = targetBytes;
+    }
+
+    // Compacts the raw and preprocessed roots; only one run at a time per file system
+    public CompactionStats run() throws IOException {
+        return run(Arrays.asList(new Path(HDFSService.BASE_DATA_DIR), new Path(HDFSService.PREPROCESSED_DIR)));
+    }
+
+    public CompactionStats run(List<Path> roots) throws IOException {
+        try {
+            fileSystem.create(lockFile, false).close();
+        } catch (IOException e) {
+            throw new IOException("Another compaction seems to be running; delete " + lockFile + " if it is stale", e);
+        }
+        long start = System.nanoTime();
+        cutoff = System.currentTimeMillis() - minAgeMillis;
+        stats = new CompactionStats();
+        try {
+            for (Path root : roots) {
+                if (!fileSystem.exists(root)) {
+                    continue;
+                }
+                for (FileStatus typeDir : fileSystem.listStatus(root)) {
+                    if (typeDir.isDirectory()) {
+                        compactType(typeDir.getPath());
+                    }
+                }
+            }
+        } finally {
+            fileSystem.delete(lockFile, false);
+        }
+        logger.info("Compaction merged {} files ({} MB) into {} parts in {} ms", stats.getFilesMerged(),
+            stats.getBytesMerged() / (1024 * 1024), stats.getPartsWritten(), (System.nanoTime() - start) / 1_000_000);
+        return stats;
+    }
+
+    private void compactType(Path typeDir) throws IOException {
+        Map<String, List<FileStatus>> filesByDay = new TreeMap<>();
+        List<Path> fetchDirs = new ArrayList<>();
+        for (FileStatus dir : fileSystem.listStatus(typeDir)) {
+            Matcher matcher = FETCH_DIR.matcher(dir.getPath().getName());
+            if (!dir.isDirectory() || !matcher.matches()) {
+                continue;
+            }
+            fetchDirs.add(dir.getPath());
+            for (FileStatus file : fileSystem.listStatus(dir.getPath())) {
+                String name = file.getPath().getName();
+                boolean fetchFile = name.endsWith(CSV_EXTENSION) || FetchRecordReader.isArrow(name);
+                if (file.isFile() && file.getLen() > 0 && fetchFile && file.getModificationTime() <= cutoff) {
+                    filesByDay.computeIfAbsent(matcher.group(1), day -> new ArrayList<>()).add(file);
+                }
+            }
+        }
+        for (Map.Entry<String, List<FileStatus>> day : filesByDay.entrySet()) {
+            compactDay(new Path(typeDir, day.getKey()), day.getValue());
+        }
+        for (Path fetchDir : fetchDirs) {
+            deleteIfEmpty(fetchDir);
+        }
+    }
+
+    private void compactDay(Path dayDir, List<FileStatus> files) throws IOException {
+        fileSystem.mkdirs(dayDir);
+        Set<String> merged = recover(dayDir);
+        int nextPart = nextPartNumber(dayDir);
+        PartWriter part = null;
+        try {
+            for (FileStatus file : files) {
+                if (merged.contains(file.getPath().toUri().getPath())) {
+                    continue;
+                }
+                try (InputStream in = openAsCsv(file)) {
+                    byte[] header = readLine(in);
+                    if (part != null && (!Arrays.equals(part.header, header) || part.size() >= targetBytes)) {
+                        part.commit();
+                        part = null;
+                    }
+                    if (part == null) {
+                        part = new PartWriter(dayDir, nextPart++, header);
+                    }
+                    part.append(file, in);
+                }
+            }
+            if (part != null) {
+                part.commit();
+                part = null;
+            }
+        } finally {
+            if (part != null) {
+                part.abandon();
+            }
+        }
+    }
+
+    private InputStream openAsCsv(FileStatus file) throws IOException {
+        if (!FetchRecordReader.isArrow(file.getPath().getName())) {
+            return new BufferedInputStream(fileSystem.open(file.getPath()), BUFFER_BYTES);
+        }
+        // Fetch files are small enough to convert in memory; the CSV is what a CSV fetch would have written
+        byte[] content = new byte[(int) file.getLen()];
+        try (FSDataInputStream in = fileSystem.open(file.getPath())) {
+            in.readFully(0, content);
+        }
+        ByteArrayOutputStream csv = new ByteArrayOutputStream(content.length);
+        try (FetchRecordReader reader = FetchRecordReader.openArrow(ByteBuffer.wrap(content))) {
+            if (!reader.next()) {
+                throw new IOException("Arrow fetch file " + file.getPath() + " has no schema");
+            }
+            try (FetchRecordWriter writer = FetchRecordWriter.csv(
+                    new OutputStreamWriter(csv, StandardCharsets.UTF_8), Arrays.asList(reader.toArray()))) {
+                while (reader.next()) {
+                    writer.write(Arrays.asList(reader.toArray()));
+                }
+            }
+        }
+        return new ByteArrayInputStream(csv.toByteArray());
+    }
+
+    /**
+     * Finishes what an interrupted run left in the day directory: originals listed in the
+     * manifest of a committed part are deleted, and a manifest or temporary part without
+     * its committed part is discarded. Returns the originals already merged.
+     */
+    private Set<String> recover(Path dayDir) throws IOException {
+        Set<String> merged = new HashSet<>();
+        for (FileStatus status : fileSystem.listStatus(dayDir)) {
+            String name = status.getPath().getName();
+            if (name.startsWith(MANIFEST_PREFIX)) {
+                Path part = new Path(dayDir, name.substring(MANIFEST_PREFIX.length()));
+                if (!fileSystem.exists(part)) {
+                    logger.warn("Discarding manifest without its part: {}", status.getPath());
+                    fileSystem.delete(status.getPath(), false);
+                    continue;
+                }
+                for (ManifestEntry entry : readManifest(fileSystem, status.getPath())) {
+                    merged.add(entry.getOriginalPath());
+                    Path original = new Path(entry.getOriginalPath());
+                    if (fileSystem.exists(original)) {
+                        logger.info("Deleting {}, already merged into {}", original, part);
+                        fileSystem.delete(original, false);
+                    }
+                }
+            } else if (name.startsWith(TMP_PREFIX)) {
+                logger.warn("Discarding unfinished part: {}", status.getPath());
+                fileSystem.delete(status.getPath(), false);
+            }
+        }
+        return merged;
+    }
+
+    private int nextPartNumber(Path dayDir) throws IOException {
+        int next = 0;
+        for (FileStatus status : fileSystem.listStatus(dayDir)) {
+            Matcher matcher = PART_NUMBER.matcher(status.getPath().getName());
+            if (matcher.matches()) {
+                next = Math.max(next, Integer.parseInt(matcher.group(1)) + 1);
+            }
+        }
+        return next;
+    }
+
+    // A fetch directory is only removed once its name is past the cutoff, so one just created for an upload stays
+    private void deleteIfEmpty(Path fetchDir) throws IOException {
+        try {
+            long created = LocalDateTime.parse(fetchDir.getName(), FETCH_DIR_FORMAT)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            if (created <= cutoff && fileSystem.listStatus(fetchDir).length == 0) {
+                fileSystem.delete(fetchDir, false);
+            }
+        } catch (DateTimeParseException e) {
+            logger.debug("Keeping {}: {}", fetchDir, e.getMessage());
+        }
+    }
+
+    // The header line, including its line end
+    private static byte[] readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        int b;
+        while ((b = in.read()) != -1) {
+            line.write(b);
+            if (b == '\n') {
+                break;
+            }
+        }
+        return line.toByteArray();
+    }
+
+    // Entries of one part's manifest, in the order the originals were merged
+    public static List<ManifestEntry> readManifest(FileSystem fileSystem, Path manifest) throws IOException {
+        List<ManifestEntry> entries = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(fileSystem.open(manifest), StandardCharsets.UTF_8))) {
+            String line = reader.readLine(); // Skip the header row
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    entries.add(ManifestEntry.parse(line));
+                }
+            }
+        }
+        return entries;
+    }
+
+    // One merged file in the making; written under a temporary name until committed
+    private final class PartWriter {
+        private final byte[] header;
+        private final Path dayDir;
+        private final Path part;
+        private final Path tmpPart;
+        private final FSDataOutputStream out;
+        private final List<ManifestEntry> entries = new ArrayList<>();
+        private final List<FileStatus> originals = new ArrayList<>();
+        private final byte[] buffer = new byte[BUFFER_BYTES];
+
+        PartWriter(Path dayDir, int number, byte[] header) throws IOException {
+            this.header = header;
+            this.dayDir = dayDir;
+            this.part = new Path(dayDir, String.format("part-%05d%s", number, CSV_EXTENSION));
+            this.tmpPart = new Path(dayDir, TMP_PREFIX + part.getName());
+            this.out = fileSystem.create(tmpPart, true);
+            out.write(header);
+        }
+
+        // Copies everything after the header; a missing final line end is added
+        void append(FileStatus file, InputStream rows) throws IOException {
+            long offset = out.getPos();
+            int last = '\n';
+            int read;
+            while ((read = rows.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                if (read > 0) {
+                    last = buffer[read - 1];
+                }
+            }
+            long length = out.getPos() - offset;
+            if (last != '\n') {
+                out.write('\n');
+            }
+            entries.add(new ManifestEntry(file.getPath().toUri().getPath(), part.getName(), offset, length,
+                file.getModificationTime()));
+            originals.add(file);
+            stats.bytesMerged += file.getLen();
+        }
+
+        long size() throws IOException {
+            return out.getPos();
+        }
+
+        // Manifest first, then the part, then the originals; see recover for each step being cut short
+        void commit() throws IOException {
+            out.close();
+            Path manifest = new Path(dayDir, MANIFEST_PREFIX + part.getName());
+            Path tmpManifest = new Path(dayDir, TMP_PREFIX + manifest.getName());
+            try (Writer writer = new OutputStreamWriter(fileSystem.create(tmpManifest, true), StandardCharsets.UTF_8)) {
+                writer.write(MANIFEST_HEADER);
+                writer.write('\n');
+                for (ManifestEntry entry : entries) {
+                    writer.write(entry.format());
+                    writer.write('\n');
+                }
+            }
+            rename(tmpManifest, manifest);
+            rename(tmpPart, part);
+            for (FileStatus original : originals) {
+                fileSystem.delete(original.getPath(), false);
+            }
+            stats.filesMerged += originals.size();
+            stats.partsWritten++;
+            logger.info("Merged {} files into {} ({} KB)", originals.size(), part, fileSystem.getFileStatus(part).getLen() / 1024);
+        }
+
+        void abandon() {
+            try {
+                out.close();
+                fileSystem.delete(tmpPart, false);
+            } catch (IOException e) {
+                logger.warn("Failed to remove unfinished part {}: {}", tmpPart, e.getMessage());
+            }
+        }
+
+        private void rename(Path from, Path to) throws IOException {
+            if (!fileSystem.rename(from, to)) {
+                throw new IOException("Failed to rename " + from + " to " + to);
+            }
+        }
+    }
+
+    /**
+     * Where one original file went: its rows are {@code dataLength} bytes at
+     * {@code dataOffset} in the merged file, and its header is the merged file's first line.
+     */
+    public static final class ManifestEntry {
+        private final String originalPath;
+        private final String mergedFile;
+        private final long dataOffset;
+        private final long dataLength;
+        private final long modificationTime;
+
+        ManifestEntry(String originalPath, String mergedFile, long dataOffset, long dataLength, long modificationTime) {
+            this.originalPath = originalPath;
+            this.mergedFile = mergedFile;
+            this.dataOffset = dataOffset;
+            this.dataLength = dataLength;
+            this.modificationTime = modificationTime;
+        }
+
+        // Fetch file names only hold [a-zA-Z0-9-_] and the path has no commas, so no quoting is needed
+        static ManifestEntry parse(String line) throws IOException {
+            String[] fields = line.split(",");
+            if (fields.length != 5) {
+                throw new IOException("Malformed manifest line: " + line);
+            }
+            try {
+                return new ManifestEntry(fields[0], fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                    Long.parseLong(fields[4]));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed manifest line: " + line, e);
+            }
+        }
+
+        String format() {
+            return String.join(",", originalPath, mergedFile, String.valueOf(dataOffset), String.valueOf(dataLength),
+                String.valueOf(modificationTime));
+        }
+
+        public String getOriginalPath() {
+            return originalPath;
+        }
+
+        // Name of the part in the same directory as the manifest
+        public String getMergedFile() {
+            return mergedFile;
+        }
+
+        public long getDataOffset() {
+            return dataOffset;
+        }
+
+        public long getDataLength() {
+            return dataLength;
+        }
+
+        public long getModificationTime() {
+            return modificationTime;
+        }
+    }
+
+    public static final class CompactionStats {
+        private int filesMerged;
+        private int partsWritten;
+        private long bytesMerged;
+
+        public int getFilesMerged() {
+            return filesMerged;
+        }
+
+        public int getPartsWritten() {
+            return partsWritten;
+        }
+
+        public long getBytesMerged() {
+            return bytesMerged;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Configuration conf = new Configuration();
+        conf.set("fs.defaultFS", args.length > 0 ? args[0] : HDFSService.HDFS_URI);
+        try (FileSystem fileSystem = FileSystem.get(conf)) {
+            new HDFSCompactionJob(fileSystem, AppConfig.getCompactionMinAgeMinutes() * 60_000L,
+                AppConfig.getCompactionTargetMB() * 1024L * 1024L).run();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.sentimentanalysis.jobs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SaveMode;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.functions;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sentimentanalysis.config.AppConfig;
+import com.sentimentanalysis.util.FetchRecordReader;
+
+// Input, session and output handling shared by the Spark scoring jobs
+final class ScoringJobs {
+    private static final Logger logger = LoggerFactory.getLogger(ScoringJobs.class);
+
+    private static final StructType COMMENT_SCHEMA = new StructType()
+        .add("comment", DataTypes.StringType)
+        .add("subreddit", DataTypes.StringType)
+        .add("source_file", DataTypes.StringType)
+        .add("fetch_type", DataTypes.StringType);
+
+    private ScoringJobs() {
+    }
+
+    // The master comes from spark-submit for cluster runs, otherwise the job runs in local[*]
+    static SparkSession session(String appName) {
+        SparkSession.Builder builder = SparkSession.builder().appName(appName);
+        if (!new org.apache.spark.SparkConf().contains("spark.master")) {
+            builder.master("local[*]");
+        }
+        return builder.getOrCreate();
+    }
+
+    // Lets the AQE rebalance before the write split skewed partitions and coalesce small ones
+    static void configure(SparkSession spark) {
+        spark.conf().set("spark.sql.adaptive.enabled", "true");
+        spark.conf().set("spark.sql.adaptive.optimizeSkewsInRebalancePartitions", "true");
+        spark.conf().set("spark.sql.adaptive.advisoryPartitionSizeInBytes",
+            AppConfig.getBatchScoringPartitionMB() + "m");
+        spark.conf().set("spark.sql.sources.partitionOverwriteMode", "dynamic");
+    }
+
+    /**
+     * One frame of (comment, subreddit, source_file, fetch_type) over all raw fetch files
+     * under the prefix, CSV and Arrow, without blank comments, or null if it holds no fetch
+     * files. Each type is read on its own because post files have no subreddit column.
+     */
+    static Dataset<Row> readComments(SparkSession spark, String inputPrefix) throws IOException {
+        Path prefix = new Path(inputPrefix);
+        FileSystem fileSystem = prefix.getFileSystem(spark.sparkContext().hadoopConfiguration());
+        List<Dataset<Row>> frames = new ArrayList<>();
+        for (String type : new String[] {"keyword", "subreddit", "post"}) {
+            Path typeDir = new Path(prefix, type);
+            if (!fileSystem.exists(typeDir)) {
+                continue;
+            }
+            int csvFiles = countFiles(fileSystem, typeDir, FetchRecordReader.CSV_EXTENSION);
+            int arrowFiles = countFiles(fileSystem, typeDir, FetchRecordReader.ARROW_EXTENSION);
+            logger.info("Reading {} CSV and {} Arrow fetch files under {}", csvFiles, arrowFiles, typeDir);
+            if (arrowFiles > 0) {
+                frames.add(readArrowComments(spark, typeDir, type));
+            }
+            if (csvFiles == 0) {
+                continue;
+            }
+            // Same layout as Python's csv.writer: quotes doubled, quoted fields may span lines
+            Dataset<Row> raw = spark.read()
+                .option("header", "true")
+                .option("multiLine", "true")
+                .option("quote", "\"")
+                .option("escape", "\"")
+                .option("recursiveFileLookup", "true")
+                .option("pathGlobFilter", "*.csv")
+                .csv(typeDir.toString());
+            Column subreddit = "post".equals(type) ? functions.lit(null).cast("string") : functions.col("Subreddit");
+            frames.add(raw.select(
+                functions.col("Comment").as("comment"),
+                subreddit.as("subreddit"),
+                functions.input_file_name().as("source_file"),
+                functions.lit(type).as("fetch_type")));
+        }
+        Dataset<Row> all = null;
+        for (Dataset<Row> frame : frames) {
+            all = all == null ? frame : all.unionByName(frame);
+        }
+        return all == null ? null : all.filter(functions.col("comment").isNotNull()
+            .and(functions.length(functions.trim(functions.col("comment"))).gt(0)));
+    }
+
+    private static int countFiles(FileSystem fileSystem, Path dir, String extension) throws IOException {
+        int count = 0;
+        RemoteIterator<LocatedFileStatus> files = fileSystem.listFiles(dir, true);
+        while (files.hasNext()) {
+            if (files.next().getPath().getName().toLowerCase().endsWith(extension)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Arrow fetch files are small; each is loaded whole by the binaryFile source and decoded on an executor
+    private static Dataset<Row> readArrowComments(SparkSession spark, Path typeDir, String type) {
+        JavaRDD<Row> rows = spark.read()
+            .format("binaryFile")
+            .option("recursiveFileLookup", "true")
+            .option("pathGlobFilter", "*" + FetchRecordReader.ARROW_EXTENSION)
+            .load(typeDir.toString())
+            .select("path", "content")
+            .javaRDD()
+            .flatMap(file -> arrowComments(file.getString(0), (byte[]) file.get(1), type).iterator());
+        return spark.createDataFrame(rows, COMMENT_SCHEMA);
+    }
+
+    private static List<Row> arrowComments(String sourceFile, byte[] content, String type) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        try (FetchRecordReader reader = FetchRecordReader.openArrow(ByteBuffer.wrap(content))) {
+            if (!reader.next()) {
+                return rows;
+            }
+            List<String> columns = Arrays.asList(reader.toArray());
+            int comment = columns.indexOf("Comment");
+            int subreddit = "post".equals(type) ? -1 : columns.indexOf("Subreddit");
+            if (comment < 0) {
+                throw new IOException("Arrow fetch file " + sourceFile + " has no Comment column");
+            }
+            while (reader.next()) {
+                rows.add(RowFactory.create(reader.getString(comment),
+                    subreddit < 0 ? null : reader.getString(subreddit), sourceFile, type));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Writes (comment, sentiment, probability, model, source_file, fetch_type, subreddit)
+     * as Parquet partitioned by fetch type and subreddit, replacing only the partitions
+     * present in the frame.
+     */
+    static void writeScored(Dataset<Row> scored, String outputDir) {
+        scored
+            // The hint takes column expressions, not Columns
+            .hint("rebalance", functions.col("fetch_type").expr(), functions.col("subreddit").expr())
+            .write()
+            .mode(SaveMode.Overwrite)
+            .option("maxRecordsPerFile", AppConfig.getBatchScoringMaxRecordsPerFile())
+            .partitionBy("fetch_type", "subreddit")
+            .parquet(outputDir);
+    }
+}
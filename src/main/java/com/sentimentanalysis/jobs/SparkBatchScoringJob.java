@@ -0,0 +1,88 @@
+package com.sentimentanalysis.jobs;
+
+import java.io.IOException;
+
+import org.apache.spark.ml.PipelineModel;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.functions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sentimentanalysis.core.service.HDFSService;
+import com.sentimentanalysis.core.service.SentimentAnalysisService;
+
+/**
+ * Scores every raw fetch CSV under a prefix with the MLlib sentiment model in one Spark
+ * job, for backfills after a model update. Each fetch type directory is read with
+ * {@code spark.read} and multi-line CSV options, normalized with the UI's normalization
+ * UDF, transformed by the {@link PipelineModel} and written as Parquet partitioned by
+ * fetch type and subreddit. Partitions present in the output are replaced; others are
+ * kept.
+ *
+ * <p>Rows are rebalanced by fetch type and subreddit before the write. Adaptive query
+ * execution splits the partitions of very large subreddits and merges small ones, so a
+ * few huge subreddits neither hold up the job in one task nor leave thousands of tiny
+ * files. Multi-line CSV files cannot be split, and the rebalance also spreads a single
+ * large file, such as a compacted part, over many tasks.
+ *
+ * <p>Run with {@code spark-submit --class com.sentimentanalysis.jobs.SparkBatchScoringJob
+ * app.jar [input-prefix [output-dir [model-path]]]}; without a master from spark-submit it
+ * runs in {@code local[*]}.
+ */
+public class SparkBatchScoringJob {
+    private static final Logger logger = LoggerFactory.getLogger(SparkBatchScoringJob.class);
+    public static final String DEFAULT_INPUT = HDFSService.HDFS_URI + HDFSService.BASE_DATA_DIR;
+    public static final String DEFAULT_OUTPUT = HDFSService.HDFS_URI + "/sentiment-analysis/scored";
+
+    private final SparkSession spark;
+    private final String modelPath;
+
+    public SparkBatchScoringJob(SparkSession spark, String modelPath) {
+        this.spark = spark;
+        this.modelPath = modelPath;
+        SentimentAnalysisService.registerUdfs(spark);
+        ScoringJobs.configure(spark);
+    }
+
+    // Scores every comment under inputPrefix into outputDir
+    public void run(String inputPrefix, String outputDir) throws IOException {
+        long start = System.nanoTime();
+        Dataset<Row> comments = ScoringJobs.readComments(spark, inputPrefix);
+        if (comments == null) {
+            logger.warn("No fetch type directories under {}", inputPrefix);
+            return;
+        }
+
+        PipelineModel model = PipelineModel.load(modelPath);
+        Dataset<Row> input = comments
+            .withColumn("SentimentText", functions.callUDF(SentimentAnalysisService.NORMALIZE_UDF, functions.col("comment")));
+        Dataset<Row> scored = model.transform(input)
+            .select(
+                functions.col("comment"),
+                functions.when(functions.col("prediction").equalTo(1.0), "Positive").otherwise("Negative").as("sentiment"),
+                functions.array_max(org.apache.spark.ml.functions.vector_to_array(functions.col("probability"), "float64"))
+                    .as("probability"),
+                functions.lit(modelPath).as("model"),
+                functions.col("source_file"),
+                functions.col("fetch_type"),
+                functions.col("subreddit"));
+
+        ScoringJobs.writeScored(scored, outputDir);
+        logger.info("Scored comments from {} into {} in {} s", inputPrefix, outputDir,
+            (System.nanoTime() - start) / 1_000_000_000);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String input = args.length > 0 ? args[0] : DEFAULT_INPUT;
+        String output = args.length > 1 ? args[1] : DEFAULT_OUTPUT;
+        String modelPath = args.length > 2 ? args[2] : SentimentAnalysisService.MODEL_PATH;
+        SparkSession spark = ScoringJobs.session("SentimentBatchScoring");
+        try {
+            new SparkBatchScoringJob(spark, modelPath).run(input, output);
+        } finally {
+            spark.stop();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.sentimentanalysis.jobs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.spark.api.java.function.MapPartitionsFunction;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sentimentanalysis.config.AppConfig;
+import com.sentimentanalysis.core.service.CoreNLPBatchAnnotator;
+import com.sentimentanalysis.core.service.CoreNLPSentenceScorer;
+import com.sentimentanalysis.core.service.HDFSService;
+import com.sentimentanalysis.core.service.SentimentCache;
+import com.sentimentanalysis.core.service.StanfordNLPSentimentService;
+
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+/**
+ * Scores every raw fetch CSV under a prefix with CoreNLP across a Spark cluster, the same
+ * way {@link StanfordNLPSentimentService} does in the UI, and writes the results next to
+ * the MLlib scores of {@link SparkBatchScoringJob} with the same columns. The
+ * probability column is null, since CoreNLP scoring yields a class only. A comment in
+ * which CoreNLP finds no sentence, e.g. one made only of symbols, gets a null sentiment
+ * instead of failing its partition.
+ *
+ * <p>Each executor JVM loads the CoreNLP pipeline once, when its first partition starts,
+ * and all of its tasks share it together with a sentence cache. CoreNLP annotators are
+ * thread-safe, and each task annotates on its own thread, so executor cores set the
+ * parallelism. Comments are spread evenly over the partitions before scoring, since
+ * per-comment cost, not input file size, dominates. Executors need about 2 GB of heap
+ * for the models.
+ *
+ * <p>Run with {@code spark-submit --class com.sentimentanalysis.jobs.SparkCoreNLPScoringJob
+ * app.jar [input-prefix [output-dir]]}; without a master from spark-submit it runs in
+ * {@code local[*]}.
+ */
+public class SparkCoreNLPScoringJob {
+    private static final Logger logger = LoggerFactory.getLogger(SparkCoreNLPScoringJob.class);
+    public static final String DEFAULT_OUTPUT = HDFSService.HDFS_URI + "/sentiment-analysis/scored-corenlp";
+    static final String MODEL = "Stanford CoreNLP";
+
+    private static final StructType SCORED_SCHEMA = new StructType()
+        .add("comment", DataTypes.StringType)
+        .add("sentiment", DataTypes.StringType)
+        .add("probability", DataTypes.DoubleType)
+        .add("model", DataTypes.StringType)
+        .add("source_file", DataTypes.StringType)
+        .add("fetch_type", DataTypes.StringType)
+        .add("subreddit", DataTypes.StringType);
+
+    private final SparkSession spark;
+    private final Properties sentenceModel;
+
+    public SparkCoreNLPScoringJob(SparkSession spark) {
+        this(spark, null);
+    }
+
+    /**
+     * @param sentenceModel annotators run on uncached sentences in place of CoreNLP's parse
+     *                      and sentiment models, or null for those models
+     */
+    SparkCoreNLPScoringJob(SparkSession spark, Properties sentenceModel) {
+        this.spark = spark;
+        this.sentenceModel = sentenceModel;
+        ScoringJobs.configure(spark);
+    }
+
+    // Scores every comment under inputPrefix into outputDir
+    public void run(String inputPrefix, String outputDir) throws IOException {
+        long start = System.nanoTime();
+        Dataset<Row> comments = ScoringJobs.readComments(spark, inputPrefix);
+        if (comments == null) {
+            logger.warn("No fetch type directories under {}", inputPrefix);
+            return;
+        }
+        int partitions = AppConfig.getCoreNLPJobPartitions();
+        if (partitions <= 0) {
+            partitions = spark.sparkContext().defaultParallelism() * 4;
+        }
+        Dataset<Row> scored = comments
+            .select("comment", "source_file", "fetch_type", "subreddit")
+            .repartition(partitions)
+            .mapPartitions(new ScorePartition(AppConfig.getCoreNLPJobBatchSize(), sentenceModel), Encoders.row(SCORED_SCHEMA));
+
+        ScoringJobs.writeScored(scored, outputDir);
+        logger.info("Scored comments from {} into {} with CoreNLP in {} s", inputPrefix, outputDir,
+            (System.nanoTime() - start) / 1_000_000_000);
+    }
+
+    // One per executor JVM and sentence model, built by the first partition that needs it
+    private static final class ExecutorScorer {
+        private static final Properties DEFAULT_MODEL = new Properties();
+        private static final Map<Properties, CoreNLPSentenceScorer> SCORERS = new ConcurrentHashMap<>();
+
+        static CoreNLPSentenceScorer get(Properties sentenceModel) {
+            return SCORERS.computeIfAbsent(sentenceModel == null ? DEFAULT_MODEL : sentenceModel, ExecutorScorer::load);
+        }
+
+        private static CoreNLPSentenceScorer load(Properties sentenceModel) {
+            // Tasks already run one per core, so each annotates on its own thread
+            SentimentCache cache = new SentimentCache(AppConfig.getCoreNLPSentenceCacheSize());
+            if (sentenceModel != DEFAULT_MODEL) {
+                return new CoreNLPSentenceScorer(() -> null, cache, new CoreNLPBatchAnnotator(() -> null, 1), sentenceModel);
+            }
+            long start = System.nanoTime();
+            Properties props = new Properties();
+            props.setProperty("annotators", "tokenize, ssplit, parse, sentiment");
+            StanfordCoreNLP pipeline = new StanfordCoreNLP(props);
+            CoreNLPSentenceScorer scorer = new CoreNLPSentenceScorer(() -> pipeline, cache,
+                new CoreNLPBatchAnnotator(() -> pipeline, 1));
+            logger.info("Loaded CoreNLP pipeline on executor in {} ms", (System.nanoTime() - start) / 1_000_000);
+            return scorer;
+        }
+    }
+
+    // Scores a partition a batch at a time, as it is consumed, so it is never held in memory whole
+    private static final class ScorePartition implements MapPartitionsFunction<Row, Row> {
+        private static final long serialVersionUID = 1L;
+        private final int batchSize;
+        private final Properties sentenceModel;
+
+        ScorePartition(int batchSize, Properties sentenceModel) {
+            this.batchSize = Math.max(1, batchSize);
+            this.sentenceModel = sentenceModel;
+        }
+
+        @Override
+        public Iterator<Row> call(Iterator<Row> input) {
+            return new Iterator<Row>() {
+                private final List<Row> scored = new ArrayList<>(batchSize);
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    if (next < scored.size()) {
+                        return true;
+                    }
+                    scored.clear();
+                    next = 0;
+                    List<Row> batch = new ArrayList<>(batchSize);
+                    while (batch.size() < batchSize && input.hasNext()) {
+                        batch.add(input.next());
+                    }
+                    if (batch.isEmpty()) {
+                        return false;
+                    }
+                    List<String> texts = new ArrayList<>(batch.size());
+                    for (Row row : batch) {
+                        texts.add(row.getString(0));
+                    }
+                    // Labelled by the first sentence, as StanfordNLPSentimentService does
+                    List<int[]> sentenceClasses = ExecutorScorer.get(sentenceModel).scoreSentences(texts);
+                    for (int i = 0; i < batch.size(); i++) {
+                        Row row = batch.get(i);
+                        int[] classes = sentenceClasses.get(i);
+                        String sentiment = classes.length == 0 ? null : CoreNLPSentenceScorer.className(classes[0]);
+                        scored.add(RowFactory.create(row.getString(0), sentiment, null, MODEL,
+                            row.getString(1), row.getString(2), row.getString(3)));
+                    }
+                    return true;
+                }
+
+                @Override
+                public Row next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return scored.get(next++);
+                }
+            };
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String input = args.length > 0 ? args[0] : SparkBatchScoringJob.DEFAULT_INPUT;
+        String output = args.length > 1 ? args[1] : DEFAULT_OUTPUT;
+        SparkSession spark = ScoringJobs.session("SentimentCoreNLPScoring");
+        try {
+            new SparkCoreNLPScoringJob(spark).run(input, output);
+        } finally {
+            spark.stop();
+        }
+    }
+}
@@ -13,10 +13,12 @@ import javafx.scene.control.ProgressIndicator;
 import javafx.stage.Stage;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
+import com.sentimentanalysis.core.service.ModelRegistry;
 import com.sentimentanalysis.core.service.SentimentAnalysisService;
+import com.sentimentanalysis.util.StartupMetrics;
 
 public class UserInputAnalysisController {
-    private SentimentAnalysisService sentimentService = new SentimentAnalysisService();
+    private SentimentAnalysisService sentimentService = ModelRegistry.getInstance().getSentimentAnalysisService();
 
     @FXML
     private TextArea textArea;
@@ -59,6 +61,7 @@ public class UserInputAnalysisController {
         analysisTask.setOnSucceeded(event -> {
             String result = analysisTask.getValue();
             resultLabel.setText("Sentiment: " + result);
+            StartupMetrics.markFirstResult(hdfsModelRadioButton.isSelected() ? "HDFS Model" : "HuggingFace API");
             analyzeButton.setDisable(false);
             progressIndicator.setVisible(false);
         });
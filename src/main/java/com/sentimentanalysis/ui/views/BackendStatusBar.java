@@ -0,0 +1,81 @@
+package com.sentimentanalysis.ui.views;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.sentimentanalysis.core.service.CircuitBreaker;
+import com.sentimentanalysis.core.service.ModelRegistry;
+
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.Tooltip;
+import javafx.scene.layout.HBox;
+
+// Shows the readiness of each background-initialized backend and the state of each circuit breaker
+public class BackendStatusBar {
+    private final HBox content;
+
+    public BackendStatusBar(Map<String, CompletableFuture<Long>> backends, List<CircuitBreaker> breakers) {
+        content = new HBox(15);
+        content.setAlignment(Pos.CENTER_LEFT);
+        content.setPadding(new Insets(5, 10, 5, 10));
+        content.setStyle("-fx-border-color: #dddddd; -fx-border-width: 1 0 0 0;");
+
+        for (Map.Entry<String, CompletableFuture<Long>> backend : backends.entrySet()) {
+            Label label = new Label(backend.getKey() + ": loading...");
+            label.setStyle("-fx-font-size: 11px; -fx-text-fill: #666666;");
+            content.getChildren().add(label);
+
+            backend.getValue().whenComplete((millis, error) -> Platform.runLater(() -> {
+                if (error == null) {
+                    // The registry knows how much heap the load retained
+                    ModelRegistry.BackendInfo info = ModelRegistry.getInstance().getBackendInfo(backend.getKey());
+                    boolean loaded = info != null && info.getState() == ModelRegistry.BackendState.LOADED;
+                    label.setText(backend.getKey() + ": ready"
+                        + (loaded ? String.format(" (~%d MB)", info.getHeapBytes() / (1024 * 1024)) : ""));
+                    label.setStyle("-fx-font-size: 11px; -fx-text-fill: #27ae60;");
+                    label.setTooltip(new Tooltip("Loaded and warmed up in " + millis + " ms"
+                        + (loaded ? ", " + info.describeHeap() : "")));
+                } else {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                    label.setText(backend.getKey() + ": unavailable");
+                    label.setStyle("-fx-font-size: 11px; -fx-text-fill: #e74c3c;");
+                    label.setTooltip(new Tooltip(cause.getMessage()));
+                }
+            }));
+        }
+
+        for (CircuitBreaker breaker : breakers) {
+            Label label = new Label();
+            showBreakerState(label, breaker);
+            content.getChildren().add(label);
+            breaker.addListener(changed -> Platform.runLater(() -> showBreakerState(label, changed)));
+        }
+    }
+
+    private static void showBreakerState(Label label, CircuitBreaker breaker) {
+        label.setText(breaker.toString());
+        switch (breaker.getState()) {
+            case OPEN:
+                label.setStyle("-fx-font-size: 11px; -fx-text-fill: #e74c3c;");
+                label.setTooltip(new Tooltip("Skipped until a probe succeeds: " + breaker.getLastFailure()));
+                break;
+            case HALF_OPEN:
+                label.setStyle("-fx-font-size: 11px; -fx-text-fill: #e67e22;");
+                label.setTooltip(new Tooltip("Probing backend"));
+                break;
+            default:
+                label.setStyle("-fx-font-size: 11px; -fx-text-fill: #666666;");
+                label.setTooltip(null);
+        }
+    }
+
+    public HBox getContent() {
+        return content;
+    }
+}
@@ -1,24 +1,25 @@
 package com.sentimentanalysis.ui.views;
 
-import java.io.FileReader;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.function.IntConsumer;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
-import com.opencsv.CSVReader;
+import com.sentimentanalysis.config.AppConfig;
+import com.sentimentanalysis.core.model.AnalyzedComment;
+import com.sentimentanalysis.core.service.ModelRegistry;
 import com.sentimentanalysis.core.service.RedditService;
-import com.sentimentanalysis.core.service.SentimentAnalysisService;
-import com.sentimentanalysis.core.service.StanfordNLPSentimentService;
 import com.sentimentanalysis.core.service.SentimentAnalyzer;
+import com.sentimentanalysis.util.StartupMetrics;
 
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -55,6 +56,7 @@ import javafx.concurrent.Task;
 
 public class RedditTabContent {
     private static final Logger logger = Logger.getLogger(RedditTabContent.class.getName());
+    private static final int ANALYSIS_BATCH_SIZE = 100;
 
     private TabPane redditTabPane;
     private Tab keywordTab;
@@ -69,7 +71,7 @@ public class RedditTabContent {
 
     public RedditTabContent() {
         this.redditService = new RedditService();
-        this.sentimentAnalyzer = new SentimentAnalysisService();
+        this.sentimentAnalyzer = ModelRegistry.getInstance().getDefaultAnalyzer();
     }
 
     public VBox getContent() {
@@ -163,10 +165,7 @@ public class RedditTabContent {
 
         // Create model selector
         ComboBox<SentimentAnalyzer> modelSelector = new ComboBox<>();
-        modelSelector.getItems().addAll(
-            new SentimentAnalysisService(),
-            new StanfordNLPSentimentService()
-        );
+        modelSelector.getItems().addAll(ModelRegistry.getInstance().getSelectableAnalyzers());
         modelSelector.setValue(sentimentAnalyzer);
         modelSelector.setMaxWidth(200);
         modelSelector.setCellFactory(lv -> new ListCell<SentimentAnalyzer>() {
@@ -218,10 +217,7 @@ public class RedditTabContent {
 
         // Create model selector
         ComboBox<SentimentAnalyzer> modelSelector = new ComboBox<>();
-        modelSelector.getItems().addAll(
-            new SentimentAnalysisService(),
-            new StanfordNLPSentimentService()
-        );
+        modelSelector.getItems().addAll(ModelRegistry.getInstance().getSelectableAnalyzers());
         modelSelector.setValue(sentimentAnalyzer);
         modelSelector.setMaxWidth(200);
         modelSelector.setCellFactory(lv -> new ListCell<SentimentAnalyzer>() {
@@ -273,10 +269,7 @@ public class RedditTabContent {
 
         // Create model selector
         ComboBox<SentimentAnalyzer> modelSelector = new ComboBox<>();
-        modelSelector.getItems().addAll(
-            new SentimentAnalysisService(),
-            new StanfordNLPSentimentService()
-        );
+        modelSelector.getItems().addAll(ModelRegistry.getInstance().getSelectableAnalyzers());
         modelSelector.setValue(sentimentAnalyzer);
         modelSelector.setMaxWidth(200);
         modelSelector.setCellFactory(lv -> new ListCell<SentimentAnalyzer>() {
@@ -404,15 +397,11 @@ public class RedditTabContent {
                         // Update progress
                         updateProgress(0.1, 1);
 
-                        String actualOutputFile = null;  // This will store the actual file path
-
                         String outputFile = keyword != null ? keyword.replaceAll("[^a-zA-Z0-9-_]", "_") : 
                             subreddit != null ? subreddit.replaceAll("[^a-zA-Z0-9-_]", "_") : 
                             postLink.replaceAll("[^a-zA-Z0-9-_]", "_");
 
-                        if (!keyword.isEmpty()) {
-                            actualOutputFile = redditService.fetchByKeyword(keyword, numberOfPosts, commentsPerPost, sortBy, outputFile);
-                        } else if (!subreddit.isEmpty()) {
+                        if (keyword.isEmpty() && !subreddit.isEmpty()) {
                             // Validate and clean subreddit name
                             subreddit = subreddit.trim();
                             if (subreddit.startsWith("r/")) {
@@ -421,88 +410,107 @@ public class RedditTabContent {
                             if (subreddit.isEmpty()) {
                                 throw new IllegalArgumentException("Please enter a valid subreddit name");
                             }
-                            actualOutputFile = redditService.fetchBySubreddit(subreddit, numberOfPosts, commentsPerPost, sortBy, outputFile);
-                        } else if (!postLink.isEmpty()) {
-                            actualOutputFile = redditService.fetchByPostLink(postLink, commentsPerPost, outputFile);
                         }
 
-                        logger.info("Data fetching completed.");
+                        // The fetch runs on its own thread. In pipelined mode comments are read from the
+                        // output file while the fetch worker is still writing it. Comments are scored through
+                        // RedditService, in parallel batches on the analysis pool, with the selected analyzer.
+                        boolean pipelined = AppConfig.isPipelinedFetchEnabled();
+                        int queueSize = AppConfig.getPipelinedFetchQueueSize();
+                        String fetchType = selectedTab.getText().equals("Fetch by Keyword") ? "keyword"
+                            : selectedTab.getText().equals("Fetch by Subreddit") ? "subreddit" : "post";
+                        SentimentAnalyzer analyzer = sentimentAnalyzer;
+                        RedditService analysisService = new RedditService(() -> analyzer);
+                        CompletableFuture<Flow.Publisher<AnalyzedComment>> commentSource = new CompletableFuture<>();
+                        RedditService.FetchListener listener = !pipelined ? null : (path, finished) ->
+                            commentSource.complete(analysisService.streamCommentsFromFetch(
+                                path, finished, queueSize, ANALYSIS_BATCH_SIZE, fetchType));
+                        String fetchKeyword = keyword;
+                        String fetchSubreddit = subreddit;
+                        String fetchPostLink = postLink;
+                        String fetchSortBy = sortBy;
+                        int fetchPosts = numberOfPosts;
+                        int fetchComments = commentsPerPost;
+                        CompletableFuture<String> fetch = CompletableFuture.supplyAsync(() -> {
+                            if (!fetchKeyword.isEmpty()) {
+                                return redditService.fetchByKeyword(fetchKeyword, fetchPosts, fetchComments, fetchSortBy, outputFile, listener);
+                            } else if (!fetchSubreddit.isEmpty()) {
+                                return redditService.fetchBySubreddit(fetchSubreddit, fetchPosts, fetchComments, fetchSortBy, outputFile, listener);
+                            } else if (!fetchPostLink.isEmpty()) {
+                                return redditService.fetchByPostLink(fetchPostLink, fetchComments, outputFile, listener);
+                            }
+                            return null;
+                        }, RedditTabContent::startFetchThread);
+                        fetch.whenComplete((actualOutputFile, error) -> {
+                            if (error != null) {
+                                commentSource.completeExceptionally(error);
+                            } else if (actualOutputFile == null) {
+                                commentSource.completeExceptionally(
+                                    new IllegalStateException("No output file path returned from Reddit service"));
+                            } else {
+                                // Not pipelined, or the fetch never started: read the finished file
+                                commentSource.complete(analysisService.streamCommentsFromFile(
+                                    actualOutputFile, ANALYSIS_BATCH_SIZE, fetchType));
+                            }
+                        });
 
                         // Update progress
                         updateProgress(0.5, 1);
-                        updateMessage("Processing comments...");
-
-                        if (actualOutputFile == null) {
-                            throw new IllegalStateException("No output file path returned from Reddit service");
+                        updateMessage(pipelined ? "Fetching and analyzing comments..." : "Processing comments...");
+                        ResultCollector collector = new ResultCollector(
+                            analyzed -> updateMessage("Analyzed " + analyzed + " comments..."));
+                        await(commentSource).subscribe(collector);
+                        List<AnalyzedComment> results = await(collector.results);
+
+                        int positive = 0, negative = 0;
+                        int totalComments = results.size();
+                        List<CommentSentiment> commentSentiments = new ArrayList<>(totalComments);
+                        Map<String, Integer> postCommentCount = new HashMap<>();
+                        Map<String, Integer> subredditCommentCount = new HashMap<>();
+                        boolean keywordFetch = fetchType.equals("keyword");
+                        for (AnalyzedComment result : results) {
+                            String subredditName = keywordFetch ? result.getSubreddit() : result.getPostTitle();
+                            commentSentiments.add(new CommentSentiment(result.getComment(), result.getSentiment(),
+                                result.getPostTitle(), subredditName));
                         }
 
-                        Path outputPath = Paths.get(actualOutputFile);
-                        if (!Files.exists(outputPath)) {
-                            throw new IOException("Output file not found: " + outputPath);
-                        }
+                        // A fetch that failed part way is reported even though its comments were analyzed
+                        await(fetch);
+                        logger.info("Data fetching completed.");
 
-                        try (CSVReader csvReader = new CSVReader(new FileReader(outputPath.toFile()))) {
-                            String[] parts;
-                            int positive = 0, negative = 0;
-                            int totalComments = 0;
-                            List<CommentSentiment> commentSentiments = new ArrayList<>();
-                            Map<String, Integer> postCommentCount = new HashMap<>();
-                            Map<String, Integer> subredditCommentCount = new HashMap<>();
-
-                            // Determine column indices based on the selected tab
-                            int commentIndex = selectedTab.getText().equals("Fetch by Post Link") ? 1 : 2;
-                            int postTitleIndex = selectedTab.getText().equals("Fetch by Post Link") ? 0 : 1;
-                            int subredditIndex = selectedTab.getText().equals("Fetch by Keyword") ? 0 : -1;
-
-                            // Skip header row
-                            csvReader.readNext();
-
-                            while ((parts = csvReader.readNext()) != null) {
-                                if (parts.length > commentIndex) {
-                                    String comment = parts[commentIndex].trim();
-                                    if (!comment.isEmpty()) {
-                                        totalComments++;
-                                        updateMessage("Analyzing comment " + totalComments + "...");
-                                        String sentiment = sentimentAnalyzer.analyzeSentiment(comment);
-                                        if (sentiment.equals("Positive")) {
-                                            positive++;
-                                        } else {
-                                            negative++;
-                                        }
-                                        String postId = parts[postTitleIndex];
-                                        String subredditName = selectedTab.getText().equals("Fetch by Keyword") ? parts[subredditIndex] : parts[postTitleIndex];
-                                        commentSentiments.add(new CommentSentiment(comment, sentiment, postId, subredditName));
-
-                                        // Track post and subreddit comment counts
-                                        postCommentCount.put(postId, postCommentCount.getOrDefault(postId, 0) + 1);
-                                        subredditCommentCount.put(subredditName, subredditCommentCount.getOrDefault(subredditName, 0) + 1);
-                                    }
-                                }
+                        for (CommentSentiment commentSentiment : commentSentiments) {
+                            if (commentSentiment.getSentiment().equals("Positive")) {
+                                positive++;
+                            } else {
+                                negative++;
                             }
+                            // Track post and subreddit comment counts
+                            postCommentCount.merge(commentSentiment.getPostTitle(), 1, Integer::sum);
+                            subredditCommentCount.merge(commentSentiment.getSubreddit(), 1, Integer::sum);
+                        }
 
-                            if (totalComments == 0) {
-                                throw new IllegalStateException("No valid comments found for analysis");
-                            }
+                        if (totalComments == 0) {
+                            throw new IllegalStateException("No valid comments found for analysis");
+                        }
 
-                            // Calculate percentages
-                            double positivePercentage = (positive / (double) totalComments) * 100;
-                            double negativePercentage = (negative / (double) totalComments) * 100;
+                        // Calculate percentages
+                        double positivePercentage = (positive / (double) totalComments) * 100;
+                        double negativePercentage = (negative / (double) totalComments) * 100;
 
-                            String finalResult = String.format("""
-                                Analysis Complete!
-                                Total Comments Analyzed: %d
-                                Positive Comments: %d (%.1f%%)
-                                Negative Comments: %d (%.1f%%)
-                                """, totalComments, positive, positivePercentage, negative, negativePercentage);
+                        String finalResult = String.format("""
+                            Analysis Complete!
+                            Total Comments Analyzed: %d
+                            Positive Comments: %d (%.1f%%)
+                            Negative Comments: %d (%.1f%%)
+                            """, totalComments, positive, positivePercentage, negative, negativePercentage);
 
-                            updateCommentTable(commentSentiments, fetchMethod);
+                        updateCommentTable(commentSentiments, fetchMethod);
 
-                            updateUIWithResults(commentSentiments, fetchMethod);
+                        updateUIWithResults(commentSentiments, fetchMethod);
 
-                            // Update progress
-                            updateProgress(1, 1);
-                            updateMessage("Analysis complete!");
-                        }
+                        // Update progress
+                        updateProgress(1, 1);
+                        updateMessage("Analysis complete!");
 
                         return null;
 
@@ -524,6 +532,8 @@ public class RedditTabContent {
                 progressBar.progressProperty().unbind();
                 statusLabel.textProperty().unbind();
                 logger.info("Analysis task completed successfully.");
+                ModelRegistry.getInstance().logRunStats();
+                StartupMetrics.markFirstResult(sentimentAnalyzer.getName());
                 inputFieldsBox.setVisible(true); // Show input fields again after analysis
             });
 
@@ -543,6 +553,65 @@ public class RedditTabContent {
         });
     }
 
+    /**
+     * Collects a run's analyzed comments in order, requesting them a batch at a time so the
+     * analysis never runs far ahead of the collection.
+     */
+    private static final class ResultCollector implements Flow.Subscriber<AnalyzedComment> {
+        private final CompletableFuture<List<AnalyzedComment>> results = new CompletableFuture<>();
+        private final List<AnalyzedComment> collected = new ArrayList<>();
+        private final IntConsumer progress;
+        private Flow.Subscription subscription;
+
+        ResultCollector(IntConsumer progress) {
+            this.progress = progress;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(ANALYSIS_BATCH_SIZE);
+        }
+
+        @Override
+        public void onNext(AnalyzedComment item) {
+            collected.add(item);
+            if (collected.size() % ANALYSIS_BATCH_SIZE == 0) {
+                progress.accept(collected.size());
+                subscription.request(ANALYSIS_BATCH_SIZE);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            results.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            results.complete(collected);
+        }
+    }
+
+    private static void startFetchThread(Runnable fetch) {
+        Thread thread = new Thread(fetch, "reddit-fetch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Waits for the future, rethrowing the exception it failed with
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            throw cause instanceof Exception ? (Exception) cause : new RuntimeException(cause.getMessage(), cause);
+        }
+    }
+
     private TableView<CommentSentiment> createCommentTable() {
         commentTable = new TableView<>();
         
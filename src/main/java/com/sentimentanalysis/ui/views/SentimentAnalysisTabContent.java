@@ -8,13 +8,17 @@ import javafx.scene.layout.Priority;
 import javafx.collections.FXCollections;
 import javafx.scene.chart.PieChart;
 import javafx.geometry.Pos;
+import com.sentimentanalysis.core.service.LocalMLlibSentimentService;
+import com.sentimentanalysis.core.service.ModelRegistry;
 import com.sentimentanalysis.core.service.SentimentAnalysisService;
+import com.sentimentanalysis.util.StartupMetrics;
 import java.io.IOException;
 import java.util.Map;
 import java.util.HashMap;
 
 public class SentimentAnalysisTabContent {
-    private final SentimentAnalysisService analysisService = new SentimentAnalysisService();
+    private final SentimentAnalysisService analysisService = ModelRegistry.getInstance().getSentimentAnalysisService();
+    private final LocalMLlibSentimentService localModel = ModelRegistry.getInstance().getLocalMLlibSentimentService();
     private TextArea inputTextArea;
     private TextArea resultTextArea;
     private ChoiceBox<String> modelChoice;
@@ -112,6 +116,16 @@ public class SentimentAnalysisTabContent {
         });
     }
 
+    // Scores with the in-JVM copy of the HDFS model, using Spark only if it cannot be loaded
+    private String analyzeWithLocalModel(String text) throws Exception {
+        try {
+            localModel.getModel();
+        } catch (RuntimeException e) {
+            return analysisService.analyzeWithHDFSModel(text);
+        }
+        return localModel.analyzeSentiment(text);
+    }
+
     public void analyzeSentiment() {
         String text = inputTextArea.getText();
         if (text == null || text.trim().isEmpty()) {
@@ -123,7 +137,7 @@ public class SentimentAnalysisTabContent {
             String result;
             switch (modelChoice.getValue()) {
                 case "HDFS Model":
-                    result = analysisService.analyzeWithHDFSModel(text);
+                    result = analyzeWithLocalModel(text);
                     break;
                 case "StanfordNLP Model":
                     result = analysisService.analyzeWithStanfordNLP(text);
@@ -134,6 +148,7 @@ public class SentimentAnalysisTabContent {
             }
             resultTextArea.setText("Sentiment: " + result);
             updateChart(result);
+            StartupMetrics.markFirstResult(modelChoice.getValue());
         } catch (IOException e) {
             if (e.getMessage().contains("rate limit exceeded")) {
                 resultTextArea.setText("⚠️ " + e.getMessage() + "\n\nPlease try using the HDFS Model instead, or wait for the rate limit to reset.");
@@ -0,0 +1,285 @@
+package com.sentimentanalysis.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.apache.arrow.flatbuf.Buffer;
+import org.apache.arrow.flatbuf.FieldNode;
+import org.apache.arrow.flatbuf.Message;
+import org.apache.arrow.flatbuf.MessageHeader;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.vector.ipc.message.MessageSerializer;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+
+/**
+ * Reads an Arrow IPC stream of UTF-8 columns, as written by {@link ArrowFetchWriter} or
+ * the Python fetch worker. The file is memory-mapped a window at a time and each record
+ * batch is used where it lies: only its metadata is decoded, and field bytes are read
+ * straight from the mapping when a field is asked for. Only batches the writer has
+ * finished are read, which makes the stream safe to follow while it grows. A stream
+ * already in memory, such as a file read whole from HDFS, is read the same way.
+ */
+class ArrowFetchReader implements FetchRecordReader {
+    private static final int DEFAULT_WINDOW_BYTES = 64 * 1024 * 1024;
+    private static final int CONTINUATION = 0xFFFFFFFF;
+
+    // Null when the whole stream is in memory
+    private final FileChannel channel;
+    private final int windowBytes;
+    private ByteBuffer window;
+    private long windowOffset;
+    private long position;
+    private boolean ended;
+
+    // Reused views over the metadata of the current message
+    private final Message message = new Message();
+    private final RecordBatch batch = new RecordBatch();
+    private final FieldNode node = new FieldNode();
+    private final Buffer buffer = new Buffer();
+
+    // Where each column of the current batch lies in the window; no validity bitmap is -1
+    private String[] columnNames;
+    private int[] validity;
+    private int[] offsets;
+    private int[] data;
+    private int rowCount;
+    private int row = -1;
+    private boolean headerPending;
+    private byte[] scratch = new byte[1024];
+
+    ArrowFetchReader(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_BYTES);
+    }
+
+    // Messages larger than the window are mapped on their own
+    ArrowFetchReader(Path path, int windowBytes) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.windowBytes = windowBytes;
+    }
+
+    ArrowFetchReader(ByteBuffer content) {
+        this.channel = null;
+        this.windowBytes = content.remaining();
+        this.window = content.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        return advance();
+    }
+
+    @Override
+    public boolean nextComplete() throws IOException {
+        // Batches are only read once complete, so the two are the same
+        return advance();
+    }
+
+    private boolean advance() throws IOException {
+        if (headerPending) {
+            headerPending = false;
+            return true;
+        }
+        while (row + 1 >= rowCount) {
+            if (!readMessage()) {
+                return false;
+            }
+            if (headerPending) {
+                headerPending = false;
+                return true;
+            }
+        }
+        row++;
+        return true;
+    }
+
+    /**
+     * Reads the message at the current position if the writer has finished it: the schema,
+     * which makes the column names the next record, or a record batch, which replaces the
+     * current one. Returns false at the end of the stream or when the next message is not
+     * complete yet.
+     */
+    private boolean readMessage() throws IOException {
+        if (ended || !map(position, 8)) {
+            return false;
+        }
+        int at = (int) (position - windowOffset);
+        int first = window.getInt(at);
+        // Streams from before Arrow 0.15 have no continuation marker
+        int headerBytes = first == CONTINUATION ? 8 : 4;
+        int metadataLength = first == CONTINUATION ? window.getInt(at + 4) : first;
+        if (metadataLength == 0) {
+            ended = true;
+            return false;
+        }
+        if (!map(position, headerBytes + metadataLength)) {
+            return false;
+        }
+        int metadataStart = (int) (position - windowOffset) + headerBytes;
+        Message.getRootAsMessage(window.slice(metadataStart, metadataLength), message);
+        long messageLength = headerBytes + metadataLength + message.bodyLength();
+        if (!map(position, messageLength)) {
+            return false;
+        }
+        int bodyStart = (int) (position - windowOffset) + headerBytes + metadataLength;
+
+        switch (message.headerType()) {
+            case MessageHeader.Schema:
+                if (columnNames != null) {
+                    throw new IOException("Arrow stream holds more than one schema");
+                }
+                loadSchema(MessageSerializer.deserializeSchema(message).getFields());
+                break;
+            case MessageHeader.RecordBatch:
+                if (columnNames == null) {
+                    throw new IOException("Arrow record batch before the schema");
+                }
+                loadBatch(bodyStart);
+                break;
+            default:
+                throw new IOException("Unsupported Arrow message type " + MessageHeader.name(message.headerType()));
+        }
+        position += messageLength;
+        return true;
+    }
+
+    /**
+     * Makes sure the mapped window holds the given range, moving the window to start at it
+     * if needed. Returns false if the file does not hold the whole range yet.
+     */
+    private boolean map(long start, long length) throws IOException {
+        if (window != null && start >= windowOffset && start + length <= windowOffset + window.capacity()) {
+            return true;
+        }
+        if (channel == null) {
+            return false;
+        }
+        long size = channel.size();
+        if (start + length > size) {
+            return false;
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Arrow message of " + length + " bytes is too large to map");
+        }
+        long windowLength = Math.min(Math.min(Math.max(length, windowBytes), size - start), Integer.MAX_VALUE);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, windowLength).order(ByteOrder.LITTLE_ENDIAN);
+        windowOffset = start;
+        return true;
+    }
+
+    private void loadSchema(List<Field> fields) throws IOException {
+        columnNames = new String[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            if (!(fields.get(i).getType() instanceof ArrowType.Utf8)) {
+                throw new IOException("Arrow column " + fields.get(i).getName() + " is not UTF-8 text");
+            }
+            columnNames[i] = fields.get(i).getName();
+        }
+        validity = new int[columnNames.length];
+        offsets = new int[columnNames.length];
+        data = new int[columnNames.length];
+        headerPending = true;
+    }
+
+    // Each UTF-8 column has one field node and three buffers: validity bitmap, offsets and data
+    private void loadBatch(int bodyStart) throws IOException {
+        message.header(batch);
+        if (batch.compression() != null) {
+            throw new IOException("Compressed Arrow record batches are not supported");
+        }
+        if (batch.nodesLength() != columnNames.length || batch.buffersLength() != 3 * columnNames.length) {
+            throw new IOException("Arrow record batch does not match the schema");
+        }
+        for (int i = 0; i < columnNames.length; i++) {
+            batch.nodes(node, i);
+            batch.buffers(buffer, 3 * i);
+            validity[i] = node.nullCount() > 0 ? bodyStart + (int) buffer.offset() : -1;
+            batch.buffers(buffer, 3 * i + 1);
+            offsets[i] = bodyStart + (int) buffer.offset();
+            batch.buffers(buffer, 3 * i + 2);
+            data[i] = bodyStart + (int) buffer.offset();
+        }
+        rowCount = (int) batch.length();
+        row = -1;
+    }
+
+    private boolean onHeader() {
+        return row < 0;
+    }
+
+    private boolean isNull(int column) {
+        return validity[column] >= 0 && (window.get(validity[column] + (row >> 3)) & (1 << (row & 7))) == 0;
+    }
+
+    @Override
+    public int fieldCount() {
+        return columnNames == null ? 0 : columnNames.length;
+    }
+
+    @Override
+    public boolean isBlank(int index) {
+        checkIndex(index);
+        if (onHeader()) {
+            return columnNames[index].trim().isEmpty();
+        }
+        if (isNull(index)) {
+            return true;
+        }
+        int start = data[index] + window.getInt(offsets[index] + 4 * row);
+        int end = data[index] + window.getInt(offsets[index] + 4 * (row + 1));
+        // Same rule as MappedCsvReader: blank after String.trim()
+        for (int i = start; i < end; i++) {
+            byte b = window.get(i);
+            if (b < 0 || b > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String getString(int index) {
+        checkIndex(index);
+        if (onHeader()) {
+            return columnNames[index];
+        }
+        if (isNull(index)) {
+            return "";
+        }
+        int start = window.getInt(offsets[index] + 4 * row);
+        int length = window.getInt(offsets[index] + 4 * (row + 1)) - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        window.get(data[index] + start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String[] toArray() {
+        String[] fields = new String[fieldCount()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = getString(i);
+        }
+        return fields;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount()) {
+            throw new IndexOutOfBoundsException("Field " + index + " of a record with " + fieldCount() + " fields");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.sentimentanalysis.util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+// Arrow IPC stream with one UTF-8 column per fetch column; each flush writes one record batch
+class ArrowFetchWriter implements FetchRecordWriter {
+    private final BufferAllocator allocator = new RootAllocator();
+    private final FileChannel channel;
+    private final VectorSchemaRoot root;
+    private final ArrowStreamWriter writer;
+    private final List<byte[][]> pending = new ArrayList<>();
+
+    ArrowFetchWriter(Path path, List<String> columns) throws IOException {
+        List<Field> fields = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            fields.add(new Field(column, FieldType.notNullable(new ArrowType.Utf8()), null));
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        this.root = VectorSchemaRoot.create(new Schema(fields), allocator);
+        this.writer = new ArrowStreamWriter(root, null, channel);
+        // The schema goes out at once, so a follower can read the column names before any data
+        writer.start();
+    }
+
+    @Override
+    public void write(List<String> record) throws IOException {
+        byte[][] values = new byte[root.getFieldVectors().size()][];
+        for (int i = 0; i < values.length; i++) {
+            String value = i < record.size() && record.get(i) != null ? record.get(i) : "";
+            values[i] = value.getBytes(StandardCharsets.UTF_8);
+        }
+        pending.add(values);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (int column = 0; column < root.getFieldVectors().size(); column++) {
+            VarCharVector vector = (VarCharVector) root.getVector(column);
+            vector.allocateNew(pending.size());
+            for (int row = 0; row < pending.size(); row++) {
+                vector.setSafe(row, pending.get(row)[column]);
+            }
+            vector.setValueCount(pending.size());
+        }
+        root.setRowCount(pending.size());
+        writer.writeBatch();
+        pending.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            writer.end();
+        } finally {
+            writer.close();
+            root.close();
+            allocator.close();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.sentimentanalysis.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Python csv.writer layout: fields quoted only when needed, CRLF line ends
+class CsvFetchWriter implements FetchRecordWriter {
+    private final Writer writer;
+
+    CsvFetchWriter(Path path, List<String> columns) throws IOException {
+        this(Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING), columns);
+    }
+
+    CsvFetchWriter(Writer writer, List<String> columns) throws IOException {
+        this.writer = writer;
+        write(columns);
+    }
+
+    @Override
+    public void write(List<String> record) throws IOException {
+        for (int i = 0; i < record.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String field = record.get(i) == null ? "" : record.get(i);
+            if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(field.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(field);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,149 @@
+package com.sentimentanalysis.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Follows a fetch output file, CSV or Arrow, while another process is still writing it,
+ * handing complete records to a consumer through a bounded queue. A background thread
+ * waits for the file to appear, reads each record once the writer has finished it, and
+ * polls for more until the writer is done. When the queue is full the thread stops
+ * reading, so a slow consumer never makes records pile up in memory.
+ *
+ * <p>A file that is already complete can be read the same way by passing a writer-done
+ * check that always returns true.
+ */
+public class FetchFileFollower implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(FetchFileFollower.class);
+    private static final long POLL_MILLIS = 50;
+    private static final String[] END = new String[0];
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final Path path;
+    private final BooleanSupplier writerDone;
+    private final BlockingQueue<String[]> records;
+    private volatile boolean closed;
+    private volatile Exception failure;
+    private Thread reader;
+    private boolean ended;
+
+    /**
+     * @param writerDone    returns true once the writer will not append anything more
+     * @param queueCapacity records parsed ahead of the consumer
+     */
+    public FetchFileFollower(Path path, BooleanSupplier writerDone, int queueCapacity) {
+        this.path = path;
+        this.writerDone = writerDone;
+        this.records = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public synchronized void start() {
+        if (reader != null) {
+            return;
+        }
+        reader = new Thread(this::follow, "fetch-follower-" + THREAD_COUNTER.incrementAndGet());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Returns the next record, including the header, waiting for the writer if needed.
+     * Returns null once the writer is done and every record has been taken, or after
+     * {@link #close()}.
+     */
+    public String[] take() throws IOException, InterruptedException {
+        if (ended || closed) {
+            return null;
+        }
+        String[] record = records.take();
+        if (record == END) {
+            ended = true;
+            if (failure != null) {
+                throw new IOException("Failed to follow " + path + ": " + failure.getMessage(), failure);
+            }
+            return null;
+        }
+        return record;
+    }
+
+    private void follow() {
+        long count = 0;
+        try {
+            while (!Files.exists(path)) {
+                if (writerDone.getAsBoolean() && !Files.exists(path)) {
+                    throw new IOException("Writer finished without creating " + path);
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+            try (FetchRecordReader csv = FetchRecordReader.open(path)) {
+                while (!closed) {
+                    // Check before reading, so nothing written before the writer finished is missed
+                    boolean done = writerDone.getAsBoolean();
+                    while (!closed && csv.nextComplete()) {
+                        put(csv.toArray());
+                        count++;
+                    }
+                    if (done) {
+                        // A last record without a line break is complete once the writer is done
+                        if (!closed && csv.next()) {
+                            put(csv.toArray());
+                            count++;
+                        }
+                        break;
+                    }
+                    Thread.sleep(POLL_MILLIS);
+                }
+            }
+            logger.info("Followed {} records from {}", count, path);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Failed to follow {}: {}", path, e.getMessage());
+            failure = e;
+        } finally {
+            finish();
+        }
+    }
+
+    private void put(String[] record) throws InterruptedException {
+        while (!closed && !records.offer(record, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            // Queue full: wait for the consumer
+        }
+    }
+
+    // Queues the end marker behind the remaining records, or in place of them once closed
+    private void finish() {
+        try {
+            while (!closed && !records.offer(END, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                // Queue full: wait for the consumer
+            }
+        } catch (InterruptedException e) {
+            closed = true;
+        }
+        if (closed) {
+            records.clear();
+            records.offer(END);
+        }
+    }
+
+    // Stops following; records not yet taken are discarded
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (reader != null) {
+            reader.interrupt();
+        } else {
+            records.offer(END);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.sentimentanalysis.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Record-by-record access to a fetch output file, either CSV or an Arrow IPC stream.
+ * The first record holds the column names, as a CSV header does. Field values belong
+ * to the current record and are valid until the next call to {@link #next()}.
+ */
+public interface FetchRecordReader extends Closeable {
+    String CSV_EXTENSION = ".csv";
+    String ARROW_EXTENSION = ".arrows";
+
+    // Opens the file with the reader its extension calls for
+    static FetchRecordReader open(Path path) throws IOException {
+        return isArrow(path) ? new ArrowFetchReader(path) : new MappedCsvReader(path);
+    }
+
+    // Reads an Arrow IPC stream already in memory, such as a fetch file read whole from HDFS
+    static FetchRecordReader openArrow(ByteBuffer content) {
+        return new ArrowFetchReader(content);
+    }
+
+    static boolean isArrow(Path path) {
+        return isArrow(path.getFileName().toString());
+    }
+
+    static boolean isArrow(String fileName) {
+        return fileName.toLowerCase().endsWith(ARROW_EXTENSION);
+    }
+
+    /**
+     * Advances to the next record. Returns false at the end of the file; what the file
+     * holds is taken to be complete.
+     */
+    boolean next() throws IOException;
+
+    /**
+     * Advances like {@link #next()}, but only to records the writer has finished, for
+     * following a file that is still being written.
+     */
+    boolean nextComplete() throws IOException;
+
+    int fieldCount();
+
+    // True if the field is empty or only ASCII whitespace, checked without decoding it
+    boolean isBlank(int index);
+
+    String getString(int index);
+
+    String[] toArray();
+}
@@ -0,0 +1,28 @@
+package com.sentimentanalysis.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes fetched records to a fetch output file, as CSV or as an Arrow IPC stream
+ * depending on the file extension. Records become visible to readers following the
+ * file at each {@link #flush()}.
+ */
+public interface FetchRecordWriter extends Closeable {
+
+    static FetchRecordWriter open(Path path, List<String> columns) throws IOException {
+        return FetchRecordReader.isArrow(path) ? new ArrowFetchWriter(path, columns) : new CsvFetchWriter(path, columns);
+    }
+
+    // Writes the records as CSV fetch output would hold them, to any writer
+    static FetchRecordWriter csv(Writer writer, List<String> columns) throws IOException {
+        return new CsvFetchWriter(writer, columns);
+    }
+
+    void write(List<String> record) throws IOException;
+
+    void flush() throws IOException;
+}
@@ -0,0 +1,302 @@
+package com.sentimentanalysis.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads UTF-8 CSV files record by record through a memory-mapped window, following RFC
+ * 4180: fields may be quoted, quoted fields may contain commas, line breaks and doubled
+ * quotes, and records end with CRLF, LF or CR. Parsing only notes where each field
+ * starts and ends in the mapped bytes; a field is decoded to a String when asked for, so
+ * columns that are never read cost nothing. The window is remapped as reading moves on,
+ * keeping heap use independent of the file size.
+ *
+ * <p>Field positions are valid until the next call to {@link #next()}. {@link Field}
+ * slices stay readable after that. A reader is not thread-safe.
+ */
+public class MappedCsvReader implements FetchRecordReader {
+    private static final int DEFAULT_WINDOW_BYTES = 64 * 1024 * 1024;
+    private static final byte QUOTE = '"';
+    private static final byte COMMA = ',';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final FileChannel channel;
+    private final int windowBytes;
+    private MappedByteBuffer window;
+    private long windowOffset;
+    private long fileSize;
+    private int position;
+
+    // Current record: byte range and whether the field holds doubled quotes, per field
+    private int fieldCount;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private boolean[] escaped = new boolean[8];
+    private byte[] scratch = new byte[1024];
+
+    public MappedCsvReader(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_BYTES);
+    }
+
+    // A small window is only useful to exercise remapping; records longer than it still parse
+    public MappedCsvReader(Path path, int windowBytes) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.windowBytes = windowBytes;
+        this.fileSize = channel.size();
+        map(0);
+        if (window.limit() >= 3 && (window.get(0) & 0xff) == 0xEF
+                && (window.get(1) & 0xff) == 0xBB && (window.get(2) & 0xff) == 0xBF) {
+            position = 3;
+        }
+    }
+
+    /**
+     * Advances to the next record. Returns false at the end of the file. A record that
+     * runs to the end of the file without a line break is returned as complete.
+     */
+    public boolean next() throws IOException {
+        return advance(true);
+    }
+
+    /**
+     * Advances like {@link #next()}, but only to records ended by a line break, leaving a
+     * trailing partial record unread. Used to follow a file that is still being written;
+     * the file size is checked again on every call.
+     */
+    public boolean nextComplete() throws IOException {
+        fileSize = channel.size();
+        return advance(false);
+    }
+
+    private boolean advance(boolean endOfFileEndsRecord) throws IOException {
+        while (true) {
+            if (windowOffset + position >= fileSize) {
+                return false;
+            }
+            int end = parseRecord(position, endOfFileEndsRecord && windowOffset + window.limit() >= fileSize);
+            if (end >= 0) {
+                position = end;
+                return true;
+            }
+            if (windowOffset + window.limit() >= fileSize) {
+                // Partial record at the end of a file that is still being written
+                return false;
+            }
+            // The record crosses the end of the window: move the window to start at it, growing
+            // the window for records longer than half of it
+            long recordOffset = windowOffset + position;
+            map(recordOffset, Math.max(windowBytes, 2L * (window.limit() - position)));
+        }
+    }
+
+    /**
+     * Parses one record starting at {@code start}, filling the field tables. Returns the
+     * index just after the record and its line break, or -1 if the window ends first and
+     * {@code atEnd} does not allow the window end to close the record.
+     */
+    private int parseRecord(int start, boolean atEnd) {
+        int limit = window.limit();
+        int i = start;
+        fieldCount = 0;
+        while (true) {
+            int fieldStart = i;
+            int fieldEnd;
+            boolean hasEscapes = false;
+            if (i < limit && window.get(i) == QUOTE) {
+                fieldStart = ++i;
+                while (true) {
+                    if (i >= limit) {
+                        // An unterminated quote only ends at the end of the file
+                        if (!atEnd) {
+                            return -1;
+                        }
+                        fieldEnd = limit;
+                        break;
+                    }
+                    if (window.get(i) != QUOTE) {
+                        i++;
+                        continue;
+                    }
+                    if (i + 1 < limit && window.get(i + 1) == QUOTE) {
+                        hasEscapes = true;
+                        i += 2;
+                        continue;
+                    }
+                    if (i + 1 >= limit && !atEnd) {
+                        return -1;
+                    }
+                    if (i + 1 >= limit || isDelimiter(window.get(i + 1))) {
+                        fieldEnd = i++;
+                        break;
+                    }
+                    // A stray quote inside a quoted field is kept as text
+                    i++;
+                }
+            } else {
+                while (i < limit && !isDelimiter(window.get(i))) {
+                    i++;
+                }
+                fieldEnd = i;
+            }
+            addField(fieldStart, fieldEnd, hasEscapes);
+
+            if (i >= limit) {
+                return atEnd ? limit : -1;
+            }
+            byte delimiter = window.get(i++);
+            if (delimiter == COMMA) {
+                continue;
+            }
+            if (delimiter == CR) {
+                if (i >= limit && !atEnd) {
+                    return -1;
+                }
+                if (i < limit && window.get(i) == LF) {
+                    i++;
+                }
+            }
+            return i;
+        }
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b == COMMA || b == LF || b == CR;
+    }
+
+    private void addField(int start, int end, boolean hasEscapes) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+            escaped = Arrays.copyOf(escaped, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        escaped[fieldCount] = hasEscapes;
+        fieldCount++;
+    }
+
+    private void map(long offset) throws IOException {
+        map(offset, windowBytes);
+    }
+
+    private void map(long offset, long size) throws IOException {
+        long length = Math.min(Math.min(size, Integer.MAX_VALUE), fileSize - offset);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        windowOffset = offset;
+        position = 0;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    // True if the field is empty after String.trim(), i.e. only chars up to U+0020, checked without decoding it.
+    // Bytes of multi-byte UTF-8 sequences are negative, so never count as blank.
+    public boolean isBlank(int index) {
+        checkIndex(index);
+        for (int i = starts[index]; i < ends[index]; i++) {
+            byte b = window.get(i);
+            if (b < 0 || b > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getString(int index) {
+        checkIndex(index);
+        return decode(window, starts[index], ends[index], escaped[index]);
+    }
+
+    // A slice of the mapped file holding the field, decoded only by toString()
+    public Field field(int index) {
+        checkIndex(index);
+        return new Field(window, starts[index], ends[index], escaped[index]);
+    }
+
+    public String[] toArray() {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = getString(i);
+        }
+        return fields;
+    }
+
+    // Byte offset in the file just after the current record
+    public long getFilePosition() {
+        return windowOffset + position;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of a record with " + fieldCount + " fields");
+        }
+    }
+
+    private String decode(MappedByteBuffer buffer, int start, int end, boolean hasEscapes) {
+        if (scratch.length < end - start) {
+            scratch = new byte[Math.max(end - start, scratch.length * 2)];
+        }
+        return new String(scratch, 0, copyField(buffer, start, end, hasEscapes, scratch), StandardCharsets.UTF_8);
+    }
+
+    // Copies the field's bytes, turning doubled quotes into one; returns the number of bytes copied
+    private static int copyField(MappedByteBuffer buffer, int start, int end, boolean hasEscapes, byte[] target) {
+        if (!hasEscapes) {
+            buffer.get(start, target, 0, end - start);
+            return end - start;
+        }
+        int size = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            target[size++] = b;
+            if (b == QUOTE && i + 1 < end && buffer.get(i + 1) == QUOTE) {
+                i++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * One field as a range of the mapped file. Holding a field keeps its part of the
+     * mapping alive, so keep fields only as long as needed.
+     */
+    public static final class Field {
+        private final MappedByteBuffer buffer;
+        private final int start;
+        private final int end;
+        private final boolean hasEscapes;
+
+        private Field(MappedByteBuffer buffer, int start, int end, boolean hasEscapes) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            this.hasEscapes = hasEscapes;
+        }
+
+        public int byteLength() {
+            return end - start;
+        }
+
+        public boolean isEmpty() {
+            return end == start;
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[end - start];
+            return new String(bytes, 0, copyField(buffer, start, end, hasEscapes, bytes), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.sentimentanalysis.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * Keeps one Python fetch worker (fetch_worker.py) running for the life of the application
+ * and sends it fetch requests as JSON lines, so interpreter start-up, the praw import and
+ * Reddit authentication are paid once instead of on every fetch. Rows are streamed back
+ * while the worker writes them to the output file.
+ *
+ * <p>The worker handles one request at a time; concurrent fetches wait their turn. If the
+ * worker dies it is started again for the next request, and a request it died on before
+ * returning any rows is retried once.
+ */
+public class PythonFetchWorker implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(PythonFetchWorker.class);
+    private static final int STDERR_TAIL_LINES = 20;
+
+    private final List<String> command = new ArrayList<>();
+    private final Path scriptDir;
+    private final Deque<String> stderrTail = new ArrayDeque<>();
+    private volatile Process process;
+    private volatile boolean closed;
+    private BufferedWriter requests;
+    private BufferedReader replies;
+    private long nextRequestId;
+    private int rowsDelivered;
+    private int restarts;
+
+    public PythonFetchWorker(String scriptPath, List<String> workerArgs) {
+        this(PythonScriptRunner.PYTHON_EXECUTABLE, scriptPath, workerArgs);
+    }
+
+    public PythonFetchWorker(String pythonExecutable, String scriptPath, List<String> workerArgs) {
+        // The worker runs in the script directory, so a relative script path would not resolve there
+        Path script = Paths.get(scriptPath).toAbsolutePath();
+        command.add(pythonExecutable);
+        command.add(script.toString());
+        command.addAll(workerArgs);
+        this.scriptDir = script.getParent();
+    }
+
+    // Starts the worker unless it is already running, and waits until it accepts requests
+    public synchronized void start() {
+        if (closed) {
+            throw new IllegalStateException("Fetch worker is closed");
+        }
+        if (process != null && process.isAlive()) {
+            return;
+        }
+        if (process != null) {
+            restarts++;
+            logger.warn("Restarting fetch worker (restart {})", restarts);
+        }
+        long startTime = System.nanoTime();
+        try {
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            if (scriptDir != null) {
+                processBuilder.directory(scriptDir.toFile());
+            }
+            logger.info("Starting fetch worker: {}", String.join(" ", command));
+            Process started = processBuilder.start();
+            process = started;
+            Thread stderrReader = new Thread(() -> logStderr(started), "fetch-worker-stderr-" + started.pid());
+            stderrReader.setDaemon(true);
+            stderrReader.start();
+            requests = new BufferedWriter(new OutputStreamWriter(started.getOutputStream(), StandardCharsets.UTF_8));
+            replies = new BufferedReader(new InputStreamReader(started.getInputStream(), StandardCharsets.UTF_8));
+
+            String line = replies.readLine();
+            JsonObject ready = line == null ? null : parse(line);
+            if (ready == null || !ready.has("ready")) {
+                throw new IOException("no ready message, got " + line);
+            }
+        } catch (IOException e) {
+            discard();
+            throw new RuntimeException("Failed to start fetch worker: " + e.getMessage() + stderrTail(), e);
+        }
+        logger.info("Fetch worker ready after {} ms", (System.nanoTime() - startTime) / 1_000_000);
+    }
+
+    /**
+     * Runs one fetch, passing each row to {@code rowListener} as the worker reports it,
+     * and returns the number of rows once the output file has been written completely.
+     */
+    public synchronized int fetch(FetchRequest request, Consumer<String[]> rowListener) {
+        for (int attempt = 1; ; attempt++) {
+            start();
+            long id = ++nextRequestId;
+            rowsDelivered = 0;
+            try {
+                return exchange(id, request, rowListener);
+            } catch (IOException e) {
+                String detail = e.getMessage() + stderrTail();
+                discard();
+                if (attempt == 1 && rowsDelivered == 0 && !closed) {
+                    logger.warn("Fetch worker died before request {} returned any rows, retrying: {}", id, detail);
+                    continue;
+                }
+                throw new RuntimeException("Fetch worker died during request " + id + ": " + detail, e);
+            }
+        }
+    }
+
+    // Sends the request and reads replies up to its result; IOException means the worker died
+    private int exchange(long id, FetchRequest request, Consumer<String[]> rowListener) throws IOException {
+        JsonObject message = request.json.deepCopy();
+        message.addProperty("id", id);
+        requests.write(message.toString());
+        requests.newLine();
+        requests.flush();
+
+        String line;
+        while ((line = replies.readLine()) != null) {
+            JsonObject reply = parse(line);
+            // Replies left over from a request abandoned by its caller are skipped
+            if (reply == null || !reply.has("id") || reply.get("id").isJsonNull() || reply.get("id").getAsLong() != id) {
+                logger.debug("Skipping fetch worker output: {}", line);
+                continue;
+            }
+            if (reply.has("row")) {
+                JsonArray fields = reply.getAsJsonArray("row");
+                String[] row = new String[fields.size()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = fields.get(i).getAsString();
+                }
+                rowsDelivered++;
+                rowListener.accept(row);
+            } else if (reply.has("error")) {
+                throw new RuntimeException("Fetch failed: " + reply.get("error").getAsString());
+            } else if (reply.has("done")) {
+                return reply.get("rows").getAsInt();
+            }
+        }
+        throw new EOFException("fetch worker exited with code " + exitCode());
+    }
+
+    private static JsonObject parse(String line) {
+        try {
+            return JsonParser.parseString(line).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private void logStderr(Process source) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(source.getErrorStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                logger.info("Fetch worker: {}", line);
+                synchronized (stderrTail) {
+                    if (stderrTail.size() == STDERR_TAIL_LINES) {
+                        stderrTail.removeFirst();
+                    }
+                    stderrTail.addLast(line);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Stopped reading fetch worker output: {}", e.getMessage());
+        }
+    }
+
+    private String stderrTail() {
+        synchronized (stderrTail) {
+            return stderrTail.isEmpty() ? "" : "\nWorker output:\n" + String.join("\n", stderrTail);
+        }
+    }
+
+    private String exitCode() {
+        Process current = process;
+        try {
+            return current != null && current.waitFor(1, TimeUnit.SECONDS) ? String.valueOf(current.exitValue()) : "unknown";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "unknown";
+        }
+    }
+
+    private void discard() {
+        Process current = process;
+        if (current != null) {
+            current.destroyForcibly();
+        }
+    }
+
+    public int getRestarts() {
+        return restarts;
+    }
+
+    // Lets the worker exit at end of input; a fetch still running fails instead of retrying
+    @Override
+    public void close() {
+        closed = true;
+        Process current = process;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.getOutputStream().close();
+            if (!current.waitFor(2, TimeUnit.SECONDS)) {
+                current.destroyForcibly();
+            }
+        } catch (IOException e) {
+            current.destroyForcibly();
+        } catch (InterruptedException e) {
+            current.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** One fetch for the worker; rows are written to {@code outputFile}, as CSV or Arrow by its extension. */
+    public static final class FetchRequest {
+        private final JsonObject json = new JsonObject();
+
+        private FetchRequest(String type, String target, int numPosts, int commentsPerPost, String sortBy, String outputFile) {
+            json.addProperty("type", type);
+            json.addProperty("target", target);
+            json.addProperty("num_posts", numPosts);
+            json.addProperty("comments_per_post", commentsPerPost);
+            json.addProperty("sort_by", sortBy);
+            // The worker runs in the script directory, so relative paths would land there
+            Path path = Paths.get(outputFile).toAbsolutePath();
+            json.addProperty("output_file", path.toString());
+            json.addProperty("format", FetchRecordReader.isArrow(path) ? "arrow" : "csv");
+        }
+
+        public static FetchRequest keyword(String keyword, int numPosts, int commentsPerPost, String sortBy, String outputFile) {
+            return new FetchRequest("keyword", keyword, numPosts, commentsPerPost, sortBy, outputFile);
+        }
+
+        public static FetchRequest subreddit(String subreddit, int numPosts, int commentsPerPost, String sortBy, String outputFile) {
+            return new FetchRequest("subreddit", subreddit.trim(), numPosts, commentsPerPost, sortBy.trim(), outputFile);
+        }
+
+        public static FetchRequest post(String postLink, int commentsPerPost, String outputFile) {
+            return new FetchRequest("post", postLink, 1, commentsPerPost, "hot", outputFile);
+        }
+
+        @Override
+        public String toString() {
+            return json.toString();
+        }
+    }
+}
@@ -3,19 +3,24 @@ package com.sentimentanalysis.util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 public class PythonScriptRunner {
     private static final Logger logger = LoggerFactory.getLogger(PythonScriptRunner.class);
-    private static final String PYTHON_EXECUTABLE = "C:\\Python312\\python.exe";
+    static final String PYTHON_EXECUTABLE = "C:\\Python312\\python.exe";
 
     public static void runScript(String scriptPath, List<String> args) {
+        startScript(scriptPath, args).awaitCompletion();
+    }
+
+    // Starts the script and returns at once; its output is logged as it arrives
+    public static RunningScript startScript(String scriptPath, List<String> args) {
         try {
             List<String> command = new ArrayList<>();
             command.add(PYTHON_EXECUTABLE);
@@ -51,28 +56,66 @@ public class PythonScriptRunner {
                 logger.info("Set working directory to: {}", scriptDir);
             }
             
-            Process process = processBuilder.start();
-            
-            // Read the output
-            StringBuilder output = new StringBuilder();
+            return new RunningScript(processBuilder.start());
+        } catch (Exception e) {
+            logger.error("Failed to run Python script: {}", e.getMessage());
+            throw new RuntimeException("Failed to run Python script: " + e.getMessage(), e);
+        }
+    }
+
+    public static class RunningScript {
+        private final Process process;
+        private final StringBuilder output = new StringBuilder();
+        private final Thread outputReader;
+
+        private RunningScript(Process process) {
+            this.process = process;
+            this.outputReader = new Thread(this::readOutput, "python-output-" + process.pid());
+            outputReader.setDaemon(true);
+            outputReader.start();
+        }
+
+        private void readOutput() {
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
                 String line;
                 while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
+                    synchronized (output) {
+                        output.append(line).append("\n");
+                    }
                     logger.info("Python output: {}", line);
                 }
+            } catch (IOException e) {
+                logger.warn("Stopped reading Python output: {}", e.getMessage());
             }
+        }
 
-            int exitCode = process.waitFor();
-            if (exitCode != 0) {
-                logger.error("Python script failed with exit code: {}", exitCode);
-                logger.error("Python script output:\n{}", output.toString());
-                throw new RuntimeException("Python script failed with exit code " + exitCode + "\nOutput: " + output.toString());
+        // True once the process has exited, successfully or not
+        public boolean isFinished() {
+            return !process.isAlive();
+        }
+
+        // Waits for the script to exit; a non-zero exit code is reported with the script's output
+        public void awaitCompletion() {
+            try {
+                int exitCode = process.waitFor();
+                outputReader.join();
+                if (exitCode != 0) {
+                    String text;
+                    synchronized (output) {
+                        text = output.toString();
+                    }
+                    logger.error("Python script failed with exit code: {}", exitCode);
+                    logger.error("Python script output:\n{}", text);
+                    throw new RuntimeException("Python script failed with exit code " + exitCode + "\nOutput: " + text);
+                }
+            } catch (InterruptedException e) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for Python script", e);
+            } catch (RuntimeException e) {
+                logger.error("Failed to run Python script: {}", e.getMessage());
+                throw new RuntimeException("Failed to run Python script: " + e.getMessage(), e);
             }
-            
-        } catch (Exception e) {
-            logger.error("Failed to run Python script: {}", e.getMessage());
-            throw new RuntimeException("Failed to run Python script: " + e.getMessage(), e);
         }
     }
 }
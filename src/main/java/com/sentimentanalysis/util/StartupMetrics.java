@@ -0,0 +1,31 @@
+package com.sentimentanalysis.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Logs startup milestones measured from JVM start
+public class StartupMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(StartupMetrics.class);
+    private static final AtomicBoolean firstResultRecorded = new AtomicBoolean(false);
+
+    private StartupMetrics() {
+    }
+
+    private static long millisSinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    public static void markWindowShown() {
+        logger.info("Time to window: {} ms", millisSinceJvmStart());
+    }
+
+    // Only the first call is logged
+    public static void markFirstResult(String source) {
+        if (firstResultRecorded.compareAndSet(false, true)) {
+            logger.info("Time to first result: {} ms ({})", millisSinceJvmStart(), source);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.sentimentanalysis.util;
+
+// 64-bit hashes of comment text for cache keys
+public class TextHash {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private TextHash() {
+    }
+
+    /**
+     * Hashes the text with leading and trailing whitespace removed and inner whitespace
+     * runs treated as a single space, so copies that differ only in spacing share a key.
+     * Runs in one pass without allocating.
+     */
+    public static long hashNormalized(CharSequence text) {
+        long hash = FNV_OFFSET;
+        boolean pendingSpace = false;
+        boolean started = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = started;
+                continue;
+            }
+            if (pendingSpace) {
+                hash = (hash ^ ' ') * FNV_PRIME;
+                pendingSpace = false;
+            }
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+            started = true;
+        }
+        return mix(hash);
+    }
+
+    // Combines two hashes, e.g. a backend hash and a text hash
+    public static long combine(long first, long second) {
+        return mix(first * 31 + second);
+    }
+
+    // MurmurHash3 finalizer to spread FNV's weak low bits
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,216 @@
+package com.sentimentanalysis.util;
+
+import java.util.Locale;
+
+/**
+ * Single-pass replacement for the normalization regex chain used by the MLlib model:
+ *
+ * <pre>
+ *   replaceAll("http[s]?://\\S+", "")
+ *   replaceAll("@\\w+", "")
+ *   replaceAll("#\\w+", "")
+ *   toLowerCase()
+ *   replaceAll("[^a-zA-Z0-9\\s]", "")
+ *   (.)\\1{2,}  -&gt;  $1$1
+ * </pre>
+ *
+ * The output is identical to the chain's, including its lowercasing in the default
+ * locale, which the saved models were trained with. URLs are detected wherever the scan
+ * is, so a URL inside a mention or hashtag is removed first, as the chain would. Removing
+ * a URL always leaves whitespace or the end of the text next, so it cannot create a new
+ * mention or hashtag. Characters are written to a reusable buffer; only the result String
+ * is allocated. An instance is not thread-safe; {@link #normalize(String)} keeps one per
+ * thread.
+ *
+ * <p>ASCII characters are classified through a lookup table rather than a Vector API
+ * path for pure-ASCII input: the per-character work is one table load, and the scan has
+ * to stop at URLs and markers anyway. Under a Turkish, Azerbaijani or Lithuanian default
+ * locale, where lowercasing depends on neighbouring characters, the text is stripped,
+ * lowercased as a whole and then filtered, in three passes.
+ */
+public final class TextNormalizer {
+    private static final ThreadLocal<TextNormalizer> PER_THREAD = ThreadLocal.withInitial(TextNormalizer::new);
+
+    // Per-character action for ASCII input
+    private static final byte DROP = 0;
+    private static final byte KEEP = 1;
+    private static final byte LOWER = 2;
+    private static final byte MARKER = 3;
+    private static final byte[] ASCII_ACTIONS = new byte[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            ASCII_ACTIONS[c] = KEEP;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            ASCII_ACTIONS[c] = KEEP;
+        }
+        for (char c : new char[]{' ', '\t', '\n', '\u000B', '\f', '\r'}) {
+            ASCII_ACTIONS[c] = KEEP;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            ASCII_ACTIONS[c] = LOWER;
+        }
+        ASCII_ACTIONS['@'] = MARKER;
+        ASCII_ACTIONS['#'] = MARKER;
+    }
+
+    private char[] buffer = new char[256];
+
+    public static String normalize(String text) {
+        return PER_THREAD.get().apply(text);
+    }
+
+    public String apply(String text) {
+        if (text == null) {
+            return "";
+        }
+        Locale locale = Locale.getDefault();
+        if (hasSpecialCasing(locale)) {
+            return applyWithSpecialCasing(text, locale);
+        }
+        int length = text.length();
+        char[] out = buffer(length);
+        int size = 0;
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == 'h') {
+                int urlEnd = urlEnd(text, i);
+                if (urlEnd > 0) {
+                    i = urlEnd;
+                    continue;
+                }
+            }
+
+            char lower;
+            if (c < 128) {
+                byte action = ASCII_ACTIONS[c];
+                if (action == DROP) {
+                    i++;
+                    continue;
+                }
+                if (action == MARKER) {
+                    // A mention or hashtag is removed with its word; a lone marker is dropped by the filter anyway
+                    i = skipMarkedWord(text, i);
+                    continue;
+                }
+                lower = action == LOWER ? (char) (c | 0x20) : c;
+            } else {
+                // Outside tr, az and lt, String lowercasing differs from this only by characters the filter drops,
+                // such as the dot after İ
+                lower = Character.toLowerCase(c);
+            }
+            i++;
+            if (!isKept(lower)) {
+                continue;
+            }
+
+            // Runs of three or more of a character become two; "." in the regex never matches \n or \r
+            if (size >= 2 && out[size - 1] == lower && out[size - 2] == lower && lower != '\n' && lower != '\r') {
+                continue;
+            }
+            out[size++] = lower;
+        }
+        return new String(out, 0, size);
+    }
+
+    // Turkish and Azerbaijani lowercase I to a dotless i the filter drops, unless a combining dot follows,
+    // and Lithuanian turns Ì, Í and Ĩ into an i the filter keeps, so the stripped text is lowercased whole
+    private String applyWithSpecialCasing(String text, Locale locale) {
+        int length = text.length();
+        char[] out = buffer(length);
+        int size = 0;
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            int urlEnd = c == 'h' ? urlEnd(text, i) : -1;
+            if (urlEnd > 0) {
+                i = urlEnd;
+                continue;
+            }
+            // A marker without a word after it stays, as it can change how the letters around it are lowercased
+            if ((c == '@' || c == '#') && i + 1 < length && isWordChar(text.charAt(i + 1)) && urlEnd(text, i + 1) < 0) {
+                i = skipMarkedWord(text, i);
+                continue;
+            }
+            out[size++] = c;
+            i++;
+        }
+
+        String lowered = new String(out, 0, size).toLowerCase(locale);
+        out = buffer(lowered.length());
+        size = 0;
+        for (int j = 0; j < lowered.length(); j++) {
+            char lower = lowered.charAt(j);
+            if (!isKept(lower)
+                || (size >= 2 && out[size - 1] == lower && out[size - 2] == lower && lower != '\n' && lower != '\r')) {
+                continue;
+            }
+            out[size++] = lower;
+        }
+        return new String(out, 0, size);
+    }
+
+    // String.toLowerCase has language-specific rules only for these languages
+    private static boolean hasSpecialCasing(Locale locale) {
+        String language = locale.getLanguage();
+        return language.equals("tr") || language.equals("az") || language.equals("lt");
+    }
+
+    private char[] buffer(int length) {
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        return buffer;
+    }
+
+    // Returns the index after "http://" or "https://" and its non-whitespace run, or -1 if no URL starts at i
+    private static int urlEnd(String text, int i) {
+        if (!text.startsWith("http", i)) {
+            return -1;
+        }
+        int start = i + 4;
+        if (start < text.length() && text.charAt(start) == 's') {
+            start++;
+        }
+        if (!text.startsWith("://", start)) {
+            return -1;
+        }
+        start += 3;
+        int end = start;
+        while (end < text.length() && !isRegexWhitespace(text.charAt(end))) {
+            end++;
+        }
+        return end > start ? end : -1;
+    }
+
+    // Skips an @ or # marker and the \w run after it, removing any URL met along the way
+    private static int skipMarkedWord(String text, int i) {
+        int j = i + 1;
+        while (j < text.length()) {
+            int urlEnd = text.charAt(j) == 'h' ? urlEnd(text, j) : -1;
+            if (urlEnd > 0) {
+                j = urlEnd;
+            } else if (isWordChar(text.charAt(j))) {
+                j++;
+            } else {
+                break;
+            }
+        }
+        return j;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    // \s without UNICODE_CHARACTER_CLASS
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isKept(char c) {
+        return c < 128 && ASCII_ACTIONS[c] == KEEP;
+    }
+}
@@ -60,6 +60,8 @@ def search_comments_by_keyword(keyword, num_posts, comments_per_post, sort_by, o
                     comments = submission.comments[:int(comments_per_post)]
                     for comment in comments:
                         writer.writerow([submission.subreddit.display_name, submission.title, comment.body])
+                    # Make each post's comments visible to a reader following the file
+                    csvfile.flush()
                 except Exception as e:
                     logging.warning(f"Error processing submission: {str(e)}")
                     continue
@@ -74,6 +74,8 @@ def fetch_comments_from_subreddit(subreddit_name, num_posts, comments_per_post,
                     for comment in comments:
                         if hasattr(comment, 'body'):  # Make sure it's a valid comment
                             writer.writerow([subreddit_name, submission.title, comment.body])
+                    # Make each post's comments visible to a reader following the file
+                    csvfile.flush()
                 except Exception as e:
                     logging.warning(f"Error processing submission {submission.id}: {str(e)}")
                     continue
@@ -0,0 +1,234 @@
+"""
+Long-lived Reddit fetch worker. Reads one JSON request per line on stdin and answers on
+stdout with one JSON message per line; logging goes to stderr. The Reddit client is
+created once and reused, so imports, config loading and authentication are paid once
+per worker instead of once per fetch.
+
+Request:
+    {"id": 1, "type": "subreddit", "target": "python", "num_posts": 10,
+     "comments_per_post": 20, "sort_by": "hot", "output_file": "out.csv", "format": "csv"}
+    type is "keyword", "subreddit" or "post"; for "post", target is the post URL.
+    format is "csv" or "arrow" (an Arrow IPC stream of string columns, needs pyarrow).
+
+Replies, in order:
+    {"ready": true}                                   once, after startup
+    {"id": 1, "row": ["python", "Post title", "Comment"]}   one per CSV data row
+    {"id": 1, "done": true, "rows": 200}              or {"id": 1, "error": "message"}
+
+The output file has the same columns as the fetch_by_*.py scripts.
+Run with --backend fake to serve generated posts without Reddit credentials.
+"""
+import argparse
+import configparser
+import csv
+import json
+import logging
+import sys
+import traceback
+from pathlib import Path
+
+logging.basicConfig(stream=sys.stderr, level=logging.INFO,
+                    format='%(asctime)s - %(levelname)s - %(message)s')
+
+HEADERS = {
+    "keyword": ["Subreddit", "Post Title", "Comment"],
+    "subreddit": ["Subreddit", "Post Title", "Comment"],
+    "post": ["Post Title", "Comment"],
+}
+
+
+def load_config():
+    config = configparser.ConfigParser()
+    config_path = Path(__file__).parent.parent / 'resources' / 'config.properties'
+    if not config_path.exists():
+        alt_config_path = Path(__file__).parent.parent.parent / 'resources' / 'config.properties'
+        if not alt_config_path.exists():
+            raise FileNotFoundError(f"Config file not found at {config_path} or {alt_config_path}")
+        config_path = alt_config_path
+    logging.info(f"Loading config from: {config_path}")
+    config.read(config_path)
+    return {
+        'client_id': config.get('RedditAPI', 'client_id'),
+        'client_secret': config.get('RedditAPI', 'client_secret'),
+        'user_agent': config.get('RedditAPI', 'user_agent')
+    }
+
+
+class RedditBackend:
+    def __init__(self):
+        import praw
+        config = load_config()
+        self.reddit = praw.Reddit(
+            client_id=config['client_id'],
+            client_secret=config['client_secret'],
+            user_agent=config['user_agent']
+        )
+
+    def posts(self, fetch_type, target, num_posts, sort_by):
+        if fetch_type == "keyword":
+            return self.reddit.subreddit("all").search(query=target, sort=sort_by, limit=num_posts)
+        if fetch_type == "subreddit":
+            return getattr(self.reddit.subreddit(target), sort_by)(limit=num_posts)
+        return [self.reddit.submission(url=target)]
+
+    def comments(self, submission, comments_per_post):
+        submission.comments.replace_more(limit=0)
+        return [c.body for c in submission.comments[:comments_per_post] if hasattr(c, 'body')]
+
+    def subreddit_name(self, submission):
+        return submission.subreddit.display_name
+
+
+class FakeSubmission:
+    def __init__(self, subreddit, index):
+        self.id = f"fake{index}"
+        self.subreddit = subreddit
+        self.title = f"Fake post {index} in r/{subreddit}"
+
+
+class FakeBackend:
+    """Deterministic posts and comments, including commas, quotes and line breaks."""
+
+    TEMPLATES = [
+        "I love this, great work!",
+        "Worst idea ever. \"Nothing\" works, honestly",
+        "It's okay I guess,\nnothing special.",
+        "Check https://example.com @someone #news",
+    ]
+
+    def posts(self, fetch_type, target, num_posts, sort_by):
+        subreddit = target if fetch_type == "subreddit" else "all"
+        count = 1 if fetch_type == "post" else num_posts
+        return [FakeSubmission(subreddit, i) for i in range(count)]
+
+    def comments(self, submission, comments_per_post):
+        return [f"{self.TEMPLATES[i % len(self.TEMPLATES)]} ({submission.id}/{i})"
+                for i in range(comments_per_post)]
+
+    def subreddit_name(self, submission):
+        return submission.subreddit
+
+
+class CsvOutput:
+    def __init__(self, path, header):
+        self.file = open(path, mode="w", newline="", encoding="utf-8")
+        self.writer = csv.writer(self.file)
+        self.writer.writerow(header)
+
+    def writerow(self, row):
+        self.writer.writerow(row)
+
+    def flush(self):
+        self.file.flush()
+
+    def close(self):
+        self.file.close()
+
+
+class ArrowOutput:
+    """Arrow IPC stream; each flush writes the rows since the last one as a record batch."""
+
+    def __init__(self, path, header):
+        import pyarrow as pa
+        self.pa = pa
+        self.schema = pa.schema([pa.field(name, pa.string(), nullable=False) for name in header])
+        self.sink = pa.OSFile(path, "wb")
+        self.writer = pa.ipc.new_stream(self.sink, self.schema)
+        self.sink.flush()
+        self.columns = [[] for _ in header]
+
+    def writerow(self, row):
+        for column, value in zip(self.columns, row):
+            column.append(value if value is not None else "")
+
+    def flush(self):
+        if self.columns[0]:
+            arrays = [self.pa.array(column, type=self.pa.string()) for column in self.columns]
+            self.writer.write_batch(self.pa.record_batch(arrays, schema=self.schema))
+            self.columns = [[] for _ in self.columns]
+        self.sink.flush()
+
+    def close(self):
+        self.flush()
+        self.writer.close()
+        self.sink.close()
+
+
+def send(message):
+    sys.stdout.write(json.dumps(message) + "\n")
+
+
+def handle(backend, request):
+    request_id = request["id"]
+    fetch_type = request["type"]
+    if fetch_type not in HEADERS:
+        raise ValueError(f"Unknown fetch type: {fetch_type}")
+    target = request["target"].strip()
+    comments_per_post = int(request["comments_per_post"])
+    output_file = request["output_file"]
+    Path(output_file).parent.mkdir(parents=True, exist_ok=True)
+
+    try:
+        posts = list(backend.posts(fetch_type, target, int(request.get("num_posts", 1)),
+                                   request.get("sort_by", "hot")))
+    except Exception as e:
+        raise ValueError(f"Could not fetch posts for '{target}': {e}")
+    logging.info(f"Request {request_id}: {len(posts)} posts for {fetch_type} '{target}'")
+
+    output_class = ArrowOutput if request.get("format") == "arrow" else CsvOutput
+    writer = output_class(output_file, HEADERS[fetch_type])
+    rows = 0
+    try:
+        for submission in posts:
+            try:
+                comments = backend.comments(submission, comments_per_post)
+            except Exception as e:
+                logging.warning(f"Error processing submission {submission.id}: {e}")
+                continue
+            for body in comments:
+                if fetch_type == "post":
+                    row = [submission.title, body]
+                elif fetch_type == "keyword":
+                    row = [backend.subreddit_name(submission), submission.title, body]
+                else:
+                    row = [target, submission.title, body]
+                writer.writerow(row)
+                send({"id": request_id, "row": row})
+                rows += 1
+            # Each post's rows become visible to file readers and to the Java side together
+            writer.flush()
+            sys.stdout.flush()
+    finally:
+        writer.close()
+    send({"id": request_id, "done": True, "rows": rows})
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Long-lived Reddit fetch worker")
+    parser.add_argument("--backend", choices=["reddit", "fake"], default="reddit")
+    args = parser.parse_args()
+
+    sys.stdin.reconfigure(encoding="utf-8")
+    sys.stdout.reconfigure(encoding="utf-8")
+    backend = FakeBackend() if args.backend == "fake" else RedditBackend()
+    logging.info(f"Fetch worker ready with {args.backend} backend")
+    send({"ready": True})
+    sys.stdout.flush()
+
+    for line in sys.stdin:
+        if not line.strip():
+            continue
+        request_id = None
+        try:
+            request = json.loads(line)
+            request_id = request.get("id")
+            handle(backend, request)
+        except Exception as e:
+            logging.error(f"Request {request_id} failed: {e}")
+            logging.error(traceback.format_exc())
+            send({"id": request_id, "error": str(e)})
+        sys.stdout.flush()
+
+
+if __name__ == "__main__":
+    main()
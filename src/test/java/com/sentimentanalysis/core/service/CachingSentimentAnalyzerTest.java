@@ -0,0 +1,104 @@
+package com.sentimentanalysis.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sentimentanalysis.core.model.SentimentResult;
+
+class CachingSentimentAnalyzerTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void cachesRepeatedTextsOnce() {
+        FallbackChain chain = new FallbackChain();
+        CachingSentimentAnalyzer cached = new CachingSentimentAnalyzer(chain, new SentimentCache(100));
+
+        assertEquals(Arrays.asList("Positive", "Positive", "Negative"),
+            cached.analyzeSentimentBatch(Arrays.asList("good", "good", "bad")));
+        assertEquals("Positive", cached.analyzeSentiment("good"));
+        assertEquals(Arrays.asList("good", "bad"), chain.scored);
+    }
+
+    @Test
+    void doesNotCacheFallbackResults() {
+        FallbackChain chain = new FallbackChain();
+        CachingSentimentAnalyzer cached = new CachingSentimentAnalyzer(chain, new SentimentCache(100));
+
+        chain.fallback = true;
+        assertEquals("Neutral", cached.analyzeSentiment("good"));
+        chain.fallback = false;
+        assertEquals("Positive", cached.analyzeSentiment("good"));
+        assertEquals("Positive", cached.analyzeSentiment("good"));
+        assertEquals(Arrays.asList("good", "good"), chain.scored);
+    }
+
+    @Test
+    void storesOnlyOwnResults() throws Exception {
+        FallbackChain chain = new FallbackChain();
+        try (PersistentSentimentStore store = PersistentSentimentStore.open(dir.resolve("store.bin"))) {
+            chain.fallback = true;
+            new CachingSentimentAnalyzer(chain, new SentimentCache(100), () -> store).analyzeSentiment("bad");
+            chain.fallback = false;
+            new CachingSentimentAnalyzer(chain, new SentimentCache(100), () -> store).analyzeSentiment("good");
+            assertEquals(1, store.size());
+
+            // A new session with an empty memory cache reads the stored result instead of scoring it again
+            chain.scored.clear();
+            CachingSentimentAnalyzer restarted = new CachingSentimentAnalyzer(chain, new SentimentCache(100), () -> store);
+            assertEquals(Arrays.asList("Positive", "Negative"), restarted.analyzeSentimentBatch(Arrays.asList("good", "bad")));
+            assertEquals(Arrays.asList("bad"), chain.scored);
+        }
+    }
+
+    @Test
+    void skipsStoreWhileVersionIsUnknown() throws Exception {
+        FallbackChain chain = new FallbackChain();
+        chain.version = null;
+        try (PersistentSentimentStore store = PersistentSentimentStore.open(dir.resolve("store.bin"))) {
+            new CachingSentimentAnalyzer(chain, new SentimentCache(100), () -> store).analyzeSentiment("good");
+            assertEquals(0, store.size());
+        }
+    }
+
+    // Answers with its own model, or with a fallback backend's label while fallback is set
+    private static final class FallbackChain implements SentimentAnalyzer {
+        final List<String> scored = new ArrayList<>();
+        boolean fallback;
+        String version = "model@1";
+
+        @Override
+        public String analyzeSentiment(String text) {
+            return scoreSentimentBatch(Arrays.asList(text)).get(0).getSentiment();
+        }
+
+        @Override
+        public List<SentimentResult> scoreSentimentBatch(List<String> texts) {
+            List<SentimentResult> results = new ArrayList<>();
+            for (String text : texts) {
+                scored.add(text);
+                results.add(fallback
+                    ? new SentimentResult(text, Double.NaN, "Neutral", "HuggingFace API")
+                    : new SentimentResult(text, 0.9, text.startsWith("good") ? "Positive" : "Negative", getName()));
+            }
+            return results;
+        }
+
+        @Override
+        public String getName() {
+            return "Spark MLlib Model";
+        }
+
+        @Override
+        public String getModelVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.sentimentanalysis.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.sentimentanalysis.core.model.SentimentResult;
+
+class CascadeSentimentAnalyzerTest {
+    private static final double THRESHOLD = 0.8;
+
+    @Test
+    void escalatesOnlyBelowTheThreshold() {
+        FastModel fast = new FastModel()
+            .with("sure", 0.95, "Positive")
+            .with("borderline", THRESHOLD, "Negative")
+            .with("unsure", 0.79, "Positive")
+            .with("coin flip", 0.5, "Negative");
+        Escalation escalation = new Escalation();
+        CascadeSentimentAnalyzer cascade = new CascadeSentimentAnalyzer(fast, null, escalation, THRESHOLD);
+
+        assertEquals(Arrays.asList("Positive", "Negative", "Neutral", "Neutral"),
+            cascade.analyzeSentimentBatch(Arrays.asList("sure", "borderline", "unsure", "coin flip")));
+        assertEquals(Arrays.asList("unsure", "coin flip"), escalation.scored);
+    }
+
+    @Test
+    void skipsTheEscalationBackendWhenTheFastModelIsSure() {
+        FastModel fast = new FastModel().with("good", 0.9, "Positive").with("bad", THRESHOLD, "Negative");
+        Escalation escalation = new Escalation();
+        CascadeSentimentAnalyzer cascade = new CascadeSentimentAnalyzer(fast, null, escalation, THRESHOLD);
+
+        assertEquals(Arrays.asList("Positive", "Negative"), cascade.analyzeSentimentBatch(Arrays.asList("good", "bad")));
+        assertEquals("Positive", cascade.analyzeSentiment("good"));
+        assertTrue(escalation.scored.isEmpty(), escalation.scored.toString());
+    }
+
+    @Test
+    void attributesResultsToTheCascadeUnlessTheEscalationFellBack() {
+        FastModel fast = new FastModel()
+            .with("sure", 0.9, "Positive").with("great", 0.6, "Positive").with("awful", 0.6, "Negative");
+        Escalation escalation = new Escalation();
+        escalation.labels.put("great", "Very positive");
+        escalation.labels.put("awful", "Very negative");
+        escalation.fallbackFor = "awful";
+        CascadeSentimentAnalyzer cascade = new CascadeSentimentAnalyzer(fast, null, escalation, THRESHOLD);
+
+        List<SentimentResult> results = cascade.scoreSentimentBatch(Arrays.asList("sure", "great", "awful"));
+
+        assertEquals(cascade.getName(), results.get(0).getSource());
+        assertEquals(0.9, results.get(0).getScore());
+        assertEquals("Positive", results.get(0).getSentiment());
+        // Five-class escalation labels are folded into three
+        assertEquals(cascade.getName(), results.get(1).getSource());
+        assertEquals(0.99, results.get(1).getScore());
+        assertEquals("Positive", results.get(1).getSentiment());
+        assertEquals("Fallback backend", results.get(2).getSource());
+        assertEquals("Negative", results.get(2).getSentiment());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(Arrays.asList("sure", "great", "awful").get(i), results.get(i).getText());
+        }
+    }
+
+    @Test
+    void countsCommentsAndEscalationsUntilReported() {
+        FastModel fast = new FastModel().with("good", 0.9, "Positive").with("meh", 0.55, "Positive");
+        CascadeSentimentAnalyzer cascade = new CascadeSentimentAnalyzer(fast, null, new Escalation(), THRESHOLD);
+
+        cascade.analyzeSentimentBatch(Arrays.asList("good", "meh", "good"));
+        cascade.analyzeSentimentBatch(Arrays.asList("meh", "meh"));
+        cascade.analyzeSentiment("good");
+
+        assertEquals(6, cascade.getCommentsSinceReport());
+        assertEquals(3, cascade.getEscalatedSinceReport());
+        cascade.logRunStats();
+        assertEquals(0, cascade.getCommentsSinceReport());
+        assertEquals(0, cascade.getEscalatedSinceReport());
+    }
+
+    // Scores each known text with a fixed probability and label
+    private static final class FastModel extends LocalMLlibSentimentService {
+        final Map<String, SentimentResult> results = new HashMap<>();
+
+        FastModel with(String text, double probability, String label) {
+            results.put(text, new SentimentResult(text, probability, label, getName()));
+            return this;
+        }
+
+        @Override
+        public List<SentimentResult> scoreBatch(List<String> texts) {
+            List<SentimentResult> scored = new ArrayList<>(texts.size());
+            for (String text : texts) {
+                scored.add(results.get(text));
+            }
+            return scored;
+        }
+    }
+
+    // Neutral unless given a label; the fallbackFor text is attributed to another backend
+    private static final class Escalation implements SentimentAnalyzer {
+        final List<String> scored = new ArrayList<>();
+        final Map<String, String> labels = new HashMap<>();
+        String fallbackFor;
+
+        @Override
+        public String analyzeSentiment(String text) {
+            throw new AssertionError("The cascade escalates in batches");
+        }
+
+        @Override
+        public List<SentimentResult> scoreSentimentBatch(List<String> texts) {
+            scored.addAll(texts);
+            List<SentimentResult> results = new ArrayList<>(texts.size());
+            for (String text : texts) {
+                String source = text.equals(fallbackFor) ? "Fallback backend" : getName();
+                results.add(new SentimentResult(text, 0.99, labels.getOrDefault(text, "Neutral"), source));
+            }
+            return results;
+        }
+
+        @Override
+        public String getName() {
+            return "Escalation";
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.sentimentanalysis.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+    @Test
+    void interruptsCallsPastTheDeadline() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("Stub", 100, 50, 10000, 80, 30);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        assertThrows(TimeoutException.class, () -> breaker.execute(() -> {
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "late";
+        }, 1));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "Timed-out call was not interrupted");
+    }
+
+    @Test
+    void doesNotTimeTheLoad() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("Stub", 100, 50, 10000, 80, 30);
+
+        String result = breaker.execute(() -> {
+            Thread.sleep(300);
+            return null;
+        }, () -> "scored", 1);
+        assertEquals("scored", result);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void opensAfterFailedLoads() {
+        CircuitBreaker breaker = new CircuitBreaker("Stub", 100, 50, 10000, 80, 30);
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(IllegalStateException.class, () -> breaker.execute(() -> {
+                throw new IllegalStateException("model missing");
+            }, () -> "scored", 1));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals("model missing", breaker.getLastFailure());
+        assertThrows(CircuitBreaker.CallNotPermittedException.class, () -> breaker.execute(() -> "scored", 1));
+    }
+}
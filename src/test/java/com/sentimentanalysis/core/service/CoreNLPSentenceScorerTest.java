@@ -0,0 +1,120 @@
+package com.sentimentanalysis.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the scorer with CoreNLP's real tokenizer and sentence splitter, and a stub in place
+ * of the parse and sentiment models, which are not available to the tests.
+ */
+class CoreNLPSentenceScorerTest {
+    private static final List<String> QUOTED = Arrays.asList(
+        "This update broke everything.", "I love the new layout!", "Works fine for me.", "Not great, not terrible.");
+
+    @BeforeEach
+    void resetStub() {
+        StubSentimentAnnotator.sentences.set(0);
+    }
+
+    @Test
+    void parsesEachDistinctSentenceOnce() {
+        CoreNLPSentenceScorer scorer = scorer(new SentimentCache(100));
+        List<String> comments = Arrays.asList("Great post. I agree.", "Great post.   Totally wrong here.", "I agree.");
+
+        List<int[]> classes = scorer.scoreSentences(comments);
+
+        // The stub's class is the sentence's token count modulo 5
+        assertArrayEquals(new int[] {3, 3}, classes.get(0));
+        assertArrayEquals(new int[] {3, 4}, classes.get(1));
+        assertArrayEquals(new int[] {3}, classes.get(2));
+        assertEquals(3, StubSentimentAnnotator.sentences.get());
+
+        List<int[]> again = scorer.scoreSentences(comments);
+        for (int i = 0; i < comments.size(); i++) {
+            assertArrayEquals(classes.get(i), again.get(i));
+        }
+        assertEquals(3, StubSentimentAnnotator.sentences.get(), "Parsed a cached sentence again");
+        assertEquals(3, scorer.getCache().size());
+        assertEquals(3, scorer.getCache().getHits());
+    }
+
+    @Test
+    void matchesAnUncachedRun() {
+        List<String> comments = quotingComments(400);
+        CoreNLPSentenceScorer cached = scorer(new SentimentCache(1000));
+        CoreNLPSentenceScorer uncached = scorer(new SentimentCache(0));
+
+        List<int[]> cachedClasses = scoreInBatches(cached, comments);
+        int cachedParses = StubSentimentAnnotator.sentences.getAndSet(0);
+        List<int[]> uncachedClasses = scoreInBatches(uncached, comments);
+        int uncachedParses = StubSentimentAnnotator.sentences.get();
+
+        for (int i = 0; i < comments.size(); i++) {
+            assertArrayEquals(uncachedClasses.get(i), cachedClasses.get(i), comments.get(i));
+        }
+        // With the cache every distinct sentence is parsed once; without it, once per batch it appears in
+        long ownSentences = comments.stream().filter(comment -> comment.contains("My own take")).count();
+        assertEquals(QUOTED.size() + ownSentences, cachedParses);
+        assertTrue(cachedParses < uncachedParses, cachedParses + " parses with the cache, " + uncachedParses + " without");
+    }
+
+    @Test
+    void staysWithinItsBound() {
+        List<String> comments = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            comments.add("Sentence " + i + " " + String.join(" ", Collections.nCopies(i % 5, "very")) + " long.");
+        }
+        CoreNLPSentenceScorer bounded = scorer(new SentimentCache(4));
+        CoreNLPSentenceScorer uncached = scorer(new SentimentCache(0));
+
+        List<int[]> boundedClasses = scoreInBatches(bounded, comments);
+        boundedClasses.addAll(scoreInBatches(bounded, comments));
+        List<int[]> uncachedClasses = scoreInBatches(uncached, comments);
+
+        assertEquals(4, bounded.getCache().size());
+        assertTrue(bounded.getCache().getEvictions() >= 52, bounded.getCache().toString());
+        for (int i = 0; i < boundedClasses.size(); i++) {
+            assertArrayEquals(uncachedClasses.get(i % comments.size()), boundedClasses.get(i));
+        }
+    }
+
+    @Test
+    void textWithoutSentencesHasNoClasses() {
+        assertEquals(0, scorer(new SentimentCache(100)).scoreSentences("   ").length);
+    }
+
+    private static CoreNLPSentenceScorer scorer(SentimentCache cache) {
+        return new CoreNLPSentenceScorer(() -> null, cache, new CoreNLPBatchAnnotator(() -> null, 1),
+            StubSentimentAnnotator.properties());
+    }
+
+    private static List<int[]> scoreInBatches(CoreNLPSentenceScorer scorer, List<String> comments) {
+        List<int[]> classes = new ArrayList<>();
+        for (int from = 0; from < comments.size(); from += 20) {
+            classes.addAll(scorer.scoreSentences(comments.subList(from, Math.min(from + 20, comments.size()))));
+        }
+        return classes;
+    }
+
+    // Replies that quote a parent sentence, with their own spacing, before a sentence of their own
+    private static List<String> quotingComments(int count) {
+        Random random = new Random(3);
+        List<String> comments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String quote = QUOTED.get(random.nextInt(QUOTED.size()));
+            String spacing = random.nextBoolean() ? " " : "  \n";
+            comments.add(quote + spacing + (random.nextInt(4) == 0 ? "My own take " + i + "." : quote));
+        }
+        return comments;
+    }
+}
@@ -0,0 +1,162 @@
+package com.sentimentanalysis.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Uploads to a temporary directory of the local file system through Hadoop's local
+ * {@link FileSystem}, with copy failures injected for chosen files.
+ */
+class HDFSUploadQueueTest {
+    @TempDir
+    Path dir;
+
+    private FailingHDFSService hdfs;
+    private Map<String, Integer> pathsChosen;
+
+    @BeforeEach
+    void createService() throws IOException {
+        hdfs = new FailingHDFSService(FileSystem.getLocal(new Configuration()));
+        pathsChosen = new ConcurrentHashMap<>();
+    }
+
+    @Test
+    void retriesAFailedUploadWithoutHoldingUpLaterOnes() throws Exception {
+        hdfs.failures.put("a.csv", 1);
+        HDFSUploadQueue queue = new HDFSUploadQueue(() -> hdfs, 3, 300);
+
+        List<CompletableFuture<String>> uploads = new ArrayList<>();
+        for (String name : Arrays.asList("a.csv", "b.csv", "c.csv")) {
+            uploads.add(queue.submit(local(name), target(name)));
+        }
+
+        for (int i = 0; i < uploads.size(); i++) {
+            String name = Arrays.asList("a.csv", "b.csv", "c.csv").get(i);
+            String uploaded = uploads.get(i).get(10, TimeUnit.SECONDS);
+            assertEquals(dir.resolve("hdfs/" + name).toString(), uploaded);
+            assertEquals("content of " + name, Files.readString(dir.resolve("hdfs/" + name)));
+        }
+        assertEquals(Arrays.asList("a.csv", "b.csv", "c.csv", "a.csv"), hdfs.attempts);
+        // The retry reuses the path chosen by the first attempt
+        assertEquals(1, pathsChosen.get("a.csv"));
+        assertEquals(0, queue.getPending());
+        queue.close(1000);
+    }
+
+    @Test
+    void keepsAFileLocalOnlyAfterTheLastAttempt() throws Exception {
+        hdfs.failures.put("a.csv", Integer.MAX_VALUE);
+        HDFSUploadQueue queue = new HDFSUploadQueue(() -> hdfs, 3, 10);
+
+        CompletableFuture<String> upload = queue.submit(local("a.csv"), target("a.csv"));
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> upload.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, failure.getCause());
+        assertEquals(Collections.nCopies(3, "a.csv"), hdfs.attempts);
+        assertFalse(Files.exists(dir.resolve("hdfs/a.csv")));
+        assertTrue(Files.exists(dir.resolve("local/a.csv")));
+        assertEquals(0, queue.getPending());
+        queue.close(1000);
+    }
+
+    @Test
+    void closeFinishesQueuedUploadsAndRefusesNewOnes() throws Exception {
+        HDFSUploadQueue queue = new HDFSUploadQueue(() -> hdfs, 3, 10);
+        List<CompletableFuture<String>> uploads = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            uploads.add(queue.submit(local(i + ".csv"), target(i + ".csv")));
+        }
+
+        queue.close(10_000);
+
+        for (CompletableFuture<String> upload : uploads) {
+            assertTrue(upload.isDone() && !upload.isCompletedExceptionally(), upload.toString());
+        }
+        CompletableFuture<String> late = queue.submit(local("late.csv"), target("late.csv"));
+        ExecutionException refused = assertThrows(ExecutionException.class, late::get);
+        assertInstanceOf(IllegalStateException.class, refused.getCause());
+    }
+
+    @Test
+    void aRetryWaitingAtCloseRunsOnceMore() throws Exception {
+        hdfs.failures.put("a.csv", 2);
+        HDFSUploadQueue queue = new HDFSUploadQueue(() -> hdfs, 5, 1000);
+        CompletableFuture<String> upload = queue.submit(local("a.csv"), target("a.csv"));
+        waitForAttempts(1);
+        // The retry is scheduled just after the failed copy returns
+        Thread.sleep(200);
+
+        queue.close(10_000);
+
+        assertTrue(upload.isCompletedExceptionally());
+        assertEquals(Arrays.asList("a.csv", "a.csv"), hdfs.attempts);
+    }
+
+    private Path local(String name) throws IOException {
+        Path file = dir.resolve("local/" + name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, ("content of " + name).getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    // As createHDFSOutputPath would, but under the temporary directory
+    private Function<HDFSService, String> target(String name) {
+        return service -> {
+            pathsChosen.merge(name, 1, Integer::sum);
+            return dir.resolve("hdfs/" + name).toString();
+        };
+    }
+
+    private void waitForAttempts(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (hdfs.attempts.size() < count) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    // Fails the given number of copies of each named file before letting them through
+    private static final class FailingHDFSService extends HDFSService {
+        final Map<String, Integer> failures = new ConcurrentHashMap<>();
+        final List<String> attempts = Collections.synchronizedList(new ArrayList<>());
+
+        FailingHDFSService(FileSystem fileSystem) {
+            super(fileSystem);
+        }
+
+        @Override
+        public void copyToHDFS(Path localFile, String hdfsPath) throws IOException {
+            String name = localFile.getFileName().toString();
+            attempts.add(name);
+            if (failures.getOrDefault(name, 0) > 0) {
+                failures.merge(name, -1, Integer::sum);
+                throw new IOException("Injected failure for " + name);
+            }
+            super.copyToHDFS(localFile, hdfsPath);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.sentimentanalysis.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the client against a stub inference server on localhost that labels each input
+ * starting with "good" LABEL_2 and every other input LABEL_0.
+ */
+class HuggingFaceClientTest {
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private volatile CountDownLatch proceed = new CountDownLatch(0);
+    private volatile int status = 200;
+    private volatile String errorBody;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/models/stub", this::handle);
+        serverThreads = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverThreads);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        proceed.countDown();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void sendsBatchesAndKeepsInputOrder() throws IOException {
+        HuggingFaceClient client = client(2, 4);
+
+        assertEquals(Arrays.asList("Positive", "Negative", "Positive", "Negative", "Positive"),
+            client.analyze(Arrays.asList("good one", "bad one", "good two", "meh", "good three")));
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void limitsRequestsInFlightWithoutBlockingTheCaller() throws Exception {
+        HuggingFaceClient client = client(1, 2);
+        proceed = new CountDownLatch(1);
+
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            texts.add(i % 2 == 0 ? "good " + i : "bad " + i);
+        }
+        // Returns while every request is still held by the server
+        CompletableFuture<List<String>> labels = client.analyzeAsync(texts);
+        assertFalse(labels.isDone());
+
+        proceed.countDown();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            expected.add(i % 2 == 0 ? "Positive" : "Negative");
+        }
+        assertEquals(expected, labels.get(10, TimeUnit.SECONDS));
+        assertEquals(8, requests.get());
+        assertTrue(maxActive.get() <= 2, "At most 2 requests in flight, saw " + maxActive.get());
+    }
+
+    @Test
+    void reportsApiErrors() {
+        HuggingFaceClient client = client(4, 1);
+
+        status = 503;
+        errorBody = "{\"error\":\"Model is currently loading\",\"estimated_time\":20.0}";
+        IOException loading = assertThrows(IOException.class, () -> client.analyze(Arrays.asList("good")));
+        assertTrue(loading.getMessage().contains("Model is currently loading"), loading.getMessage());
+
+        status = 429;
+        errorBody = "";
+        IOException limited = assertThrows(IOException.class, () -> client.analyze(Arrays.asList("good")));
+        assertTrue(limited.getMessage().contains("429"), limited.getMessage());
+
+        // Neither failure kept the only request slot
+        status = 200;
+        errorBody = null;
+        assertDoesNotHang(() -> assertEquals(Arrays.asList("Positive"), client.analyze(Arrays.asList("good"))));
+    }
+
+    @Test
+    void releasesTheSlotWhenSendingThrows() {
+        // The HTTP client rejects the scheme while building the request, before anything is sent
+        HuggingFaceClient client = new HuggingFaceClient(URI.create("ftp://127.0.0.1/models/stub"), "key", 4, 1);
+
+        for (int i = 0; i < 3; i++) {
+            CompletableFuture<List<String>> labels = client.analyzeAsync(Arrays.asList("good"));
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> labels.get(5, TimeUnit.SECONDS));
+            assertTrue(failure.getCause() instanceof IllegalArgumentException, failure.getCause().toString());
+        }
+    }
+
+    private HuggingFaceClient client(int batchSize, int maxInFlight) {
+        URI endpoint = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/models/stub");
+        return new HuggingFaceClient(endpoint, "key", batchSize, maxInFlight);
+    }
+
+    private static void assertDoesNotHang(ThrowingRunnable check) {
+        CompletableFuture<Void> done = CompletableFuture.runAsync(() -> {
+            try {
+                check.run();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        try {
+            done.get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new AssertionError("Request did not complete", e);
+        }
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        try {
+            JsonElement inputs = JsonParser.parseReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)).getAsJsonObject().get("inputs");
+            proceed.await(10, TimeUnit.SECONDS);
+
+            String body;
+            if (errorBody != null) {
+                body = errorBody;
+            } else {
+                StringBuilder candidates = new StringBuilder("[");
+                for (JsonElement input : inputs.getAsJsonArray()) {
+                    boolean positive = input.getAsString().startsWith("good");
+                    candidates.append(candidates.length() > 1 ? "," : "")
+                        .append("[{\"label\":\"").append(positive ? "LABEL_2" : "LABEL_0").append("\",\"score\":0.9},")
+                        .append("{\"label\":\"LABEL_1\",\"score\":0.1}]");
+                }
+                body = candidates.append("]").toString();
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            active.decrementAndGet();
+            exchange.close();
+        }
+    }
+}
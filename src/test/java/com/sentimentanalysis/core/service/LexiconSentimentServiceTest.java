@@ -0,0 +1,64 @@
+package com.sentimentanalysis.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class LexiconSentimentServiceTest {
+    private final LexiconSentimentService service = new LexiconSentimentService();
+
+    @Test
+    void labelsClearCases() {
+        assertEquals("Positive", service.analyzeSentiment("This is absolutely fantastic, I love it!"));
+        assertEquals("Negative", service.analyzeSentiment("Worst update ever. Nothing works anymore."));
+        assertEquals("Neutral", service.analyzeSentiment("[deleted]"));
+        assertEquals("Neutral", service.analyzeSentiment(""));
+        assertEquals(0.0, service.score(null));
+    }
+
+    @Test
+    void appliesTheRules() {
+        // Negation, with straight and typographic apostrophes
+        assertTrue(service.score("I don't like it") < 0);
+        assertEquals(service.score("I don't like it"), service.score("I DON’T like it"), 1e-12);
+        assertTrue(service.score("not bad at all") > 0);
+        // Boosters and exclamation marks strengthen, and case does not matter
+        assertTrue(service.score("very good") > service.score("good"));
+        assertTrue(service.score("good!!!") > service.score("good"));
+        assertEquals(service.score("good"), service.score("GOOD"), 1e-12);
+        // The clause after "but" outweighs the one before it
+        assertTrue(service.score("The food was great but the service was terrible") < 0);
+        assertTrue(service.score("The service was terrible but the food was great") > 0);
+        for (String text : new String[] {"love love love love love love love!!!!!!", "hate hate hate hate hate hate"}) {
+            double score = service.score(text);
+            assertTrue(score >= -1 && score <= 1, text + ": " + score);
+        }
+    }
+
+    @Test
+    void scoresWithoutAllocating() {
+        List<String> corpus = LexiconSentimentServiceBenchmark.syntheticComments(1000, 1);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        double sink = 0;
+        for (int round = 0; round < 20; round++) {
+            for (String comment : corpus) {
+                sink += service.score(comment);
+            }
+        }
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (String comment : corpus) {
+            sink += service.score(comment);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        // Leaves room for the measurement itself, far below even one String per comment
+        assertTrue(allocated < 8 * 1024, "Allocated " + allocated + " bytes scoring " + corpus.size() + " comments");
+        assertFalse(Double.isNaN(sink));
+    }
+}
@@ -0,0 +1,163 @@
+package com.sentimentanalysis.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.spark.ml.Pipeline;
+import org.apache.spark.ml.PipelineModel;
+import org.apache.spark.ml.PipelineStage;
+import org.apache.spark.ml.classification.LogisticRegression;
+import org.apache.spark.ml.feature.CountVectorizer;
+import org.apache.spark.ml.feature.HashingTF;
+import org.apache.spark.ml.feature.IDF;
+import org.apache.spark.ml.feature.RegexTokenizer;
+import org.apache.spark.ml.feature.StopWordsRemover;
+import org.apache.spark.ml.feature.Tokenizer;
+import org.apache.spark.ml.linalg.Vector;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.functions;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sentimentanalysis.util.MappedCsvReader;
+
+/**
+ * Fits small pipelines of each supported stage kind on the sample comments in
+ * src/data/raw, saves them, and checks that LocalPipelineModel predicts the same labels
+ * and probabilities as Spark's transform of the saved model.
+ */
+class LocalPipelineModelTest {
+    private static final Path RAW_DATA = Paths.get("src/data/raw");
+    private static final List<String> POSITIVE_WORDS = Arrays.asList("good", "great", "love", "best", "nice", "thanks", "cool");
+
+    private static SparkSession spark;
+    private static Dataset<Row> comments;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void startSpark() throws IOException {
+        spark = SparkSession.builder()
+            .appName("LocalPipelineModelTest")
+            .master("local[1]")
+            .config("spark.ui.enabled", "false")
+            .config("spark.sql.shuffle.partitions", "1")
+            .getOrCreate();
+        SentimentAnalysisService.registerUdfs(spark);
+
+        List<Row> rows = new ArrayList<>();
+        for (String comment : readComments()) {
+            String normalized = SentimentAnalysisService.normalizeText(comment);
+            boolean positive = POSITIVE_WORDS.stream().anyMatch(normalized::contains);
+            rows.add(RowFactory.create(comment, positive ? 1.0 : 0.0));
+        }
+        StructType schema = new StructType()
+            .add("text", DataTypes.StringType)
+            .add("label", DataTypes.DoubleType);
+        comments = spark.createDataFrame(rows, schema)
+            .withColumn("SentimentText", functions.callUDF(SentimentAnalysisService.NORMALIZE_UDF, functions.col("text")));
+    }
+
+    @AfterAll
+    static void stopSpark() {
+        if (spark != null) {
+            spark.stop();
+        }
+    }
+
+    @Test
+    void matchesHashingTFPipeline() throws IOException {
+        assertParity(new Tokenizer().setInputCol("SentimentText").setOutputCol("words"),
+            new HashingTF().setInputCol("filtered").setOutputCol("tf").setNumFeatures(1 << 12),
+            new LogisticRegression().setMaxIter(20).setRegParam(0.01));
+    }
+
+    @Test
+    void matchesCountVectorizerPipeline() throws IOException {
+        assertParity(new RegexTokenizer().setInputCol("SentimentText").setOutputCol("words").setPattern("\\W+"),
+            new CountVectorizer().setInputCol("filtered").setOutputCol("tf"),
+            new LogisticRegression().setMaxIter(20).setRegParam(0.01));
+    }
+
+    @Test
+    void matchesMultinomialPipeline() throws IOException {
+        assertParity(new Tokenizer().setInputCol("SentimentText").setOutputCol("words"),
+            new HashingTF().setInputCol("filtered").setOutputCol("tf").setNumFeatures(1 << 10).setBinary(true),
+            new LogisticRegression().setMaxIter(20).setRegParam(0.01).setFamily("multinomial"));
+    }
+
+    private void assertParity(PipelineStage tokenizer, PipelineStage vectorizer, LogisticRegression classifier)
+            throws IOException {
+        PipelineModel fitted = new Pipeline().setStages(new PipelineStage[] {
+            tokenizer,
+            new StopWordsRemover().setInputCol("words").setOutputCol("filtered"),
+            vectorizer,
+            new IDF().setInputCol("tf").setOutputCol("features"),
+            classifier
+        }).fit(comments);
+        String path = dir.resolve("model").toUri().toString();
+        fitted.write().overwrite().save(path);
+
+        List<Row> expected = PipelineModel.load(path).transform(comments)
+            .select("text", "prediction", "probability").collectAsList();
+        LocalPipelineModel local = LocalPipelineModel.load(path);
+        LocalMLlibSentimentService service = new LocalMLlibSentimentService(local);
+        assertEquals(comments.count(), expected.size());
+        for (Row row : expected) {
+            String text = row.getString(0);
+            String normalized = SentimentAnalysisService.normalizeText(text);
+            assertEquals(row.getDouble(1), local.predict(normalized), () -> "Prediction for " + text);
+            Vector probability = row.getAs(2);
+            double[] localProbability = local.predictProbability(normalized);
+            assertEquals(probability.size(), localProbability.length);
+            for (int i = 0; i < localProbability.length; i++) {
+                assertEquals(probability.apply(i), localProbability[i], 1e-9, () -> "Probability for " + text);
+            }
+            assertEquals(row.getDouble(1) == 1.0 ? "Positive" : "Negative", service.analyzeSentiment(text));
+        }
+        assertTrue(local.getVersion().startsWith(fitted.uid()));
+    }
+
+    private static List<String> readComments() throws IOException {
+        List<String> comments = new ArrayList<>();
+        try (DirectoryStream<Path> types = Files.newDirectoryStream(RAW_DATA)) {
+            for (Path type : types) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(type, "*.csv")) {
+                    for (Path file : files) {
+                        try (MappedCsvReader reader = new MappedCsvReader(file)) {
+                            if (!reader.next()) {
+                                continue;
+                            }
+                            int comment = Arrays.asList(reader.toArray()).indexOf("Comment");
+                            while (reader.next()) {
+                                if (!reader.isBlank(comment)) {
+                                    comments.add(reader.getString(comment));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        assertFalse(comments.isEmpty(), "Expected the sample comments in " + RAW_DATA.toAbsolutePath());
+        return comments;
+    }
+}
@@ -0,0 +1,54 @@
+package com.sentimentanalysis.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PersistentSentimentStoreTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void keepsCoreNLPLabelsExactly() throws Exception {
+        try (PersistentSentimentStore store = PersistentSentimentStore.open(dir.resolve("store.bin"))) {
+            int backend = store.registerBackend("Stanford CoreNLP", "4.5.4");
+            for (int i = 0; i < 5; i++) {
+                store.put(backend, i, CoreNLPSentenceScorer.className(i), Float.NaN);
+            }
+            for (int i = 0; i < 5; i++) {
+                assertEquals(CoreNLPSentenceScorer.className(i), store.get(backend, i));
+            }
+        }
+    }
+
+    @Test
+    void matchesOtherSpellingsIgnoringCase() throws Exception {
+        try (PersistentSentimentStore store = PersistentSentimentStore.open(dir.resolve("store.bin"))) {
+            int backend = store.registerBackend("HuggingFace API", "v1");
+            store.put(backend, 1L, "VERY POSITIVE", Float.NaN);
+            store.put(backend, 2L, "neutral", 0.5f);
+            store.put(backend, 3L, "LABEL_1", 0.5f);
+            assertEquals("Very Positive", store.get(backend, 1L));
+            assertEquals("Neutral", store.get(backend, 2L));
+            assertNull(store.get(backend, 3L));
+        }
+    }
+
+    @Test
+    void keepsResultsAcrossReopenUntilTheVersionChanges() throws Exception {
+        Path file = dir.resolve("store.bin");
+        try (PersistentSentimentStore store = PersistentSentimentStore.open(file)) {
+            store.put(store.registerBackend("Spark MLlib Model", "v1"), 7L, "Negative", 0.9f);
+        }
+        try (PersistentSentimentStore store = PersistentSentimentStore.open(file)) {
+            int backend = store.registerBackend("Spark MLlib Model", "v1");
+            assertEquals("Negative", store.get(backend, 7L));
+            backend = store.registerBackend("Spark MLlib Model", "v2");
+            assertNull(store.get(backend, 7L));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.sentimentanalysis.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PreprocessedParquetWriterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesRowsWithTheirScoreUnderPartitions() throws IOException {
+        Path root = dir.resolve("preprocessed-parquet");
+        try (PreprocessedParquetWriter writer =
+                 new PreprocessedParquetWriter(root, "keyword", "2024-05-01", "run1", "raw/java.csv")) {
+            writer.write("Great, thanks!", "Positive", 0.93, "MLlib Model", "java");
+            writer.write("Meh", "Neutral", Double.NaN, "HuggingFace API", "java");
+            writer.write("Swing is dead", "Negative", 0.61, "MLlib Model", "r/jvm stuff");
+            writer.write("From a post", "Very positive", Double.NaN, "Stanford CoreNLP", null);
+            assertEquals(4, writer.getRows());
+        }
+
+        Path partition = root.resolve("fetch_type=keyword/date=2024-05-01");
+        List<Group> java = read(partition.resolve("subreddit=java/part-run1.parquet"));
+        assertEquals(2, java.size());
+        assertEquals("Great, thanks!", java.get(0).getString("comment", 0));
+        assertEquals("Positive", java.get(0).getString("sentiment", 0));
+        assertEquals(0.93, java.get(0).getDouble("score", 0));
+        assertEquals("MLlib Model", java.get(0).getString("backend", 0));
+        assertEquals("raw/java.csv", java.get(0).getString("source_file", 0));
+        // A backend without a probability leaves the score null
+        assertEquals(0, java.get(1).getFieldRepetitionCount("score"));
+        assertEquals(PrimitiveTypeName.DOUBLE,
+            java.get(1).getType().getType("score").asPrimitiveType().getPrimitiveTypeName());
+
+        List<Group> jvm = read(partition.resolve("subreddit=r_jvm_stuff/part-run1.parquet"));
+        assertEquals(0.61, jvm.get(0).getDouble("score", 0));
+        List<Group> post = read(partition.resolve("subreddit=" + PreprocessedParquetWriter.DEFAULT_PARTITION + "/part-run1.parquet"));
+        assertEquals("From a post", post.get(0).getString("comment", 0));
+        assertEquals(0, post.get(0).getFieldRepetitionCount("score"));
+    }
+
+    @Test
+    void listsOneFilePerSubreddit() throws IOException {
+        PreprocessedParquetWriter writer = new PreprocessedParquetWriter(dir, "post", "2024-05-01", "run2", "raw/post.csv");
+        for (String subreddit : Arrays.asList("java", "jvm", "java", null)) {
+            writer.write("comment", "Positive", 0.8, "MLlib Model", subreddit);
+        }
+        writer.close();
+
+        assertEquals(3, writer.getFiles().size());
+        for (Path file : writer.getFiles()) {
+            assertTrue(file.getFileName().toString().equals("part-run2.parquet"), file.toString());
+        }
+        assertEquals(2, read(writer.getFiles().get(0)).size());
+    }
+
+    private static List<Group> read(Path file) throws IOException {
+        List<Group> rows = new ArrayList<>();
+        try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), new org.apache.hadoop.fs.Path(file.toUri()))
+                 .withConf(new Configuration())
+                 .build()) {
+            for (Group row = reader.read(); row != null; row = reader.read()) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,308 @@
+package com.sentimentanalysis.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sentimentanalysis.util.MappedCsvReader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the client against a stub Reddit API on localhost that answers with the recorded
+ * responses in src/test/resources/reddit, and can be told to fail requests first.
+ */
+class RedditApiClientTest {
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private final AtomicInteger tokensIssued = new AtomicInteger();
+    private final AtomicInteger apiRequests = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    // Statuses to answer API requests with, in turn, before answering normally; 0 drops the connection
+    private final Deque<Integer> failures = new ArrayDeque<>();
+    private volatile String rejectedToken;
+    private volatile long responseDelayMillis;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v1/access_token", this::token);
+        server.createContext("/api", this::api);
+        serverThreads = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverThreads);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void writesTopLevelCommentsOfEachPost() throws IOException {
+        Path output = dir.resolve("java.csv");
+
+        assertEquals(5, client(4).fetchBySubreddit(" java ", 2, 10, "hot", output));
+
+        assertEquals(Arrays.asList(
+            Arrays.asList("Subreddit", "Post Title", "Comment"),
+            Arrays.asList("java", "JDK 21, what \"virtual threads\" changed for us", "Great write-up, thanks!"),
+            Arrays.asList("java", "JDK 21, what \"virtual threads\" changed for us", "Pinning still bites,\nsee \"synchronized\" blocks"),
+            Arrays.asList("java", "JDK 21, what \"virtual threads\" changed for us", "[deleted]"),
+            Arrays.asList("java", "Is Swing dead?", "JavaFX is where it's at"),
+            Arrays.asList("java", "Is Swing dead?", "Still runs half the IDEs I use ❤")), read(output));
+        assertEquals(1, tokensIssued.get());
+    }
+
+    @Test
+    void limitsCommentsPerPost() throws IOException {
+        assertEquals(1, client(4).fetchByPostLink("https://www.reddit.com/r/java/comments/p2/is_swing_dead/", 1,
+            dir.resolve("post.csv")));
+        assertEquals(Arrays.asList(
+            Arrays.asList("Post Title", "Comment"),
+            Arrays.asList("Is Swing dead?", "JavaFX is where it's at")), read(dir.resolve("post.csv")));
+    }
+
+    @Test
+    void renewsARejectedToken() throws IOException {
+        RedditApiClient client = client(4);
+        client.authenticate();
+        rejectedToken = "token-1";
+
+        assertEquals(5, client.fetchBySubreddit("java", 2, 10, "hot", dir.resolve("java.csv")));
+        assertEquals(2, tokensIssued.get());
+    }
+
+    @Test
+    void waitsForRetryAfterOnRateLimit() throws IOException {
+        synchronized (failures) {
+            failures.add(429);
+        }
+        long start = System.nanoTime();
+
+        assertEquals(5, client(4).fetchBySubreddit("java", 2, 10, "hot", dir.resolve("java.csv")));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900), "Retried before Retry-After");
+        assertEquals(4, apiRequests.get());
+    }
+
+    @Test
+    void retriesServerErrors() throws IOException {
+        synchronized (failures) {
+            failures.add(503);
+            failures.add(500);
+        }
+
+        assertEquals(5, client(4).fetchBySubreddit("java", 2, 10, "hot", dir.resolve("java.csv")));
+        assertEquals(5, apiRequests.get());
+    }
+
+    @Test
+    void retriesDroppedConnections() throws IOException {
+        // HttpClient itself resends a GET once when the connection drops, so the client's own
+        // retry, after a second, only starts at the second drop
+        synchronized (failures) {
+            failures.addAll(Arrays.asList(0, 0));
+        }
+        long start = System.nanoTime();
+
+        assertEquals(5, client(4).fetchBySubreddit("java", 2, 10, "hot", dir.resolve("java.csv")));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900), "Not retried by the client");
+        assertEquals(5, apiRequests.get());
+    }
+
+    @Test
+    void givesUpOnConnectionsDroppedEveryAttempt() {
+        synchronized (failures) {
+            for (int i = 0; i < 8; i++) {
+                failures.add(0);
+            }
+        }
+
+        assertThrows(IOException.class, () -> client(4).fetchBySubreddit("java", 2, 10, "hot", dir.resolve("java.csv")));
+        assertEquals(8, apiRequests.get());
+    }
+
+    @Test
+    void skipsPostsThatCannotBeRead() throws IOException {
+        // 404 is not retried, and a post that fails is left out rather than failing the fetch
+        assertEquals(0, client(4).fetchByPostLink("https://redd.it/missing", 10, dir.resolve("post.csv")));
+        assertEquals(Arrays.asList(Arrays.asList("Post Title", "Comment")), read(dir.resolve("post.csv")));
+        assertEquals(1, apiRequests.get());
+    }
+
+    @Test
+    void keepsRequestsInFlightWithinTheLimit() throws IOException {
+        responseDelayMillis = 100;
+        RedditApiClient client = client(1);
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(5, client.fetchBySubreddit("java", 2, 10, "hot", dir.resolve("java" + i + ".csv")));
+        }
+        assertEquals(1, maxActive.get());
+    }
+
+    @Test
+    void schedulerLimitsRequestsInFlight() {
+        RedditApiClient.RateLimitScheduler scheduler = new RedditApiClient.RateLimitScheduler(2);
+
+        CompletableFuture<Void> first = scheduler.acquire();
+        CompletableFuture<Void> second = scheduler.acquire();
+        CompletableFuture<Void> third = scheduler.acquire();
+        assertTrue(first.isDone() && second.isDone());
+        assertFalse(third.isDone());
+
+        scheduler.release(null);
+        assertTrue(third.isDone());
+    }
+
+    @Test
+    void schedulerHoldsRequestsUntilTheQuotaResets() throws Exception {
+        RedditApiClient.RateLimitScheduler scheduler = new RedditApiClient.RateLimitScheduler(4);
+
+        scheduler.acquire().join();
+        scheduler.acquire().join();
+        // One request left in a window that resets in a second, with one still running
+        scheduler.release(headers("X-Ratelimit-Remaining", "2", "X-Ratelimit-Reset", "1"));
+        CompletableFuture<Void> lastInWindow = scheduler.acquire();
+        CompletableFuture<Void> nextWindow = scheduler.acquire();
+        assertTrue(lastInWindow.isDone());
+        assertFalse(nextWindow.isDone());
+
+        long start = System.nanoTime();
+        nextWindow.get(5, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(700), "Started before the reset");
+    }
+
+    @Test
+    void schedulerHoldsRequestsAfterRateLimit() throws Exception {
+        RedditApiClient.RateLimitScheduler scheduler = new RedditApiClient.RateLimitScheduler(4);
+        scheduler.exhausted(1);
+
+        long start = System.nanoTime();
+        scheduler.acquire().get(5, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(700), "Started before the reset");
+    }
+
+    private RedditApiClient client(int maxInFlight) {
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        return new RedditApiClient(base + "/api", base + "/api/v1/access_token", "id", "secret", "test-agent",
+            maxInFlight);
+    }
+
+    private static HttpHeaders headers(String... namesAndValues) {
+        Map<String, List<String>> map = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            map.put(namesAndValues[i], Arrays.asList(namesAndValues[i + 1]));
+        }
+        return HttpHeaders.of(map, (name, value) -> true);
+    }
+
+    private static List<List<String>> read(Path file) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (MappedCsvReader reader = new MappedCsvReader(file)) {
+            while (reader.next()) {
+                rows.add(Arrays.asList(reader.toArray()));
+            }
+        }
+        return rows;
+    }
+
+    private void token(HttpExchange exchange) throws IOException {
+        String body = "{\"access_token\": \"token-" + tokensIssued.incrementAndGet()
+            + "\", \"token_type\": \"bearer\", \"expires_in\": 86400, \"scope\": \"*\"}";
+        respond(exchange, 200, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void api(HttpExchange exchange) throws IOException {
+        apiRequests.incrementAndGet();
+        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        try {
+            if (responseDelayMillis > 0) {
+                Thread.sleep(responseDelayMillis);
+            }
+            exchange.getResponseHeaders().set("X-Ratelimit-Remaining", "99");
+            exchange.getResponseHeaders().set("X-Ratelimit-Reset", "300");
+            Integer failure;
+            synchronized (failures) {
+                failure = failures.poll();
+            }
+            if (failure != null) {
+                if (failure == 0) {
+                    // Closing the exchange before sending headers closes the connection
+                    exchange.close();
+                    return;
+                }
+                if (failure == 429) {
+                    // As Reddit answers once the window's quota is used up
+                    exchange.getResponseHeaders().set("X-Ratelimit-Remaining", "0");
+                    exchange.getResponseHeaders().set("X-Ratelimit-Reset", "1");
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                }
+                respond(exchange, failure, new byte[0]);
+                return;
+            }
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization.equals("Bearer " + rejectedToken)) {
+                respond(exchange, 401, new byte[0]);
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath().substring("/api".length());
+            String recording = path.equals("/r/java/hot") ? "listing_java_hot.json"
+                : path.startsWith("/comments/") ? "comments_" + path.substring("/comments/".length()) + ".json"
+                : null;
+            try (InputStream recorded = recording == null ? null : getClass().getResourceAsStream("/reddit/" + recording)) {
+                if (recorded == null) {
+                    respond(exchange, 404, "{\"message\": \"Not Found\", \"error\": 404}".getBytes(StandardCharsets.UTF_8));
+                } else {
+                    respond(exchange, 200, recorded.readAllBytes());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        // A fresh connection per request; reusing one the stub server is closing made tests flaky
+        exchange.getResponseHeaders().set("Connection", "close");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
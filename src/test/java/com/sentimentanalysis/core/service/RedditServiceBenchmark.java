@@ -0,0 +1,101 @@
+package com.sentimentanalysis.core.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of {@link RedditService#analyzeCommentsFromFile} on a synthetic keyword fetch
+ * file with 1 to {@code maxThreads} analysis threads, and the speedup over one thread.
+ * The backend is a stub that spins for {@code microsPerComment} per comment, standing in
+ * for a model; with 0 it is the lexicon backend, where reading and writing the files
+ * dominate. Not run as part of the tests; run with
+ * {@code java -cp <test and runtime classpath> com.sentimentanalysis.core.service.RedditServiceBenchmark
+ * [comments [maxThreads [microsPerComment]]]}.
+ *
+ * <p>Parallel batches only pay off with cores to run them on. With the defaults (20,000
+ * comments, 200 µs each) and {@code -Xmx1g} on OpenJDK 17.0.9 with one core, 1 to 4
+ * threads all ran at about 4,900 comments per second, 1.00x to 1.02x, which is the
+ * stub's own limit of 5,000 per second. With the lexicon backend (100,000 comments,
+ * {@code 0} µs) a second thread gave 1.18x, from scoring while the file is read and written.
+ */
+public class RedditServiceBenchmark {
+    private static final int BATCH_SIZE = 100;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long micros = args.length > 2 ? Long.parseLong(args[2]) : 200;
+        SentimentAnalyzer analyzer = micros > 0 ? new BusyAnalyzer(micros) : new LexiconSentimentService();
+
+        Path dir = Files.createTempDirectory("reddit-service-benchmark");
+        try {
+            Path file = dir.resolve("data/raw/keyword/2024-05-01_10-00-00/java_2024-05-01_10-00-00.csv");
+            Files.createDirectories(file.getParent());
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write("Subreddit,Post Title,Comment\n");
+                List<String> comments = LexiconSentimentServiceBenchmark.syntheticComments(count, 1);
+                for (int i = 0; i < comments.size(); i++) {
+                    writer.write("java,Post " + i / 50 + "," + comments.get(i) + "\n");
+                }
+            }
+            HDFSUploadQueue noHdfs = new HDFSUploadQueue(() -> {
+                throw new IllegalStateException("No HDFS in the benchmark");
+            }, 1, 0);
+
+            double baseline = 0;
+            for (int threads = 1; threads <= maxThreads; threads++) {
+                RedditService service = new RedditService(() -> analyzer, dir.resolve("data"), threads, noHdfs);
+                // The first round warms up
+                long best = Long.MAX_VALUE;
+                for (int round = 0; round <= ROUNDS; round++) {
+                    long start = System.nanoTime();
+                    service.analyzeCommentsFromFile(file.toString(), BATCH_SIZE, "keyword");
+                    if (round > 0) {
+                        best = Math.min(best, System.nanoTime() - start);
+                    }
+                }
+                double perSecond = count / (best / 1e9);
+                if (threads == 1) {
+                    baseline = perSecond;
+                }
+                System.out.printf("%d threads: %.0f comments/s, %.2fx%n", threads, perSecond, perSecond / baseline);
+            }
+            noHdfs.close(0);
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    // Spins rather than sleeps, so it needs a core as a model would
+    static final class BusyAnalyzer implements SentimentAnalyzer {
+        private final long nanos;
+
+        BusyAnalyzer(long micros) {
+            this.nanos = TimeUnit.MICROSECONDS.toNanos(micros);
+        }
+
+        @Override
+        public String analyzeSentiment(String text) {
+            long end = System.nanoTime() + nanos;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            return text.length() % 2 == 0 ? "Positive" : "Negative";
+        }
+
+        @Override
+        public String getName() {
+            return "Busy";
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.sentimentanalysis.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sentimentanalysis.core.model.AnalyzedComment;
+
+/**
+ * Analyzes fetch files laid out as under data/raw, with a stub analyzer that labels a
+ * comment by the parity of its number.
+ */
+class RedditServiceTest {
+    private static final String HEADER = "Subreddit,Post Title,Comment\n";
+
+    @TempDir
+    Path dir;
+
+    private final StubAnalyzer analyzer = new StubAnalyzer();
+
+    @Test
+    void publishesCommentsInFileOrder() throws Exception {
+        // Blank comments are skipped, and a quoted comment may span lines
+        Path file = write(HEADER + "java,First post,comment 1\njava,First post,\"  \"\n"
+            + "jvm,\"Second, post\",\"comment\n2\"\njvm,\"Second, post\",comment 3\n");
+
+        Collector collector = new Collector(Long.MAX_VALUE);
+        service(1).streamCommentsFromFile(file.toString(), 2, "keyword").subscribe(collector);
+        List<AnalyzedComment> results = collector.done.get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of("comment 1", "comment\n2", "comment 3"), comments(results));
+        assertEquals(List.of("Negative", "Positive", "Negative"),
+            results.stream().map(AnalyzedComment::getSentiment).collect(Collectors.toList()));
+        assertEquals(List.of("First post", "Second, post", "Second, post"),
+            results.stream().map(AnalyzedComment::getPostTitle).collect(Collectors.toList()));
+        assertEquals(List.of("java", "jvm", "jvm"),
+            results.stream().map(AnalyzedComment::getSubreddit).collect(Collectors.toList()));
+        assertEquals(1, preprocessedFiles().size());
+    }
+
+    @Test
+    void postFetchesHaveNoSubreddit() throws Exception {
+        Path file = write("Post Title,Comment\nIs Swing dead?,comment 4\n");
+
+        Collector collector = new Collector(Long.MAX_VALUE);
+        service(1).streamCommentsFromFile(file.toString(), 10, "post").subscribe(collector);
+        AnalyzedComment result = collector.done.get(10, TimeUnit.SECONDS).get(0);
+
+        assertEquals("Is Swing dead?", result.getPostTitle());
+        assertNull(result.getSubreddit());
+        assertEquals("Positive", result.getSentiment());
+    }
+
+    @Test
+    void readsOnlyAsFastAsTheSubscriberRequests() throws Exception {
+        Path file = write(rows(5000));
+        Collector collector = new Collector(1);
+
+        service(1).streamCommentsFromFile(file.toString(), 10, "keyword").subscribe(collector);
+        waitUntil(() -> collector.received.size() == 1);
+        Thread.sleep(500);
+
+        // The publisher's buffer and the batch being submitted, nowhere near the whole file
+        int scored = analyzer.scored.get();
+        assertTrue(scored <= Flow.defaultBufferSize() + 20, scored + " comments scored for one requested");
+        assertEquals(1, collector.received.size());
+
+        collector.subscription.request(Long.MAX_VALUE);
+        assertEquals(5000, collector.done.get(30, TimeUnit.SECONDS).size());
+    }
+
+    @Test
+    void cancellingStopsTheRun() throws Exception {
+        Path file = write(rows(5000));
+        Collector collector = new Collector(5);
+
+        service(1).streamCommentsFromFile(file.toString(), 10, "keyword").subscribe(collector);
+        waitUntil(() -> collector.received.size() == 5);
+        collector.subscription.cancel();
+        Thread.sleep(500);
+        int scored = analyzer.scored.get();
+        Thread.sleep(200);
+
+        assertEquals(scored, analyzer.scored.get(), "Still scoring after cancel");
+        assertTrue(scored < 5000, "Scored the whole file");
+        assertEquals(5, collector.received.size());
+        assertFalse(collector.done.isDone(), "Completed after cancel");
+    }
+
+    @Test
+    void refusesASecondSubscriber() throws Exception {
+        Path file = write(rows(10));
+        Flow.Publisher<AnalyzedComment> stream = service(1).streamCommentsFromFile(file.toString(), 10, "keyword");
+        Collector first = new Collector(Long.MAX_VALUE);
+        Collector second = new Collector(Long.MAX_VALUE);
+
+        stream.subscribe(first);
+        stream.subscribe(second);
+
+        assertEquals(10, first.done.get(10, TimeUnit.SECONDS).size());
+        ExecutionException refused = assertThrows(ExecutionException.class,
+            () -> second.done.get(10, TimeUnit.SECONDS));
+        assertTrue(refused.getCause() instanceof IllegalStateException, refused.getCause().toString());
+        assertTrue(second.received.isEmpty());
+    }
+
+    @Test
+    void failsTheStreamAfterDeliveringEarlierResults() throws Exception {
+        Path file = write(rows(30));
+        analyzer.failOn = "comment 25";
+        Collector collector = new Collector(Long.MAX_VALUE);
+
+        service(1).streamCommentsFromFile(file.toString(), 10, "keyword").subscribe(collector);
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+            () -> collector.done.get(10, TimeUnit.SECONDS));
+        assertEquals("Stub failure", failure.getCause().getMessage());
+        assertEquals(20, collector.received.size());
+    }
+
+    @Test
+    void analyzesAFileIntoSentimentsInOrder() throws Exception {
+        Path file = write(rows(25));
+
+        List<String> sentiments = service(1).analyzeCommentsFromFile(file.toString(), 10, "subreddit");
+
+        assertEquals(25, sentiments.size());
+        for (int i = 0; i < sentiments.size(); i++) {
+            assertEquals(i % 2 == 0 ? "Positive" : "Negative", sentiments.get(i));
+        }
+        assertEquals(26, Files.readAllLines(preprocessedFiles().get(0)).size());
+    }
+
+    @Test
+    void parallelBatchesMatchTheSequentialRun() throws Exception {
+        Path file = write(rows(400));
+        // Later batches finish first, so only the reordering keeps the output in file order
+        analyzer.unevenBatches = true;
+
+        Collector sequential = new Collector(Long.MAX_VALUE);
+        service(1).streamCommentsFromFile(file.toString(), 10, "keyword").subscribe(sequential);
+        List<AnalyzedComment> expected = sequential.done.get(30, TimeUnit.SECONDS);
+        assertEquals(1, analyzer.maxConcurrent.get());
+        // Both runs may start in the same second and so write the same preprocessed file
+        Path sequentialOutput = preprocessedFiles().get(0);
+        List<String> expectedLines = Files.readAllLines(sequentialOutput);
+        Files.delete(sequentialOutput);
+        Collector parallel = new Collector(Long.MAX_VALUE);
+        service(4).streamCommentsFromFile(file.toString(), 10, "keyword").subscribe(parallel);
+        List<AnalyzedComment> actual = parallel.done.get(30, TimeUnit.SECONDS);
+
+        assertTrue(analyzer.maxConcurrent.get() > 1, "Batches were not scored in parallel");
+        List<String> inputOrder = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            inputOrder.add("comment " + i);
+        }
+        assertEquals(inputOrder, comments(actual));
+        assertEquals(describe(expected), describe(actual));
+        assertEquals(expectedLines, Files.readAllLines(preprocessedFiles().get(0)));
+    }
+
+    @Test
+    void followsAFetchStillBeingWritten() throws Exception {
+        Path file = dir.resolve("data/raw/keyword/2024-05-01_10-00-00/java_2024-05-01_10-00-00.csv");
+        Files.createDirectories(file.getParent());
+        AtomicBoolean finished = new AtomicBoolean();
+        Collector collector = new Collector(Long.MAX_VALUE);
+
+        service(1).streamCommentsFromFetch(file, finished::get, 100, 2, "keyword").subscribe(collector);
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER + "java,Post,comment 0\njava,Post,\"comment");
+            writer.flush();
+            Thread.sleep(300);
+            assertTrue(collector.received.isEmpty(), "Published before the batch was full");
+            writer.write("\n1\"\njava,Post,comment 2");
+        }
+        finished.set(true);
+
+        assertEquals(List.of("comment 0", "comment\n1", "comment 2"), comments(collector.done.get(10, TimeUnit.SECONDS)));
+    }
+
+    private RedditService service(int threads) {
+        HDFSUploadQueue noHdfs = new HDFSUploadQueue(() -> {
+            throw new IllegalStateException("No HDFS in tests");
+        }, 1, 0);
+        return new RedditService(() -> analyzer, dir.resolve("data"), threads, noHdfs);
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = dir.resolve("data/raw/keyword/2024-05-01_10-00-00/java_2024-05-01_10-00-00.csv");
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    static String rows(int count) {
+        StringBuilder content = new StringBuilder(HEADER);
+        for (int i = 0; i < count; i++) {
+            content.append("java,Post ").append(i / 10).append(",comment ").append(i).append('\n');
+        }
+        return content.toString();
+    }
+
+    private List<Path> preprocessedFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(dir.resolve("data/preprocessed"))) {
+            return files.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+
+    private static List<String> comments(List<AnalyzedComment> results) {
+        return results.stream().map(AnalyzedComment::getComment).collect(Collectors.toList());
+    }
+
+    private static List<String> describe(List<AnalyzedComment> results) {
+        return results.stream()
+            .map(result -> result.getComment() + "|" + result.getSentiment() + "|" + result.getPostTitle() + "|" + result.getSubreddit())
+            .collect(Collectors.toList());
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    // Positive for comments ending in an even digit, negative otherwise
+    static final class StubAnalyzer implements SentimentAnalyzer {
+        final AtomicInteger scored = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        volatile String failOn;
+        // Makes each batch of ten take longer than the one after it
+        volatile boolean unevenBatches;
+
+        @Override
+        public List<String> analyzeSentimentBatch(List<String> texts) {
+            maxConcurrent.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                if (unevenBatches) {
+                    String first = texts.get(0);
+                    int batch = Integer.parseInt(first.substring(first.lastIndexOf(' ') + 1)) / 10;
+                    Thread.sleep(2 * (4 - batch % 5));
+                }
+                return SentimentAnalyzer.super.analyzeSentimentBatch(texts);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+
+        @Override
+        public String analyzeSentiment(String text) {
+            if (text.equals(failOn)) {
+                throw new IllegalStateException("Stub failure");
+            }
+            scored.incrementAndGet();
+            return (text.charAt(text.length() - 1) - '0') % 2 == 0 ? "Positive" : "Negative";
+        }
+
+        @Override
+        public String getName() {
+            return "Stub";
+        }
+    }
+
+    // Requests initialRequest results up front and collects them
+    static final class Collector implements Flow.Subscriber<AnalyzedComment> {
+        final List<AnalyzedComment> received = Collections.synchronizedList(new ArrayList<>());
+        final CompletableFuture<List<AnalyzedComment>> done = new CompletableFuture<>();
+        private final long initialRequest;
+        volatile Flow.Subscription subscription;
+
+        Collector(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(AnalyzedComment item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(new ArrayList<>(received));
+        }
+    }
+}
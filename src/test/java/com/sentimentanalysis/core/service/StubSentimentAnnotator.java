@@ -0,0 +1,59 @@
+package com.sentimentanalysis.core.service;
+
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.stanford.nlp.ling.CoreAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.neural.rnn.RNNCoreAnnotations;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.Annotator;
+import edu.stanford.nlp.sentiment.SentimentCoreAnnotations;
+import edu.stanford.nlp.trees.LabeledScoredTreeNode;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.util.CoreMap;
+
+/**
+ * Stands in for CoreNLP's parse and sentiment annotators, whose models are not available
+ * to the tests: each sentence's predicted class is its token count modulo 5. Loaded by
+ * CoreNLP by name, so it must stay public.
+ */
+public class StubSentimentAnnotator implements Annotator {
+    // Sentences annotated across all instances
+    static final AtomicInteger sentences = new AtomicInteger();
+
+    public StubSentimentAnnotator(String name, Properties props) {
+    }
+
+    // Pipeline properties that run this annotator in place of parse and sentiment
+    public static Properties properties() {
+        Properties props = new Properties();
+        props.setProperty("annotators", "stubSentiment");
+        props.setProperty("customAnnotatorClass.stubSentiment", StubSentimentAnnotator.class.getName());
+        return props;
+    }
+
+    @Override
+    public void annotate(Annotation annotation) {
+        for (CoreMap sentence : annotation.get(CoreAnnotations.SentencesAnnotation.class)) {
+            Tree tree = new LabeledScoredTreeNode(new CoreLabel());
+            ((CoreLabel) tree.label()).set(RNNCoreAnnotations.PredictedClass.class,
+                sentence.get(CoreAnnotations.TokensAnnotation.class).size() % 5);
+            sentence.set(SentimentCoreAnnotations.SentimentAnnotatedTree.class, tree);
+            sentences.incrementAndGet();
+        }
+    }
+
+    @Override
+    public Set<Class<? extends CoreAnnotation>> requirementsSatisfied() {
+        return Collections.singleton(SentimentCoreAnnotations.SentimentAnnotatedTree.class);
+    }
+
+    @Override
+    public Set<Class<? extends CoreAnnotation>> requires() {
+        return Collections.emptySet();
+    }
+}
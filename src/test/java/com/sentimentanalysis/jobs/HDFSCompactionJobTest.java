@@ -0,0 +1,230 @@
+package com.sentimentanalysis.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sentimentanalysis.util.FetchRecordWriter;
+
+/**
+ * Compacts fetch directories laid out as on HDFS, under a temporary directory of the
+ * local file system.
+ */
+class HDFSCompactionJobTest {
+    private static final String HEADER = "Subreddit,Post Title,Comment\n";
+    private static final String POST_HEADER = "Post Title,Comment\n";
+    private static final String CRLF_HEADER = "Subreddit,Post Title,Comment\r\n";
+
+    @TempDir
+    java.nio.file.Path dir;
+
+    private FileSystem fileSystem;
+    private Path root;
+
+    @BeforeEach
+    void createRoot() throws IOException {
+        fileSystem = FileSystem.getLocal(new Configuration());
+        root = new Path(dir.resolve("raw").toUri());
+        fileSystem.mkdirs(root);
+    }
+
+    @Test
+    void mergesEachDayIntoOnePartWithASingleHeader() throws IOException {
+        Path first = write("keyword/2024-05-01_10-00-00/java_2024-05-01_10-00-00.csv", HEADER + "java,Post,\"a, b\"\n");
+        // The last row of a file may lack its line end
+        Path second = write("keyword/2024-05-01_11-30-00/jdk_2024-05-01_11-30-00.csv", HEADER + "java,Post,\"line\nbreak\"");
+        Path nextDay = write("keyword/2024-05-02_09-00-00/jvm_2024-05-02_09-00-00.csv", HEADER + "jvm,Post,c\n");
+
+        HDFSCompactionJob.CompactionStats stats = job(0, 1 << 20).run(roots());
+
+        assertEquals(3, stats.getFilesMerged());
+        assertEquals(2, stats.getPartsWritten());
+        assertEquals(HEADER + "java,Post,\"a, b\"\njava,Post,\"line\nbreak\"\n",
+            read(new Path(root, "keyword/2024-05-01/part-00000.csv")));
+        assertEquals(HEADER + "jvm,Post,c\n", read(new Path(root, "keyword/2024-05-02/part-00000.csv")));
+        for (Path original : Arrays.asList(first, second, nextDay)) {
+            assertFalse(fileSystem.exists(original), original + " was not deleted");
+            assertFalse(fileSystem.exists(original.getParent()), original.getParent() + " was not deleted");
+        }
+        assertEquals(Arrays.asList("2024-05-01", "2024-05-02"), names(new Path(root, "keyword")));
+    }
+
+    @Test
+    void manifestLocatesEachOriginal() throws IOException {
+        List<String> rows = Arrays.asList("java,Post,first\n", "java,Post,\"second\nrow\"\njava,Post,third\n");
+        write("subreddit/2024-05-01_10-00-00/java_2024-05-01_10-00-00.csv", HEADER + rows.get(0));
+        write("subreddit/2024-05-01_12-00-00/java_2024-05-01_12-00-00.csv", HEADER + rows.get(1));
+
+        job(0, 1 << 20).run(roots());
+
+        Path dayDir = new Path(root, "subreddit/2024-05-01");
+        List<HDFSCompactionJob.ManifestEntry> entries =
+            HDFSCompactionJob.readManifest(fileSystem, new Path(dayDir, "_manifest-part-00000.csv"));
+        assertEquals(2, entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            HDFSCompactionJob.ManifestEntry entry = entries.get(i);
+            assertEquals("part-00000.csv", entry.getMergedFile());
+            assertTrue(entry.getOriginalPath().endsWith(i == 0 ? "10-00-00.csv" : "12-00-00.csv"), entry.getOriginalPath());
+            byte[] data = new byte[(int) entry.getDataLength()];
+            try (FSDataInputStream in = fileSystem.open(new Path(dayDir, entry.getMergedFile()))) {
+                in.readFully(entry.getDataOffset(), data);
+            }
+            assertEquals(rows.get(i), new String(data, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void startsANewPartForAnotherHeaderOrPastTheTargetSize() throws IOException {
+        write("post/2024-05-01_10-00-00/a_2024-05-01_10-00-00.csv", POST_HEADER + "Post,a\n");
+        write("post/2024-05-01_10-00-01/b_2024-05-01_10-00-01.csv", HEADER + "java,Post,b\n");
+        write("post/2024-05-01_10-00-02/c_2024-05-01_10-00-02.csv", HEADER + "java,Post,c\n");
+
+        // Every part is past the target as soon as it has its header
+        assertEquals(3, job(0, 1).run(roots()).getPartsWritten());
+        assertEquals(Arrays.asList("_manifest-part-00000.csv", "_manifest-part-00001.csv", "_manifest-part-00002.csv",
+            "part-00000.csv", "part-00001.csv", "part-00002.csv"), names(new Path(root, "post/2024-05-01")));
+
+        write("post/2024-05-01_10-00-03/d_2024-05-01_10-00-03.csv", HEADER + "java,Post,d\n");
+        write("post/2024-05-01_10-00-04/e_2024-05-01_10-00-04.csv", HEADER + "java,Post,e\n");
+        assertEquals(1, job(0, 1 << 20).run(roots()).getPartsWritten());
+        assertEquals(HEADER + "java,Post,d\njava,Post,e\n", read(new Path(root, "post/2024-05-01/part-00003.csv")));
+    }
+
+    @Test
+    void leavesRecentFiles() throws IOException {
+        Path recent = write("keyword/2024-05-01_10-00-00/java_2024-05-01_10-00-00.csv", HEADER + "java,Post,a\n");
+
+        assertEquals(0, job(60 * 60_000L, 1 << 20).run(roots()).getFilesMerged());
+        assertTrue(fileSystem.exists(recent));
+        assertEquals(1, job(0, 1 << 20).run(roots()).getFilesMerged());
+        assertFalse(fileSystem.exists(recent));
+    }
+
+    @Test
+    void mergesArrowFilesAsCsvRows() throws IOException {
+        // Written as the CSV fetch writer writes, so both share a part
+        write("keyword/2024-05-01_10-00-00/java_2024-05-01_10-00-00.csv", CRLF_HEADER + "java,Post,a\r\n");
+        java.nio.file.Path arrow = dir.resolve("raw/keyword/2024-05-01_11-00-00/jdk_2024-05-01_11-00-00.arrows");
+        java.nio.file.Files.createDirectories(arrow.getParent());
+        try (FetchRecordWriter writer = FetchRecordWriter.open(arrow, Arrays.asList("Subreddit", "Post Title", "Comment"))) {
+            writer.write(Arrays.asList("java", "Post", "b, c"));
+            writer.flush();
+            writer.write(Arrays.asList("java", "Post", "line\nbreak"));
+        }
+
+        HDFSCompactionJob.CompactionStats stats = job(0, 1 << 20).run(roots());
+
+        assertEquals(2, stats.getFilesMerged());
+        assertEquals(1, stats.getPartsWritten());
+        Path dayDir = new Path(root, "keyword/2024-05-01");
+        assertEquals(CRLF_HEADER + "java,Post,a\r\njava,Post,\"b, c\"\r\njava,Post,\"line\nbreak\"\r\n",
+            read(new Path(dayDir, "part-00000.csv")));
+        assertFalse(java.nio.file.Files.exists(arrow));
+
+        HDFSCompactionJob.ManifestEntry entry =
+            HDFSCompactionJob.readManifest(fileSystem, new Path(dayDir, "_manifest-part-00000.csv")).get(1);
+        assertTrue(entry.getOriginalPath().endsWith(".arrows"), entry.getOriginalPath());
+        byte[] data = new byte[(int) entry.getDataLength()];
+        try (FSDataInputStream in = fileSystem.open(new Path(dayDir, entry.getMergedFile()))) {
+            in.readFully(entry.getDataOffset(), data);
+        }
+        assertEquals("java,Post,\"b, c\"\r\njava,Post,\"line\nbreak\"\r\n", new String(data, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void completesARunThatDiedBeforeDeletingOriginals() throws IOException {
+        String original = HEADER + "java,Post,a\n";
+        Path file = write("keyword/2024-05-01_10-00-00/java_2024-05-01_10-00-00.csv", original);
+        job(0, 1 << 20).run(roots());
+        String merged = read(new Path(root, "keyword/2024-05-01/part-00000.csv"));
+
+        // As if the run had died after renaming the part but before deleting the original
+        write("keyword/2024-05-01_10-00-00/java_2024-05-01_10-00-00.csv", original);
+        HDFSCompactionJob.CompactionStats stats = job(0, 1 << 20).run(roots());
+
+        assertEquals(0, stats.getFilesMerged());
+        assertFalse(fileSystem.exists(file));
+        assertEquals(merged, read(new Path(root, "keyword/2024-05-01/part-00000.csv")));
+        assertEquals(Arrays.asList("_manifest-part-00000.csv", "part-00000.csv"), names(new Path(root, "keyword/2024-05-01")));
+    }
+
+    @Test
+    void discardsWhatARunLeftUnfinished() throws IOException {
+        Path file = write("keyword/2024-05-01_10-00-00/java_2024-05-01_10-00-00.csv", HEADER + "java,Post,a\n");
+        // Died while writing a part, and after writing a manifest whose part was never renamed
+        write("keyword/2024-05-01/_tmp-part-00000.csv", HEADER + "java,Post,a\njava,Po");
+        write("keyword/2024-05-01/_manifest-part-00001.csv",
+            "original_path,merged_file,data_offset,data_length,modification_time\n"
+                + file.toUri().getPath() + ",part-00001.csv,29,12,0\n");
+
+        HDFSCompactionJob.CompactionStats stats = job(0, 1 << 20).run(roots());
+
+        assertEquals(1, stats.getFilesMerged());
+        assertEquals(HEADER + "java,Post,a\n", read(new Path(root, "keyword/2024-05-01/part-00000.csv")));
+        assertEquals(Arrays.asList("_manifest-part-00000.csv", "part-00000.csv"), names(new Path(root, "keyword/2024-05-01")));
+    }
+
+    @Test
+    void refusesToRunWhileLocked() throws IOException {
+        fileSystem.create(lockFile(), false).close();
+        Path file = write("keyword/2024-05-01_10-00-00/java_2024-05-01_10-00-00.csv", HEADER + "java,Post,a\n");
+
+        assertThrows(IOException.class, () -> job(0, 1 << 20).run(roots()));
+        assertTrue(fileSystem.exists(file));
+    }
+
+    private HDFSCompactionJob job(long minAgeMillis, long targetBytes) {
+        return new HDFSCompactionJob(fileSystem, minAgeMillis, targetBytes, lockFile());
+    }
+
+    private Path lockFile() {
+        return new Path(root.getParent(), "_compaction.lock");
+    }
+
+    private List<Path> roots() {
+        return Collections.singletonList(root);
+    }
+
+    private Path write(String relativePath, String content) throws IOException {
+        Path path = new Path(root, relativePath);
+        try (OutputStream out = fileSystem.create(path, true)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return path;
+    }
+
+    private String read(Path path) throws IOException {
+        byte[] data = new byte[(int) fileSystem.getFileStatus(path).getLen()];
+        try (FSDataInputStream in = fileSystem.open(path)) {
+            in.readFully(0, data);
+        }
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    private List<String> names(Path directory) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (FileStatus status : fileSystem.listStatus(directory)) {
+            names.add(status.getPath().getName());
+        }
+        Collections.sort(names);
+        return names;
+    }
+}
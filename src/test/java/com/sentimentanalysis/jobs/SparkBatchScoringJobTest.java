@@ -0,0 +1,185 @@
+package com.sentimentanalysis.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.spark.ml.Pipeline;
+import org.apache.spark.ml.PipelineStage;
+import org.apache.spark.ml.classification.LogisticRegression;
+import org.apache.spark.ml.feature.HashingTF;
+import org.apache.spark.ml.feature.Tokenizer;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.functions;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sentimentanalysis.core.service.SentimentAnalysisService;
+import com.sentimentanalysis.util.FetchRecordWriter;
+
+/**
+ * Scores a small raw data tree, laid out as the fetch scripts write it, with a model
+ * fitted in the test, and reads the partitioned Parquet output back.
+ */
+class SparkBatchScoringJobTest {
+    private static final String MULTI_LINE = "I \"love\" it, really.\nSecond line, still great";
+
+    private static SparkSession spark;
+
+    @TempDir
+    Path dir;
+
+    private Path raw;
+    private String modelPath;
+
+    @BeforeAll
+    static void startSpark() {
+        spark = SparkSession.builder()
+            .appName("SparkBatchScoringJobTest")
+            .master("local[*]")
+            .config("spark.ui.enabled", "false")
+            .config("spark.sql.shuffle.partitions", "2")
+            .getOrCreate();
+        SentimentAnalysisService.registerUdfs(spark);
+    }
+
+    @AfterAll
+    static void stopSpark() {
+        spark.stop();
+    }
+
+    @BeforeEach
+    void writeFixtures() throws IOException {
+        raw = dir.resolve("raw");
+        write("keyword/2024-05-01_10-00-00/java_2024-05-01_10-00-00.csv",
+            "Subreddit,Post Title,Comment\r\n"
+                + "java,\"JDK 21, finally\",\"" + MULTI_LINE.replace("\"", "\"\"") + "\"\r\n"
+                + "java,\"JDK 21, finally\",terrible update\r\n"
+                + "java,\"JDK 21, finally\",\r\n"
+                + "kotlin,Coroutines,good stuff\r\n");
+        write("subreddit/2024-05-01_11-00-00/jvm_2024-05-01_11-00-00.csv",
+            "Subreddit,Post Title,Comment\r\njvm,GC pauses,bad pauses again\r\n");
+        write("post/2024-05-01_12-00-00/abc123_2024-05-01_12-00-00.csv",
+            "Post Title,Comment\r\nSwing,\"great, thanks\"\r\n");
+        Path arrow = raw.resolve("keyword/2024-05-01_13-00-00/scala_2024-05-01_13-00-00.arrows");
+        Files.createDirectories(arrow.getParent());
+        try (FetchRecordWriter writer = FetchRecordWriter.open(arrow, Arrays.asList("Subreddit", "Post Title", "Comment"))) {
+            writer.write(Arrays.asList("scala", "Scala 3", "love the new syntax"));
+            writer.flush();
+            writer.write(Arrays.asList("scala", "Scala 3", "   "));
+            writer.write(Arrays.asList("scala", "Scala 3", "bad,\r\nbroken build"));
+        }
+        modelPath = fitModel(dir.resolve("model"));
+    }
+
+    @Test
+    void scoresEveryCommentIntoPartitions() throws IOException {
+        Path output = dir.resolve("scored");
+        new SparkBatchScoringJob(spark, modelPath).run(raw.toUri().toString(), output.toUri().toString());
+
+        Dataset<Row> scored = spark.read().parquet(output.toString());
+        List<String> rows = scored
+            .select(functions.concat_ws("|", functions.col("fetch_type"),
+                functions.coalesce(functions.col("subreddit"), functions.lit("-")), functions.col("comment")))
+            .as(Encoders.STRING())
+            .collectAsList();
+        List<String> expected = new ArrayList<>(Arrays.asList(
+            "keyword|java|" + MULTI_LINE, "keyword|java|terrible update", "keyword|kotlin|good stuff",
+            "keyword|scala|love the new syntax", "keyword|scala|bad,\r\nbroken build",
+            "subreddit|jvm|bad pauses again", "post|-|great, thanks"));
+        Collections.sort(expected);
+        Collections.sort(rows);
+        assertEquals(expected, rows);
+
+        // The fitted model separates the fixture's words cleanly
+        for (Row row : scored.select("comment", "sentiment", "probability", "model", "source_file").collectAsList()) {
+            String comment = row.getString(0);
+            boolean positive = comment.contains("love") || comment.contains("good") || comment.contains("great");
+            assertEquals(positive ? "Positive" : "Negative", row.getString(1), comment);
+            assertTrue(row.getDouble(2) >= 0.5 && row.getDouble(2) <= 1.0, comment + ": " + row.getDouble(2));
+            assertEquals(modelPath, row.getString(3));
+            assertTrue(row.getString(4).contains("_2024-05-01_"), row.getString(4));
+        }
+
+        assertEquals(Arrays.asList("fetch_type=keyword/subreddit=java", "fetch_type=keyword/subreddit=kotlin",
+            "fetch_type=keyword/subreddit=scala", "fetch_type=post/subreddit=__HIVE_DEFAULT_PARTITION__",
+            "fetch_type=subreddit/subreddit=jvm"), partitions(output));
+    }
+
+    @Test
+    void replacesOnlyThePartitionsItScores() throws IOException {
+        Path output = dir.resolve("scored");
+        new SparkBatchScoringJob(spark, modelPath).run(raw.toUri().toString(), output.toUri().toString());
+
+        // A backfill of one keyword fetch leaves the other partitions as they were
+        Path backfill = dir.resolve("backfill");
+        Path file = backfill.resolve("keyword/2024-05-02_10-00-00/java_2024-05-02_10-00-00.csv");
+        Files.createDirectories(file.getParent());
+        Files.write(file, "Subreddit,Post Title,Comment\njava,Loom,good news\n".getBytes(StandardCharsets.UTF_8));
+        new SparkBatchScoringJob(spark, modelPath).run(backfill.toUri().toString(), output.toUri().toString());
+
+        Dataset<Row> scored = spark.read().parquet(output.toString());
+        assertEquals(Collections.singletonList("good news"), scored
+            .filter("fetch_type = 'keyword' and subreddit = 'java'")
+            .select("comment").as(Encoders.STRING()).collectAsList());
+        assertEquals(2, scored.filter("fetch_type = 'keyword' and subreddit = 'scala'").count());
+        assertEquals(1, scored.filter("fetch_type = 'post'").count());
+    }
+
+    private void write(String relativePath, String content) throws IOException {
+        Path file = raw.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Positive for the fixture's positive words, negative otherwise, on the normalized text as the job feeds it
+    private static String fitModel(Path path) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        for (String text : Arrays.asList("love it", "good news", "great thanks", "really good", "love this great")) {
+            rows.add(RowFactory.create(text, 1.0));
+        }
+        for (String text : Arrays.asList("terrible update", "bad pauses", "broken build", "bad again", "terrible bad")) {
+            rows.add(RowFactory.create(text, 0.0));
+        }
+        Dataset<Row> training = spark.createDataFrame(rows, new StructType()
+                .add("text", DataTypes.StringType)
+                .add("label", DataTypes.DoubleType))
+            .withColumn("SentimentText", functions.callUDF(SentimentAnalysisService.NORMALIZE_UDF, functions.col("text")));
+        new Pipeline().setStages(new PipelineStage[] {
+            new Tokenizer().setInputCol("SentimentText").setOutputCol("words"),
+            new HashingTF().setInputCol("words").setOutputCol("features").setNumFeatures(1 << 10),
+            new LogisticRegression().setMaxIter(50)
+        }).fit(training).write().overwrite().save(path.toString());
+        return path.toString();
+    }
+
+    private static List<String> partitions(Path output) throws IOException {
+        try (Stream<Path> files = Files.walk(output)) {
+            return files
+                .filter(file -> file.getFileName().toString().endsWith(".parquet"))
+                .map(file -> output.relativize(file.getParent()).toString())
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+}
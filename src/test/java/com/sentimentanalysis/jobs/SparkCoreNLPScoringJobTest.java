@@ -0,0 +1,108 @@
+package com.sentimentanalysis.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sentimentanalysis.core.service.CoreNLPBatchAnnotator;
+import com.sentimentanalysis.core.service.CoreNLPSentenceScorer;
+import com.sentimentanalysis.core.service.SentimentCache;
+import com.sentimentanalysis.core.service.StanfordNLPSentimentService;
+import com.sentimentanalysis.core.service.StubSentimentAnnotator;
+
+/**
+ * Runs the job in local mode and compares each comment's sentiment with what
+ * {@link StanfordNLPSentimentService} gives for it. CoreNLP's parse and sentiment models
+ * are not available to the tests, so both run CoreNLP's real tokenizer and sentence
+ * splitter with {@link StubSentimentAnnotator} in place of the models. This checks the
+ * job's batching, caching and first-sentence labelling against the service, not the
+ * models' labels themselves.
+ */
+class SparkCoreNLPScoringJobTest {
+    // Only zero-width spaces: not blank to Spark's trim, but CoreNLP finds no sentence in it
+    private static final String NO_SENTENCES = "\u200B\u200B";
+
+    private static SparkSession spark;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void startSpark() {
+        spark = SparkSession.builder()
+            .appName("SparkCoreNLPScoringJobTest")
+            .master("local[*]")
+            .config("spark.ui.enabled", "false")
+            .config("spark.sql.shuffle.partitions", "2")
+            .getOrCreate();
+    }
+
+    @AfterAll
+    static void stopSpark() {
+        spark.stop();
+    }
+
+    @Test
+    void matchesTheStanfordServiceForEveryComment() throws IOException {
+        List<String> comments = new ArrayList<>(Arrays.asList(
+            "Great post. I agree.",
+            "Great post.   Totally wrong here, though.",
+            "This update broke everything!\nRolling back now.",
+            "Works fine for me.",
+            "Not great, not terrible.",
+            "Works fine for me. Not for my team.",
+            "lol"));
+        for (int i = 0; i < 40; i++) {
+            comments.add("Comment number " + i + " has " + "very ".repeat(i % 5) + "many words.");
+        }
+        Path file = dir.resolve("raw/keyword/2024-05-01_10-00-00/java_2024-05-01_10-00-00.csv");
+        Files.createDirectories(file.getParent());
+        StringBuilder csv = new StringBuilder("Subreddit,Post Title,Comment\r\n");
+        for (String comment : comments) {
+            csv.append("java,Post,\"").append(comment.replace("\"", "\"\"")).append("\"\r\n");
+        }
+        csv.append("java,Post,").append(NO_SENTENCES).append("\r\n");
+        Files.write(file, csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        Path output = dir.resolve("scored");
+        new SparkCoreNLPScoringJob(spark, StubSentimentAnnotator.properties())
+            .run(dir.resolve("raw").toUri().toString(), output.toUri().toString());
+
+        Map<String, Row> scored = new HashMap<>();
+        for (Row row : spark.read().parquet(output.toString())
+                .select("comment", "sentiment", "probability", "model", "subreddit").collectAsList()) {
+            scored.put(row.getString(0), row);
+        }
+        assertEquals(comments.size() + 1, scored.size());
+
+        StanfordNLPSentimentService service = new StanfordNLPSentimentService(new CoreNLPSentenceScorer(() -> null,
+            new SentimentCache(100), new CoreNLPBatchAnnotator(() -> null, 1), StubSentimentAnnotator.properties()));
+        List<String> expected = service.analyzeSentimentBatch(comments);
+        for (int i = 0; i < comments.size(); i++) {
+            Row row = scored.get(comments.get(i));
+            assertEquals(expected.get(i), row.getString(1), comments.get(i));
+            assertNull(row.get(2));
+            assertEquals(SparkCoreNLPScoringJob.MODEL, row.getString(3));
+            assertEquals("java", row.getString(4));
+        }
+        // The service calls such a comment Neutral; the job leaves it unlabelled
+        assertNull(scored.get(NO_SENTENCES).get(1));
+        assertEquals("Neutral", service.analyzeSentiment(NO_SENTENCES));
+    }
+}
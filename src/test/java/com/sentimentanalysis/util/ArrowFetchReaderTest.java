@@ -0,0 +1,196 @@
+package com.sentimentanalysis.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ArrowFetchReaderTest {
+    private static final List<String> COLUMNS = Arrays.asList("Subreddit", "Post Title", "Comment");
+    private static final List<List<String>> RECORDS = Arrays.asList(
+        Arrays.asList("java", "JDK 21, what \"virtual threads\" changed", "Great write-up, thanks!"),
+        Arrays.asList("java", "JDK 21, what \"virtual threads\" changed", "Pinning still bites,\r\nsee \"synchronized\""),
+        Arrays.asList("java", "Is Swing dead?", ""),
+        Arrays.asList("java", "Is Swing dead?", " \t "),
+        Arrays.asList("jvm", "Ünïcödé ❤", "Still runs half the IDEs I use ❤"));
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsThroughTheWriterInSeveralBatches() throws IOException {
+        Path file = dir.resolve("java.arrows");
+        write(file, 2);
+
+        assertEquals(expected(), readAll(FetchRecordReader.open(file)));
+        // A window smaller than every message maps each one on its own
+        assertEquals(expected(), readAll(new ArrowFetchReader(file, 16)));
+        assertEquals(expected(), readAll(FetchRecordReader.openArrow(ByteBuffer.wrap(Files.readAllBytes(file)))));
+    }
+
+    @Test
+    void readsTheSameRecordsAsTheCsvOutput() throws IOException {
+        Path arrow = dir.resolve("java.arrows");
+        Path csv = dir.resolve("java.csv");
+        write(arrow, 3);
+        write(csv, 3);
+
+        try (FetchRecordReader arrowReader = FetchRecordReader.open(arrow);
+             FetchRecordReader csvReader = FetchRecordReader.open(csv)) {
+            while (csvReader.next()) {
+                assertTrue(arrowReader.next());
+                assertEquals(Arrays.asList(csvReader.toArray()), Arrays.asList(arrowReader.toArray()));
+                for (int i = 0; i < csvReader.fieldCount(); i++) {
+                    assertEquals(csvReader.isBlank(i), arrowReader.isBlank(i), "Field " + i + " of " + csvReader.getString(2));
+                }
+            }
+            assertFalse(arrowReader.next());
+        }
+    }
+
+    @Test
+    void followsAGrowingStream() throws IOException {
+        Path file = dir.resolve("java.arrows");
+        try (FetchRecordWriter writer = FetchRecordWriter.open(file, COLUMNS);
+             FetchRecordReader reader = FetchRecordReader.open(file)) {
+            // The schema is written when the writer opens
+            assertTrue(reader.nextComplete());
+            assertEquals(COLUMNS, Arrays.asList(reader.toArray()));
+            assertFalse(reader.nextComplete());
+
+            writer.write(RECORDS.get(0));
+            writer.write(RECORDS.get(1));
+            assertFalse(reader.nextComplete(), "Read rows before they were flushed");
+            writer.flush();
+            assertEquals(RECORDS.subList(0, 2), readAvailable(reader));
+
+            for (List<String> record : RECORDS.subList(2, RECORDS.size())) {
+                writer.write(record);
+            }
+            writer.flush();
+            assertEquals(RECORDS.subList(2, RECORDS.size()), readAvailable(reader));
+        }
+    }
+
+    @Test
+    void neverReadsAPartlyWrittenMessage() throws IOException {
+        Path complete = dir.resolve("complete.arrows");
+        write(complete, 2);
+        byte[] content = Files.readAllBytes(complete);
+        Path growing = dir.resolve("growing.arrows");
+        Files.createFile(growing);
+
+        // The file grows a few bytes at a time, splitting every message and length prefix
+        List<List<String>> seen = new ArrayList<>();
+        try (OutputStream out = Files.newOutputStream(growing, StandardOpenOption.APPEND);
+             FetchRecordReader reader = new ArrowFetchReader(growing, 64)) {
+            for (int at = 0; at < content.length; at += 7) {
+                out.write(content, at, Math.min(7, content.length - at));
+                out.flush();
+                seen.addAll(readAvailable(reader));
+            }
+        }
+
+        assertEquals(expected(), seen);
+    }
+
+    @Test
+    void readsNullAndEmptyFieldsAsEmpty() throws IOException {
+        Path file = dir.resolve("nulls.arrows");
+        // As pyarrow writes a column with missing values: nullable, with a validity bitmap
+        try (BufferAllocator allocator = new RootAllocator();
+             VectorSchemaRoot root = VectorSchemaRoot.create(new Schema(Arrays.asList(
+                 new Field("Post Title", FieldType.nullable(new ArrowType.Utf8()), null),
+                 new Field("Comment", FieldType.nullable(new ArrowType.Utf8()), null))), allocator);
+             OutputStream out = Files.newOutputStream(file);
+             ArrowStreamWriter writer = new ArrowStreamWriter(root, null, Channels.newChannel(out))) {
+            writer.start();
+            VarCharVector titles = (VarCharVector) root.getVector(0);
+            VarCharVector comments = (VarCharVector) root.getVector(1);
+            titles.allocateNew(10);
+            comments.allocateNew(10);
+            for (int row = 0; row < 10; row++) {
+                titles.setSafe(row, ("Post " + row).getBytes(StandardCharsets.UTF_8));
+                if (row % 3 == 0) {
+                    comments.setNull(row);
+                } else {
+                    comments.setSafe(row, (row % 3 == 1 ? "" : "comment " + row).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            titles.setValueCount(10);
+            comments.setValueCount(10);
+            root.setRowCount(10);
+            writer.writeBatch();
+            writer.end();
+        }
+
+        try (FetchRecordReader reader = FetchRecordReader.open(file)) {
+            assertTrue(reader.next());
+            for (int row = 0; row < 10; row++) {
+                assertTrue(reader.next());
+                assertEquals("Post " + row, reader.getString(0));
+                assertFalse(reader.isBlank(0));
+                String comment = row % 3 == 2 ? "comment " + row : "";
+                assertEquals(comment, reader.getString(1), "Row " + row);
+                assertEquals(comment.isEmpty(), reader.isBlank(1), "Row " + row);
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    // Flushes after every batchSize records
+    private static void write(Path file, int batchSize) throws IOException {
+        try (FetchRecordWriter writer = FetchRecordWriter.open(file, COLUMNS)) {
+            for (int i = 0; i < RECORDS.size(); i++) {
+                writer.write(RECORDS.get(i));
+                if ((i + 1) % batchSize == 0) {
+                    writer.flush();
+                }
+            }
+        }
+    }
+
+    private static List<List<String>> expected() {
+        List<List<String>> records = new ArrayList<>();
+        records.add(COLUMNS);
+        records.addAll(RECORDS);
+        return records;
+    }
+
+    private static List<List<String>> readAll(FetchRecordReader reader) throws IOException {
+        try (FetchRecordReader closing = reader) {
+            return readAvailable(closing);
+        }
+    }
+
+    private static List<List<String>> readAvailable(FetchRecordReader reader) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        while (reader.nextComplete()) {
+            records.add(Arrays.asList(reader.toArray()));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,139 @@
+package com.sentimentanalysis.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FetchFileFollowerTest {
+    private static final List<String> COLUMNS = Arrays.asList("Subreddit", "Post Title", "Comment");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void seesEveryRowOfAGrowingFile() throws Exception {
+        Path file = dir.resolve("java.csv");
+        List<List<String>> expected = new ArrayList<>();
+        expected.add(COLUMNS);
+        StringBuilder content = new StringBuilder("Subreddit,Post Title,Comment\r\n");
+        for (int i = 0; i < 500; i++) {
+            String comment = i % 7 == 0 ? "line one of " + i + ",\r\n\"quoted\" line two" : "comment " + i;
+            expected.add(Arrays.asList("java", "Post " + i / 10, comment));
+            content.append("java,Post ").append(i / 10).append(',')
+                .append(i % 7 == 0 ? "\"" + comment.replace("\"", "\"\"") + "\"" : comment).append("\r\n");
+        }
+        AtomicBoolean finished = new AtomicBoolean();
+
+        // Flushed in random pieces, so records, quoted line breaks and CRLFs are split across flushes
+        CompletableFuture<Void> fetch = CompletableFuture.runAsync(() -> {
+            Random random = new Random(17);
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (int at = 0; at < content.length(); ) {
+                    int end = Math.min(content.length(), at + 1 + random.nextInt(400));
+                    writer.append(content, at, end);
+                    writer.flush();
+                    at = end;
+                    Thread.sleep(random.nextInt(3) == 0 ? 60 : 1);
+                }
+            } catch (IOException | InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            finished.set(true);
+        });
+
+        // A queue of two records keeps the follower waiting on this reader most of the time
+        try (FetchFileFollower follower = new FetchFileFollower(file, finished::get, 2)) {
+            follower.start();
+            assertEquals(expected, takeAll(follower));
+        }
+        fetch.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void splitsNothingAtAFlushInsideAQuotedComment() throws Exception {
+        Path file = dir.resolve("java.csv");
+        AtomicBoolean finished = new AtomicBoolean();
+        try (FetchFileFollower follower = new FetchFileFollower(file, finished::get, 100);
+             Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            follower.start();
+            writer.write("Subreddit,Post Title,Comment\njava,Post,\"first line\n");
+            writer.flush();
+            assertEquals(COLUMNS, Arrays.asList(follower.take()));
+            // Long enough for the follower to poll the half-written record several times
+            Thread.sleep(300);
+            writer.write("second line\"\n");
+            writer.flush();
+            assertEquals(Arrays.asList("java", "Post", "first line\nsecond line"), Arrays.asList(follower.take()));
+
+            // The last record may lack its line break; it is complete once the writer is done
+            writer.write("java,Post,last");
+            writer.close();
+            finished.set(true);
+            assertEquals(Arrays.asList("java", "Post", "last"), Arrays.asList(follower.take()));
+            assertNull(follower.take());
+        }
+    }
+
+    @Test
+    void followsAnArrowFileBatchByBatch() throws Exception {
+        Path file = dir.resolve("java.arrows");
+        AtomicBoolean finished = new AtomicBoolean();
+        try (FetchRecordWriter writer = FetchRecordWriter.open(file, COLUMNS);
+             FetchFileFollower follower = new FetchFileFollower(file, finished::get, 100)) {
+            follower.start();
+            assertEquals(COLUMNS, Arrays.asList(follower.take()));
+            writer.write(Arrays.asList("java", "Post", "first,\nbatch"));
+            writer.flush();
+            assertEquals(Arrays.asList("java", "Post", "first,\nbatch"), Arrays.asList(follower.take()));
+            writer.write(Arrays.asList("java", "Post", "second"));
+            writer.close();
+            finished.set(true);
+            assertEquals(Arrays.asList("java", "Post", "second"), Arrays.asList(follower.take()));
+            assertNull(follower.take());
+        }
+    }
+
+    @Test
+    void failsWhenTheWriterFinishesWithoutAFile() throws Exception {
+        try (FetchFileFollower follower = new FetchFileFollower(dir.resolve("missing.csv"), () -> true, 10)) {
+            follower.start();
+            assertThrows(IOException.class, follower::take);
+        }
+    }
+
+    @Test
+    void closingDiscardsWhatWasNotTaken() throws Exception {
+        Path file = dir.resolve("java.csv");
+        Files.write(file, "Subreddit,Post Title,Comment\njava,Post,a\njava,Post,b\n".getBytes(StandardCharsets.UTF_8));
+        FetchFileFollower follower = new FetchFileFollower(file, () -> false, 1);
+        follower.start();
+        assertEquals(COLUMNS, Arrays.asList(follower.take()));
+
+        follower.close();
+        assertNull(follower.take());
+    }
+
+    private static List<List<String>> takeAll(FetchFileFollower follower) throws IOException, InterruptedException {
+        List<List<String>> records = new ArrayList<>();
+        for (String[] record = follower.take(); record != null; record = follower.take()) {
+            records.add(Arrays.asList(record));
+        }
+        return records;
+    }
+}
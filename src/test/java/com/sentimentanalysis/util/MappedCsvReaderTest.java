@@ -0,0 +1,33 @@
+package com.sentimentanalysis.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedCsvReaderTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void blankMatchesTrim() throws IOException {
+        String[] fields = {"", " \t ", "\u0001\u0000\u001f", "\"\r\n\u000b\"", " ", "　", " x ", "\"\"\"\""};
+        Path file = dir.resolve("comments.csv");
+        Files.write(file, (String.join(",", fields) + "\n").getBytes(StandardCharsets.UTF_8));
+
+        try (MappedCsvReader reader = new MappedCsvReader(file)) {
+            assertTrue(reader.next());
+            assertEquals(fields.length, reader.fieldCount());
+            for (int i = 0; i < fields.length; i++) {
+                String value = reader.getString(i);
+                assertEquals(value.trim().isEmpty(), reader.isBlank(i), "Field " + i + ": [" + value + "]");
+            }
+        }
+    }
+}
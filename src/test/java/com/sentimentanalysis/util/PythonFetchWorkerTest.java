@@ -0,0 +1,111 @@
+package com.sentimentanalysis.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs fetch_worker.py with its fake backend, which needs no Reddit credentials or praw.
+ * The interpreter is python3 unless the python system property names another.
+ */
+class PythonFetchWorkerTest {
+    private static final String SCRIPT = "src/main/python/fetch_worker.py";
+
+    @TempDir
+    Path dir;
+
+    private PythonFetchWorker worker;
+
+    @BeforeEach
+    void startWorker() {
+        worker = new PythonFetchWorker(System.getProperty("python", "python3"), SCRIPT,
+            Arrays.asList("--backend", "fake"));
+    }
+
+    @AfterEach
+    void closeWorker() {
+        worker.close();
+    }
+
+    @Test
+    void streamsTheRowsItWrites() throws IOException {
+        Path output = dir.resolve("keyword.csv");
+        List<String[]> streamed = new ArrayList<>();
+
+        int rows = worker.fetch(PythonFetchWorker.FetchRequest.keyword("java", 3, 4, "hot", output.toString()),
+            streamed::add);
+
+        assertEquals(12, rows);
+        assertEquals(12, streamed.size());
+        // The fake comments hold commas, quotes and line breaks, which must survive the CSV round trip
+        try (FetchRecordReader reader = FetchRecordReader.open(output)) {
+            assertTrue(reader.next());
+            assertArrayEquals(new String[] {"Subreddit", "Post Title", "Comment"}, fields(reader));
+            for (String[] row : streamed) {
+                assertTrue(reader.next());
+                assertArrayEquals(row, fields(reader));
+            }
+            assertFalse(reader.next());
+        }
+        assertEquals("It's okay I guess,\nnothing special. (fake0/2)", streamed.get(2)[2]);
+    }
+
+    @Test
+    void servesRequestsInTurnOnOneProcess() {
+        for (int i = 0; i < 3; i++) {
+            Path output = dir.resolve("post" + i + ".csv");
+            List<String[]> streamed = new ArrayList<>();
+            assertEquals(5, worker.fetch(PythonFetchWorker.FetchRequest.post("https://redd.it/" + i, 5, output.toString()),
+                streamed::add));
+            assertEquals(2, streamed.get(0).length);
+        }
+        assertEquals(0, worker.getRestarts());
+    }
+
+    @Test
+    void reportsFailedRequestsAndKeepsRunning() throws IOException {
+        // The output's parent is a file, so the worker cannot create the output directory
+        Path blocker = Files.createFile(dir.resolve("blocker"));
+        String badOutput = blocker.resolve("out.csv").toString();
+
+        RuntimeException failure = assertThrows(RuntimeException.class, () -> worker.fetch(
+            PythonFetchWorker.FetchRequest.subreddit("java", 1, 1, "hot", badOutput), row -> { }));
+        assertTrue(failure.getMessage().startsWith("Fetch failed"), failure.getMessage());
+
+        assertEquals(2, worker.fetch(PythonFetchWorker.FetchRequest.subreddit("java", 1, 2, "hot",
+            dir.resolve("ok.csv").toString()), row -> { }));
+        assertEquals(0, worker.getRestarts());
+    }
+
+    @Test
+    void restartsAfterTheWorkerDies() {
+        worker.start();
+        ProcessHandle.current().children().forEach(ProcessHandle::destroyForcibly);
+
+        assertEquals(1, worker.fetch(PythonFetchWorker.FetchRequest.post("https://redd.it/x", 1,
+            dir.resolve("post.csv").toString()), row -> { }));
+        assertEquals(1, worker.getRestarts());
+    }
+
+    private static String[] fields(FetchRecordReader reader) {
+        String[] fields = new String[reader.fieldCount()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = reader.getString(i);
+        }
+        return fields;
+    }
+}
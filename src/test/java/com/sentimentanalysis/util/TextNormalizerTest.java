@@ -0,0 +1,90 @@
+package com.sentimentanalysis.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TextNormalizerTest {
+    private static final Pattern REPEATS = Pattern.compile("(.)\\1{2,}");
+
+    // Fragments random inputs are built from: URL and marker edge cases, letters with locale-specific
+    // lowercasing (Turkish I and combining dot, Lithuanian accented I and J, Kelvin sign, final sigma),
+    // whitespace and surrogates
+    private static final String[] FRAGMENTS = {
+        "http://", "https://", "http:/", "https", "h", "t", "p", "s", ":", "/", ".", "x.com/a",
+        "@", "#", "_", "a", "b", "z", "A", "Z", "0", "9", "aaa", "!!!", "\n\n\n", "\r\r\r",
+        "I", "i", "İ", "ı", "Ì", "Í", "Ĩ", "Î", "J", "Į", "\u0307", "K", "Σ", "ß",
+        " ", "\t", "\n", "\r", "\u000b", "\f", " ", " ", "😀", "𐐀", "́"
+    };
+
+    private final Locale defaultLocale = Locale.getDefault();
+
+    @AfterEach
+    void restoreLocale() {
+        Locale.setDefault(defaultLocale);
+    }
+
+    @Test
+    void matchesRegexChainExamples() {
+        assertEquals("check this  so good ", TextNormalizer.normalize("Check this https://t.co/x @user SO GOOOOD!!! #tag"));
+        assertEquals("", TextNormalizer.normalize(null));
+        assertEquals("aa\n\n\n", TextNormalizer.normalize("aaaa\n\n\n"));
+        // Lowercasing follows the default locale, as the chain's toLowerCase() did
+        Locale.setDefault(Locale.ENGLISH);
+        assertEquals("hki", TextNormalizer.normalize("hKI"));
+        Locale.setDefault(Locale.forLanguageTag("tr"));
+        assertEquals("hk", TextNormalizer.normalize("hKI"));
+        assertEquals("hki", TextNormalizer.normalize("hKI\u0307"));
+        assertEquals("k", TextNormalizer.normalize("K#I\u0307"));
+        assertEquals("", TextNormalizer.normalize("I@\u0307"));
+        Locale.setDefault(Locale.forLanguageTag("lt"));
+        assertEquals("hki", TextNormalizer.normalize("hKÍ"));
+    }
+
+    @Test
+    void matchesRegexChainUnderAnyDefaultLocale() {
+        for (String tag : new String[] {"en", "tr", "az", "lt"}) {
+            Locale.setDefault(Locale.forLanguageTag(tag));
+            Random random = new Random(tag.hashCode());
+            TextNormalizer normalizer = new TextNormalizer();
+            for (int n = 0; n < 100_000; n++) {
+                String input = randomText(random);
+                assertEquals(regexChain(input), normalizer.apply(input), () -> "Locale " + tag + ", input " + escape(input));
+            }
+        }
+    }
+
+    // The chain TextNormalizer replaces, as the Spark UDF ran it
+    private static String regexChain(String text) {
+        text = text.replaceAll("http[s]?://\\S+", "");
+        text = text.replaceAll("@\\w+", "");
+        text = text.replaceAll("#\\w+", "");
+        text = text.toLowerCase();
+        text = text.replaceAll("[^a-zA-Z0-9\\s]", "");
+        return REPEATS.matcher(text).replaceAll("$1$1");
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder();
+        int fragments = random.nextInt(12);
+        for (int i = 0; i < fragments; i++) {
+            text.append(random.nextInt(8) == 0
+                ? (char) random.nextInt(0x3000)
+                : FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            escaped.append(c >= 0x20 && c < 0x7f ? String.valueOf(c) : String.format("\\u%04x", (int) c));
+        }
+        return escaped.toString();
+    }
+}